@@ -0,0 +1,83 @@
+package com.example.clubmanager.benchmark;
+
+import com.example.ClubManagerApplication;
+import com.example.clubmanager.service.OccupancyService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+/*
+ * Starts the application without the web layer against its own in-memory H2 database, migrated by Flyway
+ * like the real one, and seeds it with set-based inserts so that even 10M bookings load in seconds.
+ *
+ * The seeded data: SEEDED_CLASSES classes running every day of SEED_YEAR, one session per class and day,
+ * MEMBERS members, and the requested number of bookings spread evenly over those sessions and members.
+ */
+final class BenchmarkDatabase {
+
+    static final int SEEDED_CLASSES = 50;
+    static final int MEMBERS = 10_000;
+    static final int SEED_YEAR = 2099;
+    static final LocalDate FIRST_DAY = LocalDate.of(SEED_YEAR, 1, 1);
+    static final LocalDate LAST_DAY = LocalDate.of(SEED_YEAR, 12, 31);
+
+    private BenchmarkDatabase() {
+    }
+
+    static ConfigurableApplicationContext start(String name) {
+        return new SpringApplicationBuilder(ClubManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1",
+                        "spring.h2.console.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    /*Seed the classes, their sessions and the given number of bookings*/
+    static void seed(ConfigurableApplicationContext context, long bookings) {
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        int days = (int) (LAST_DAY.toEpochDay() - FIRST_DAY.toEpochDay()) + 1;
+        long sessions = (long) SEEDED_CLASSES * days;
+
+        // Seats never run out, so the booking benchmarks measure the write path and not rejections
+        jdbc.update("insert into club_class_model (id, name, name_key, start_date, end_date, start_time, duration, capacity, recurrence_days, recurring) " +
+                "select x, 'Class ' || x, 'class ' || x, ?, ?, time '10:00:00', 60, 2000000000, 127, false from system_range(1, ?)",
+                FIRST_DAY, LAST_DAY, SEEDED_CLASSES);
+        jdbc.update("alter table club_class_model alter column id restart with " + (SEEDED_CLASSES + 1));
+
+        // Session x belongs to class 1 + (x - 1) / days, on day (x - 1) % days of the year
+        jdbc.update("insert into class_session_model (id, class_id, date, start_time, capacity, booked_count) " +
+                "select x, 1 + (x - 1) / ?, dateadd(day, mod(x - 1, ?), ?), time '10:00:00', 2000000000, 0 from system_range(1, ?)",
+                days, days, FIRST_DAY, sessions);
+
+        // Member n has id n + 1
+        jdbc.update("insert into member_model (id, name, name_key) " +
+                "select x + 1, 'Member ' || x, 'member ' || x from system_range(0, ?)", MEMBERS - 1);
+        jdbc.update("alter table member_model alter column id restart with " + (MEMBERS + 1));
+
+        jdbc.update("insert into booking_model (id, class_session_id, member_id, participation_date) " +
+                "select r.x, s.id, 1 + mod(r.x, ?), s.date " +
+                "from system_range(1, ?) r join class_session_model s on s.id = 1 + mod(r.x, ?)",
+                MEMBERS, bookings, sessions);
+        jdbc.update("update class_session_model s set booked_count = (select count(*) from booking_model b where b.class_session_id = s.id)");
+
+        // Move the pooled sequences past the seeded ids
+        jdbc.update("alter sequence class_session_seq restart with " + (sessions + 1));
+        jdbc.update("alter sequence booking_seq restart with " + (bookings + 1));
+
+        // Occupancy counters of the seeded classes, so that bookings update them as in production
+        context.getBean(OccupancyService.class).rebuild();
+        jdbc.execute("analyze");
+    }
+
+    static String className(int classNumber) {
+        return "Class " + classNumber;
+    }
+
+    static String memberName(int memberNumber) {
+        return "Member " + memberNumber;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.clubmanager.benchmark;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.service.BookingService;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * BookingService.bookClass on a seeded database: spread over all sessions on one thread, and with many
+ * threads contending for a single session row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BookingBenchmark {
+
+    @Param({"10000", "1000000"})
+    public long bookings;
+
+    private ConfigurableApplicationContext context;
+    private BookingService bookingService;
+    private final AtomicLong members = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("booking");
+        BenchmarkDatabase.seed(context, bookings);
+        bookingService = context.getBean(BookingService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ApiResponse bookSpreadSessions() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String className = BenchmarkDatabase.className(1 + random.nextInt(BenchmarkDatabase.SEEDED_CLASSES));
+        LocalDate date = BenchmarkDatabase.FIRST_DAY.plusDays(random.nextInt(365));
+        return bookingService.bookClass(new BookingDTO(className, nextMember(), date));
+    }
+
+    @Benchmark
+    @Threads(16)
+    public ApiResponse bookContendedSession() {
+        return bookingService.bookClass(new BookingDTO(BenchmarkDatabase.className(1), nextMember(), BenchmarkDatabase.FIRST_DAY));
+    }
+
+    private String nextMember() {
+        return "Benchmark member " + members.incrementAndGet();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.clubmanager.benchmark;
+
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.service.ClubClassService;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * ClubClassService.createClass for classes spanning 30, 365 and 1000 days, each with one session per day.
+ * Every invocation creates a class with a new name, so the overlap check never rejects it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+public class ClassCreationBenchmark {
+
+    @Param({"30", "365", "1000"})
+    public int days;
+
+    private ConfigurableApplicationContext context;
+    private ClubClassService clubClassService;
+    private int classes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("creation");
+        clubClassService = context.getBean(ClubClassService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ApiResponse createClass() {
+        return clubClassService.createClass(new ClubClassDTO("Benchmark class " + ++classes,
+                BenchmarkDatabase.FIRST_DAY, BenchmarkDatabase.FIRST_DAY.plusDays(days - 1),
+                LocalTime.of(10, 0), 60, 20));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.clubmanager.benchmark;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingPageDTO;
+import com.example.clubmanager.service.SearchService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Every SearchService variant on a seeded database. Members and weeks are picked at random so that
+ * repeated invocations do not only hit the same cached pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(1)
+public class SearchBenchmark {
+
+    @Param({"10000", "1000000"})
+    public long bookings;
+
+    private ConfigurableApplicationContext context;
+    private SearchService searchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkDatabase.start("search");
+        BenchmarkDatabase.seed(context, bookings);
+        searchService = context.getBean(SearchService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<BookingDTO> byMember() {
+        return searchService.searchBookings(randomMember(), null, null, null);
+    }
+
+    @Benchmark
+    public List<BookingDTO> byDateRange() {
+        LocalDate start = randomDay();
+        return searchService.searchBookings(null, null, start, start.plusDays(6));
+    }
+
+    @Benchmark
+    public List<BookingDTO> byMemberAndDateRange() {
+        LocalDate start = randomDay();
+        return searchService.searchBookings(randomMember(), null, start, start.plusDays(29));
+    }
+
+    @Benchmark
+    public BookingPageDTO all() {
+        return searchService.searchBookingPage(null, null, null, null, null, null);
+    }
+
+    @Benchmark
+    public BookingPageDTO firstPage() {
+        LocalDate start = randomDay();
+        return searchService.searchBookingPage(null, null, start, null, null, SearchService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        searchService.streamBookings(null, null, null, null, blackhole::consume);
+    }
+
+    private String randomMember() {
+        return BenchmarkDatabase.memberName(ThreadLocalRandom.current().nextInt(BenchmarkDatabase.MEMBERS));
+    }
+
+    private LocalDate randomDay() {
+        return BenchmarkDatabase.FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(330));
+    }
+}
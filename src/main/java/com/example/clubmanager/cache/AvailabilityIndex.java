@@ -0,0 +1,221 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.dto.AvailabilityDTO;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * Remaining seats per class and day, held as one int array per class indexed by the day offset from the
+ * class start date. A class is loaded from its session rows on first use and then kept current in place by
+ * the seat claims of the booking path, applied once their transaction has committed.
+ *
+ * A load only enters the index when no seat change of the class was in flight while it read the rows: a claim
+ * committing around the read could otherwise be counted twice, or not at all, for as long as the class stays
+ * loaded. A load that raced with one is served to its reader only, and the next read loads again.
+ */
+@Component
+public class AvailabilityIndex {
+
+    private final ClassCatalog classCatalog;
+    private final ClassSessionRepository classSessionRepository;
+    private final ConcurrentMap<Long, ClassState> stateByClass = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AvailabilityIndex(ClassCatalog classCatalog, ClassSessionRepository classSessionRepository) {
+        this.classCatalog = classCatalog;
+        this.classSessionRepository = classSessionRepository;
+    }
+
+    /*Remaining seats of the classes with the given name key for every day from..to, 0 on days without a class*/
+    public List<AvailabilityDTO> getAvailability(String nameKey, LocalDate from, LocalDate to) {
+        List<AvailabilityDTO> availability = new ArrayList<>();
+        Map<Long, ClassSeats> read = new HashMap<>();
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            ClassSchedule schedule = classCatalog.find(nameKey, date);
+            availability.add(new AvailabilityDTO(date, schedule != null
+                    ? read.computeIfAbsent(schedule.getId(), id -> seats(schedule)).get(date) : 0));
+        }
+        return availability;
+    }
+
+    /*Take claimed seats off the index once the current transaction commits*/
+    public void seatsClaimed(long classId, LocalDate date, int seats) {
+        afterCommit(classId, date, -seats);
+    }
+
+    /*Give released seats back to the index once the current transaction commits*/
+    public void seatsReleased(long classId, LocalDate date, int seats) {
+        afterCommit(classId, date, seats);
+    }
+
+    /*Drop a class once the current transaction commits, so its next read loads the seats from the session rows*/
+    public void invalidate(long classId) {
+        ClassState state = state(classId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            state.drop();
+            return;
+        }
+        state.begin();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                state.drop();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                state.end();
+            }
+        });
+    }
+
+    private void afterCommit(long classId, LocalDate date, int delta) {
+        ClassState state = state(classId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            state.apply(date, delta);
+            return;
+        }
+        // In flight from now until the transaction completes, so no load started in between is kept
+        state.begin();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                state.apply(date, delta);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                state.end();
+            }
+        });
+    }
+
+    private ClassState state(long classId) {
+        return stateByClass.computeIfAbsent(classId, id -> new ClassState());
+    }
+
+    private ClassSeats seats(ClassSchedule schedule) {
+        ClassState state = state(schedule.getId());
+        ClassSeats seats = state.loaded();
+        if (seats != null) {
+            return seats;
+        }
+        long version = state.loadStarting();
+        seats = load(schedule);
+        return state.loadFinished(version, seats);
+    }
+
+    private ClassSeats load(ClassSchedule schedule) {
+        ClassSeats seats = new ClassSeats(schedule.getStartDate(), schedule.getEndDate());
+
+        // Recurring classes have their full capacity on every scheduled day until a session row says otherwise
+        if (schedule.isRecurring()) {
+            for (LocalDate date = schedule.getStartDate(); !date.isAfter(schedule.getEndDate()); date = date.plusDays(1)) {
+                if (schedule.runsOn(date)) {
+                    seats.set(date, schedule.getCapacity());
+                }
+            }
+        }
+        for (AvailabilityDTO session : classSessionRepository.findAvailabilityByClassId(schedule.getId())) {
+            seats.set(session.getDate(), session.getRemainingSeats());
+        }
+        return seats;
+    }
+
+    /*
+     * The loaded seats of a class and the seat changes in flight on it. Every change bumps the version when it
+     * starts and when it completes, so a load that saw the same version before and after its read, with nothing
+     * in flight, read rows no pending change will be applied to.
+     */
+    private static final class ClassState {
+
+        private ClassSeats seats;
+        private int inFlight;
+        private long version;
+
+        synchronized ClassSeats loaded() {
+            return seats;
+        }
+
+        // Version to compare once the load is read, or -1 when changes are in flight and the load cannot be kept
+        synchronized long loadStarting() {
+            return inFlight == 0 ? version : -1;
+        }
+
+        synchronized ClassSeats loadFinished(long startVersion, ClassSeats loaded) {
+            if (seats != null) {
+                return seats;
+            }
+            if (startVersion == version) {
+                seats = loaded;
+            }
+            return loaded;
+        }
+
+        synchronized void begin() {
+            inFlight++;
+            version++;
+        }
+
+        synchronized void end() {
+            inFlight--;
+            version++;
+        }
+
+        // Classes that are not loaded are left alone, their next load sees the committed rows
+        synchronized void apply(LocalDate date, int delta) {
+            version++;
+            if (seats != null) {
+                seats.add(date, delta);
+            }
+        }
+
+        synchronized void drop() {
+            version++;
+            seats = null;
+        }
+    }
+
+    private static final class ClassSeats {
+
+        private final LocalDate startDate;
+        private final AtomicIntegerArray remaining;
+
+        private ClassSeats(LocalDate startDate, LocalDate endDate) {
+            this.startDate = startDate;
+            this.remaining = new AtomicIntegerArray((int) ChronoUnit.DAYS.between(startDate, endDate) + 1);
+        }
+
+        private int offset(LocalDate date) {
+            return (int) ChronoUnit.DAYS.between(startDate, date);
+        }
+
+        private int get(LocalDate date) {
+            return remaining.get(offset(date));
+        }
+
+        private void set(LocalDate date, int seats) {
+            remaining.set(offset(date), Math.max(0, seats));
+        }
+
+        private void add(LocalDate date, int delta) {
+            int offset = offset(date);
+            if (offset >= 0 && offset < remaining.length()) {
+                remaining.getAndUpdate(offset, seats -> Math.max(0, seats + delta));
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.clubmanager.cache;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Write versions of the bookings, per member and per month of participation, bumped once a booking or
+ * cancellation commits. A search result read at version v is current for as long as the versions it depends
+ * on stay at v, which is what the search ETags and the SearchResultCache rely on. Each version also keeps the
+ * time of its last change, which tells whether a read replica has applied it yet.
+ *
+ * Versions are bumped after commit, so a result can only be cached under a version older than its data,
+ * never newer. They live in this process: the epoch keeps tags from before a restart from matching.
+ */
+@Component
+public class BookingVersions {
+
+    // Longer date ranges depend on the version of all bookings instead of summing their months
+    static final int MAX_MONTHS = 36;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Version allBookings = new Version();
+    private final Version allMembers = new Version();  // Bumped by changes whose members are not known
+    private final ConcurrentMap<Long, Version> byMember = new ConcurrentHashMap<>();
+    private final ConcurrentMap<YearMonth, Version> byMonth = new ConcurrentHashMap<>();
+
+    /*A booking of the member on the date was made or cancelled in the current transaction*/
+    public void bookingChanged(Long memberId, LocalDate date) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            bump(byMember, memberId, now);
+            bump(byMonth, YearMonth.from(date), now);
+            allBookings.bump(now);
+        });
+    }
+
+    /*Bookings of any number of members on the date were changed in the current transaction*/
+    public void bookingsChanged(LocalDate date) {
+        afterCommit(() -> {
+            long now = System.currentTimeMillis();
+            allMembers.bump(now);
+            bump(byMonth, YearMonth.from(date), now);
+            allBookings.bump(now);
+        });
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /*Version of the bookings of one member*/
+    public long ofMember(Long memberId) {
+        Version version = byMember.get(memberId);
+        return allMembers.count.get() + (version != null ? version.count.get() : 0);
+    }
+
+    /*Time in epoch millis of the last change to the bookings of one member, 0 when there was none*/
+    public long lastChangeOfMember(Long memberId) {
+        Version version = byMember.get(memberId);
+        return Math.max(allMembers.changedAt.get(), version != null ? version.changedAt.get() : 0);
+    }
+
+    /*Version of the bookings with a participation date from startDate to endDate*/
+    public long ofDates(LocalDate startDate, LocalDate endDate) {
+        if (spansAll(startDate, endDate)) {
+            return allBookings.count.get();
+        }
+        long version = 0;
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            Version monthVersion = byMonth.get(month);
+            version += monthVersion != null ? monthVersion.count.get() : 0;
+        }
+        return version;
+    }
+
+    /*Time in epoch millis of the last change to the bookings from startDate to endDate, 0 when there was none*/
+    public long lastChangeOfDates(LocalDate startDate, LocalDate endDate) {
+        if (spansAll(startDate, endDate)) {
+            return allBookings.changedAt.get();
+        }
+        long changedAt = 0;
+        for (YearMonth month = YearMonth.from(startDate); !month.isAfter(YearMonth.from(endDate)); month = month.plusMonths(1)) {
+            Version monthVersion = byMonth.get(month);
+            changedAt = Math.max(changedAt, monthVersion != null ? monthVersion.changedAt.get() : 0);
+        }
+        return changedAt;
+    }
+
+    /*Version of all bookings*/
+    public long ofAll() {
+        return allBookings.count.get();
+    }
+
+    /*Time in epoch millis of the last change to any booking, 0 when there was none*/
+    public long lastChangeOfAll() {
+        return allBookings.changedAt.get();
+    }
+
+    private static boolean spansAll(LocalDate startDate, LocalDate endDate) {
+        return YearMonth.from(startDate).plusMonths(MAX_MONTHS).isBefore(YearMonth.from(endDate));
+    }
+
+    private static <K> void bump(ConcurrentMap<K, Version> versions, K key, long now) {
+        versions.computeIfAbsent(key, k -> new Version()).bump(now);
+    }
+
+    private static void afterCommit(Runnable bump) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump.run();
+            }
+        });
+    }
+
+    // The time is set before the count, so whoever reads a count sees a time at least as late as its change
+    private static final class Version {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong changedAt = new AtomicLong();
+
+        private void bump(long now) {
+            changedAt.accumulateAndGet(now, Math::max);
+            count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.repository.ClubClassRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Read-through cache of classes by normalised name. The periods of classes sharing a name never overlap,
+ * so each name maps to its schedules ordered by start date and "which class runs on this date" is a
+ * floor lookup in O(log n).
+ */
+@Component
+public class ClassCatalog {
+
+    private final ClubClassRepository clubClassRepository;
+    private final ConcurrentMap<String, NavigableMap<LocalDate, ClassSchedule>> schedulesByName = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ClassCatalog(ClubClassRepository clubClassRepository) {
+        this.clubClassRepository = clubClassRepository;
+    }
+
+    /*Whether any class exists with the given name key*/
+    public boolean hasClass(String nameKey) {
+        return !schedules(nameKey).isEmpty();
+    }
+
+    /*The class with the given name key whose period contains the date, or null*/
+    public ClassSchedule find(String nameKey, LocalDate date) {
+        Map.Entry<LocalDate, ClassSchedule> entry = schedules(nameKey).floorEntry(date);
+        return entry != null && entry.getValue().covers(date) ? entry.getValue() : null;
+    }
+
+    /*A class with the given name key whose period overlaps [startDate, endDate], or null*/
+    public ClassSchedule findOverlapping(String nameKey, LocalDate startDate, LocalDate endDate) {
+        // Only the latest class starting on or before endDate can reach into the range
+        Map.Entry<LocalDate, ClassSchedule> entry = schedules(nameKey).floorEntry(endDate);
+        return entry != null && !entry.getValue().getEndDate().isBefore(startDate) ? entry.getValue() : null;
+    }
+
+    /*Every class with the given name key, ordered by start date*/
+    public List<ClassSchedule> findAll(String nameKey) {
+        return List.copyOf(schedules(nameKey).values());
+    }
+
+    /*Reload a name after one of its classes was created or changed*/
+    public void refresh(String nameKey) {
+        // compute() waits for any in-flight load of the same key, so a stale load cannot overwrite the refresh
+        schedulesByName.compute(nameKey, (key, current) -> load(key));
+    }
+
+    private NavigableMap<LocalDate, ClassSchedule> schedules(String nameKey) {
+        NavigableMap<LocalDate, ClassSchedule> schedules = schedulesByName.computeIfAbsent(nameKey, this::load);
+        return schedules != null ? schedules : Collections.emptyNavigableMap();
+    }
+
+    // Unknown names are not cached, so lookups of arbitrary names cannot grow the catalog
+    private NavigableMap<LocalDate, ClassSchedule> load(String nameKey) {
+        NavigableMap<LocalDate, ClassSchedule> schedules = new TreeMap<>();
+        for (ClubClassModel clubClass : clubClassRepository.findByNameKey(nameKey)) {
+            schedules.put(clubClass.getStartDate(), ClassSchedule.of(clubClass));
+        }
+        return schedules.isEmpty() ? null : Collections.unmodifiableNavigableMap(schedules);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.ClubClassModel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/* Immutable snapshot of a class and its schedule, as held by the ClassCatalog */
+@Getter
+@AllArgsConstructor
+public class ClassSchedule {
+
+    private final long id;
+    private final String name;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final LocalTime startTime;
+    private final int capacity;
+    private final boolean recurring;
+    private final int recurrenceDays;
+
+    public static ClassSchedule of(ClubClassModel clubClass) {
+        return new ClassSchedule(clubClass.getId(), clubClass.getName(), clubClass.getStartDate(), clubClass.getEndDate(),
+                clubClass.getStartTime(), clubClass.getCapacity(), clubClass.isRecurring(), clubClass.getRecurrenceDays());
+    }
+
+    // Whether the date falls inside the class period
+    public boolean covers(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate);
+    }
+
+    // Whether the class has a session on the date: inside its period and on one of its recurrence days
+    public boolean runsOn(LocalDate date) {
+        return covers(date) && ClubClassModel.isRecurrenceDay(recurrenceDays, date.getDayOfWeek());
+    }
+}
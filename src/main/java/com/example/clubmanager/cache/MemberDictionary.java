@@ -0,0 +1,137 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.model.MemberModel;
+import com.example.clubmanager.repository.MemberRepository;
+import com.example.clubmanager.utilities.NameKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Interns member names to member ids. Ids are cached by normalised name, so after its first booking a
+ * member is resolved without a query. New members are inserted in their own short transaction, which
+ * callers run before opening the booking transaction so that it never waits for a second connection; batches
+ * create all of their new members in one such transaction.
+ * Members live on shard 0; a booking on another shard first shares its member there, under the same id.
+ */
+@Component
+public class MemberDictionary {
+
+    private final MemberRepository memberRepository;
+    private final MemberNameIndex memberNameIndex;
+    private final TransactionTemplate newTransaction;
+    private final ConcurrentMap<String, Long> idsByKey = new ConcurrentHashMap<>();
+    // "shard:id" of the members known to be on a shard besides shard 0
+    private final Set<String> shared = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public MemberDictionary(MemberRepository memberRepository, MemberNameIndex memberNameIndex,
+                            PlatformTransactionManager transactionManager) {
+        this.memberRepository = memberRepository;
+        this.memberNameIndex = memberNameIndex;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /*Id of the member with the given name, or null when no such member exists*/
+    public Long findId(String memberName) {
+        String nameKey = NameKeys.normalize(memberName);
+        if (nameKey == null) {
+            return null;
+        }
+        Long id = idsByKey.get(nameKey);
+        if (id == null) {
+            // Unknown names are not cached, the member may still be created by a booking
+            MemberModel member = memberRepository.findByNameKey(nameKey);
+            if (member != null) {
+                id = member.getId();
+                idsByKey.put(nameKey, id);
+            }
+        }
+        return id;
+    }
+
+    /*Id of the member with the given name, creating the member when it does not exist yet*/
+    public Long resolveId(String memberName) {
+        Long id = findId(memberName);
+        return id != null ? id : create(memberName);
+    }
+
+    /*Create the members of the given names that do not exist yet, together in one transaction and insert batch*/
+    public void createMissing(Collection<String> memberNames) {
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (String memberName : memberNames) {
+            String nameKey = NameKeys.normalize(memberName);
+            if (nameKey != null && !idsByKey.containsKey(nameKey)) {
+                missing.putIfAbsent(nameKey, memberName.trim());
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        // One query for the names not cached yet instead of one each
+        for (MemberModel member : memberRepository.findByNameKeyIn(missing.keySet())) {
+            idsByKey.put(member.getNameKey(), member.getId());
+            missing.remove(member.getNameKey());
+        }
+        if (missing.size() < 2) {
+            return;
+        }
+        List<MemberModel> created;
+        try {
+            created = newTransaction.execute(status ->
+                    memberRepository.saveAll(missing.values().stream().map(MemberModel::new).toList()));
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent booking created one of them first; resolveId creates the others one at a time
+            return;
+        }
+        for (MemberModel member : created) {
+            memberNameIndex.add(member.getId(), member.getName());
+            idsByKey.put(member.getNameKey(), member.getId());
+        }
+    }
+
+    /*Copy a member to the shard selected on the current thread, before a booking there references it*/
+    public void share(Long memberId, String memberName) {
+        int shard = Shards.current();
+        String key = shard + ":" + memberId;
+        if (shard == Shards.DIRECTORY || shared.contains(key)) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status ->
+                    memberRepository.insertCopy(memberId, memberName.trim(), NameKeys.normalize(memberName)));
+        } catch (DataIntegrityViolationException e) {
+            // Shared by a concurrent booking, or before a restart
+        }
+        // Only known once committed, so no booking can reference the copy before it exists
+        shared.add(key);
+    }
+
+    private Long create(String memberName) {
+        String nameKey = NameKeys.normalize(memberName);
+        Long id;
+        try {
+            id = newTransaction.execute(status -> memberRepository.saveAndFlush(new MemberModel(memberName.trim())).getId());
+            // Committed already, so the member can be offered by name searches right away
+            memberNameIndex.add(id, memberName);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent booking created the same member first
+            id = memberRepository.findByNameKey(nameKey).getId();
+        }
+        idsByKey.put(nameKey, id);
+        return id;
+    }
+}
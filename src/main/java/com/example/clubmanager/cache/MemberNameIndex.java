@@ -0,0 +1,143 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.MemberModel;
+import com.example.clubmanager.repository.MemberRepository;
+import com.example.clubmanager.utilities.NameKeys;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/*
+ * Partial and typo-tolerant member name lookup, held in memory next to the MemberDictionary.
+ *
+ * Prefixes are range scans over a sorted map of tokens, the full normalised name and each of its words, so
+ * "jo" and "do" both find "John Doe". Misspellings are matched through a trigram index: candidates share
+ * trigrams with the query and are ranked by trigram similarity. Prefix matches always rank first.
+ */
+@Component
+public class MemberNameIndex {
+
+    // Below this trigram similarity a name is not offered as a fuzzy match
+    static final double MIN_SIMILARITY = 0.3;
+    // Bounds the work of short, very common prefixes
+    private static final int MAX_PREFIX_SCAN = 10_000;
+    private static final char TOKEN_SEPARATOR = '\u0000';
+
+    private final MemberRepository memberRepository;
+    private final ConcurrentSkipListMap<String, Long> tokens = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Set<Long>> trigrams = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, String> keysById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    @Autowired
+    public MemberNameIndex(MemberRepository memberRepository) {
+        this.memberRepository = memberRepository;
+    }
+
+    /*Index a member; adding the same member twice has no effect*/
+    public void add(long id, String name) {
+        String key = NameKeys.normalize(name);
+        if (key == null || key.isEmpty() || keysById.putIfAbsent(id, key) != null) {
+            return;
+        }
+        tokens.put(key + TOKEN_SEPARATOR + id, id);
+        for (String word : key.split("\\s+")) {
+            tokens.put(word + TOKEN_SEPARATOR + id, id);
+        }
+        for (String trigram : trigramsOf(key)) {
+            trigrams.computeIfAbsent(trigram, t -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    /*Ids of the members best matching the query, best first, at most limit of them*/
+    public List<Long> search(String query, int limit) {
+        String key = NameKeys.normalize(query);
+        if (key == null || key.isEmpty()) {
+            return List.of();
+        }
+        ensureLoaded();
+
+        Map<Long, Double> scores = new HashMap<>();
+
+        // Prefix matches: 2 when the whole name starts with the query, 1 when one of its words does
+        int scanned = 0;
+        for (Map.Entry<String, Long> token : tokens.subMap(key, true, key + Character.MAX_VALUE, true).entrySet()) {
+            if (++scanned > MAX_PREFIX_SCAN) {
+                break;
+            }
+            Long id = token.getValue();
+            double score = keysById.get(id).startsWith(key) ? 2 : 1;
+            scores.merge(id, score, Math::max);
+        }
+
+        // Fuzzy matches: count the trigrams each candidate shares with the query
+        Set<String> queryTrigrams = trigramsOf(key);
+        Map<Long, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            for (Long id : trigrams.getOrDefault(trigram, Set.of())) {
+                shared.merge(id, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<Long, Integer> candidate : shared.entrySet()) {
+            int candidateTrigrams = trigramsOf(keysById.get(candidate.getKey())).size();
+            double similarity = (double) candidate.getValue() / (queryTrigrams.size() + candidateTrigrams - candidate.getValue());
+            if (similarity >= MIN_SIMILARITY) {
+                scores.merge(candidate.getKey(), similarity, Math::max);
+            }
+        }
+
+        // Keep the best limit candidates; ties go to the shorter, then alphabetically first name
+        Comparator<Map.Entry<Long, Double>> ranking = Comparator.<Map.Entry<Long, Double>>comparingDouble(Map.Entry::getValue)
+                .thenComparing(entry -> keysById.get(entry.getKey()).length(), Comparator.reverseOrder())
+                .thenComparing(entry -> keysById.get(entry.getKey()), Comparator.reverseOrder());
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return best.stream().sorted(ranking.reversed()).map(Map.Entry::getKey).toList();
+    }
+
+    /*Normalised name of an indexed member, or null*/
+    public String keyOf(long id) {
+        return keysById.get(id);
+    }
+
+    // Members are read once, on the first search; later members arrive through add()
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (!loaded) {
+                for (MemberModel member : memberRepository.findAll()) {
+                    add(member.getId(), member.getName());
+                }
+                loaded = true;
+            }
+        }
+    }
+
+    // Trigrams of the name padded with two leading and one trailing space, so short names and word starts count
+    static Set<String> trigramsOf(String key) {
+        String padded = "  " + key + " ";
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.dto.BookingDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Least recently used search results, each stored with the BookingVersions version it was read at. An entry
+ * is only served while that version is still current, so writes invalidate it without touching the cache.
+ */
+@Component
+public class SearchResultCache {
+
+    // Large results are not worth holding on to, polling dashboards ask for small ones
+    static final int MAX_CACHED_ROWS = 1000;
+
+    private final Map<String, Entry> entries;
+
+    @Autowired
+    public SearchResultCache(@Value("${search.cache.max-entries:1000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /*The cached result for the search, or null when there is none at the given version*/
+    public List<BookingDTO> get(Long memberId, LocalDate startDate, LocalDate endDate, String version) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key(memberId, startDate, endDate));
+        }
+        return entry != null && entry.version.equals(version) ? entry.bookings : null;
+    }
+
+    public void put(Long memberId, LocalDate startDate, LocalDate endDate, String version, List<BookingDTO> bookings) {
+        if (bookings == null || bookings.size() > MAX_CACHED_ROWS) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(memberId, startDate, endDate), new Entry(version, List.copyOf(bookings)));
+        }
+    }
+
+    private static String key(Long memberId, LocalDate startDate, LocalDate endDate) {
+        return memberId + "|" + startDate + "|" + endDate;
+    }
+
+    private static final class Entry {
+        private final String version;
+        private final List<BookingDTO> bookings;
+
+        private Entry(String version, List<BookingDTO> bookings) {
+            this.version = version;
+            this.bookings = bookings;
+        }
+    }
+}
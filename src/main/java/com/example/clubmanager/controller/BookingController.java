@@ -2,8 +2,11 @@ package com.example.clubmanager.controller;
 
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.service.BookingIntake;
 import com.example.clubmanager.service.BookingService;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,17 +14,30 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/bookings")
 public class BookingController {
 
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final BookingService bookingService;
+    private final BookingIntake bookingIntake;
+    private final Validator validator;
 
     @Autowired
-    public BookingController(BookingService bookingService) {
+    public BookingController(BookingService bookingService, BookingIntake bookingIntake, Validator validator) {
         this.bookingService = bookingService;
+        this.bookingIntake = bookingIntake;
+        this.validator = validator;
     }
 
     @PostMapping("/create")
@@ -33,13 +49,101 @@ public class BookingController {
                     .collect(Collectors.joining(", "));
             return ResponseEntity.badRequest().body(new ApiResponse("error", errorMessage));
         }
+        if (bookingIntake.isEnabled()) {
+            return enqueueBooking(bookingDTO);
+        }
         try {
             ApiResponse response = bookingService.bookClass(bookingDTO);
-            return new ResponseEntity<>(response, HttpStatus.CREATED);
+            // A waitlisted booking is accepted, but not created yet
+            HttpStatus status = "waitlisted".equals(response.getStatus()) ? HttpStatus.ACCEPTED : HttpStatus.CREATED;
+            return new ResponseEntity<>(response, status);
         } catch (IllegalArgumentException e) {
             ApiResponse failureResponse = new ApiResponse("error", e.getMessage());
             return new ResponseEntity<>(failureResponse, HttpStatus.BAD_REQUEST);
         }
     }
-}
 
+    /*Outcome of a booking accepted in asynchronous mode*/
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<ApiResponse> getTicket(@PathVariable String ticketId) {
+        ApiResponse status = bookingIntake.getStatus(ticketId);
+        if (status == null) {
+            return new ResponseEntity<>(new ApiResponse("error", "Ticket not found"), HttpStatus.NOT_FOUND);
+        }
+        return ResponseEntity.ok(status);
+    }
+
+    /*Cancel a booking*/
+    @DeleteMapping("/{bookingId}")
+    public ResponseEntity<ApiResponse> cancelBooking(@PathVariable Long bookingId) {
+        try {
+            return ResponseEntity.ok(bookingService.cancelBooking(bookingId));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse("error", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /*Cancel every booking of a class on a date*/
+    @DeleteMapping("/session")
+    public ResponseEntity<ApiResponse> cancelSession(@RequestParam String className, @RequestParam LocalDate date) {
+        try {
+            return ResponseEntity.ok(bookingService.cancelSession(className, date));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse("error", e.getMessage()), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    /*Book several members at once; the response holds one result per item, in request order*/
+    @PostMapping("/batch")
+    public ResponseEntity<List<ApiResponse>> createBookings(@RequestBody List<BookingDTO> bookingDTOs) {
+        if (bookingDTOs.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch can hold at most " + MAX_BATCH_SIZE + " bookings");
+        }
+
+        // Invalid items are answered here, only the valid ones reach the service
+        List<ApiResponse> responses = new ArrayList<>(Collections.nCopies(bookingDTOs.size(), null));
+        List<BookingDTO> validBookings = new ArrayList<>();
+        for (int i = 0; i < bookingDTOs.size(); i++) {
+            String errorMessage = validate(bookingDTOs.get(i));
+            if (errorMessage != null) {
+                responses.set(i, new ApiResponse("error", errorMessage));
+            } else {
+                validBookings.add(bookingDTOs.get(i));
+            }
+        }
+
+        Iterator<ApiResponse> booked = bookingService.bookClasses(validBookings).iterator();
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i) == null) {
+                responses.set(i, booked.next());
+            }
+        }
+        return ResponseEntity.ok(responses);
+    }
+
+    // Asynchronous mode: queue the booking and answer 202 with a ticket to poll
+    private ResponseEntity<ApiResponse> enqueueBooking(BookingDTO bookingDTO) {
+        String ticketId = bookingIntake.submit(bookingDTO);
+        if (ticketId == null) {
+            return new ResponseEntity<>(new ApiResponse("error", "Too many pending bookings, please retry later"),
+                    HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/bookings/tickets/" + ticketId))
+                .body(new ApiResponse("accepted", ticketId));
+    }
+
+    private String validate(BookingDTO bookingDTO) {
+        if (bookingDTO == null) {
+            return "booking is required";
+        }
+        Set<ConstraintViolation<BookingDTO>> violations = validator.validate(bookingDTO);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
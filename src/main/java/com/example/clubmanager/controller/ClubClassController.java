@@ -1,5 +1,6 @@
 package com.example.clubmanager.controller;
 
+import com.example.clubmanager.dto.AvailabilityDTO;
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.ClubClassDTO;
 import com.example.clubmanager.service.ClubClassService;
@@ -9,11 +10,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.ObjectError;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.LocalDate;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @RestController
@@ -47,4 +53,11 @@ public class ClubClassController {
         }
 
     }
+
+    /*Remaining seats per day from..to; a single day when to is omitted*/
+    @GetMapping("/{name}/availability")
+    public List<AvailabilityDTO> getAvailability(@PathVariable String name, @RequestParam LocalDate from,
+                                                 @RequestParam(required = false) LocalDate to) {
+        return clubClassService.getAvailability(name, from, to != null ? to : from);
+    }
 }
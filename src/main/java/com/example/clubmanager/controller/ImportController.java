@@ -0,0 +1,56 @@
+package com.example.clubmanager.controller;
+
+import com.example.clubmanager.service.ImportService;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    // Large enough that reading the upload is never the bottleneck of an import
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+
+    private final ImportService importService;
+
+    @Autowired
+    public ImportController(ImportService importService) {
+        this.importService = importService;
+    }
+
+    /*Import classes from a CSV request body; classes must be imported before their bookings*/
+    @PostMapping("/classes")
+    public ResponseEntity<?> importClasses(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(importService.importClasses(reader(body)));
+        } catch (IllegalArgumentException e) {
+            // An empty file or a header without the required columns; nothing was imported
+            return new ResponseEntity<>(new ApiResponse("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /*Import bookings from a CSV request body, read as it arrives rather than held in memory*/
+    @PostMapping("/bookings")
+    public ResponseEntity<?> importBookings(InputStream body) throws IOException {
+        try {
+            return ResponseEntity.ok(importService.importBookings(reader(body)));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(new ApiResponse("error", e.getMessage()), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    private static BufferedReader reader(InputStream body) {
+        return new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), READ_BUFFER_CHARS);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.clubmanager.controller;
+
+import com.example.clubmanager.dto.OccupancyDTO;
+import com.example.clubmanager.service.OccupancyService;
+import com.example.clubmanager.service.ProjectionService;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+
+    private final OccupancyService occupancyService;
+    private final ProjectionService projectionService;
+
+    @Autowired
+    public ReportController(OccupancyService occupancyService, ProjectionService projectionService) {
+        this.occupancyService = occupancyService;
+        this.projectionService = projectionService;
+    }
+
+    /*Fill rate and full sessions per class and week or month, for the periods overlapping from..to*/
+    @GetMapping("/occupancy")
+    public List<OccupancyDTO> getOccupancy(@RequestParam(defaultValue = "month") String period,
+                                           @RequestParam LocalDate from,
+                                           @RequestParam LocalDate to,
+                                           @RequestParam(required = false) String className) {
+        return occupancyService.getOccupancy(period, from, to, className);
+    }
+
+    /*Recount the occupancy of every class from the session rows*/
+    @PostMapping("/occupancy/rebuild")
+    public ApiResponse rebuildOccupancy() {
+        return new ApiResponse("success", "Occupancy of " + occupancyService.rebuild() + " classes rebuilt.");
+    }
+
+    /*Replay the booking event log and correct the session counters and booking rows that drifted from it*/
+    @PostMapping("/projections/rebuild")
+    public ApiResponse rebuildProjections(@RequestParam(defaultValue = "false") boolean deleteUnlogged) {
+        return projectionService.rebuild(deleteUnlogged);
+    }
+}
@@ -1,42 +1,217 @@
 package com.example.clubmanager.controller;
 
+import com.example.clubmanager.datasource.ReadRouting;
 import com.example.clubmanager.dto.BookingDTO;
-import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.dto.BookingPageDTO;
+import com.example.clubmanager.metrics.StatementCounter;
 import com.example.clubmanager.service.SearchService;
+import com.example.clubmanager.utilities.ApiResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/bookings")
 public class SearchController {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final int FLUSH_EVERY_ROWS = 100;
+    // Larger chunks for exports, which are read by machines and compress better in bigger pieces
+    private static final int EXPORT_FLUSH_EVERY_ROWS = 1000;
+
     private final SearchService searchService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public SearchController(SearchService searchService) {
+    public SearchController(SearchService searchService, ObjectMapper objectMapper) {
         this.searchService = searchService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/search")
-    public List<BookingDTO> searchBookings(@RequestParam(required = false) String memberName,
-                                           @RequestParam(required = false) LocalDate startDate,
-                                           @RequestParam(required = false) LocalDate endDate) {
+    public ResponseEntity<List<BookingDTO>> searchBookings(@RequestParam(required = false) String memberName,
+                                                           @RequestParam(required = false) Long memberId,
+                                                           @RequestParam(required = false) String memberPrefix,
+                                                           @RequestParam(required = false) LocalDate startDate,
+                                                           @RequestParam(required = false) LocalDate endDate,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           WebRequest webRequest) {
+
+        // Partial or misspelt member names return the bookings of the best matching members
+        if (memberPrefix != null) {
+            if (memberName != null || memberId != null || cursor != null || limit != null) {
+                throw new IllegalArgumentException("memberPrefix cannot be combined with memberName, memberId, cursor or limit");
+            }
+            return ResponseEntity.ok(searchService.searchBookingsByMemberPrefix(memberPrefix, startDate, endDate));
+        }
 
-        List<BookingModel> bookingModels = searchService.searchBookings(memberName, startDate, endDate);
+        // Polling clients revalidate with If-None-Match and get a 304, without a query, until a matching booking changes
+        String etag = "\"" + searchService.searchVersion(memberName, memberId, startDate, endDate) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        return bookingModels.stream().map(this::convertToDTO).toList();
+        // Keyset pagination when a cursor or page size is given, and for searches that no member or closed date range
+        // bounds, which would otherwise list every booking at once; the next cursor travels in a header
+        boolean bounded = memberName != null || memberId != null || (startDate != null && endDate != null);
+        if (cursor != null || limit != null || !bounded) {
+            BookingPageDTO page = searchService.searchBookingPage(memberName, memberId, startDate, endDate, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getBookings());
+        }
+
+        return ResponseEntity.ok().eTag(etag).body(searchService.searchBookings(memberName, memberId, startDate, endDate));
+
+    }
+
+    @GetMapping(value = "/search", params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamBookings(@RequestParam(required = false) String memberName,
+                                                                @RequestParam(required = false) Long memberId,
+                                                                @RequestParam(required = false) LocalDate startDate,
+                                                                @RequestParam(required = false) LocalDate endDate) {
+        return ResponseEntity.ok().contentType(NDJSON)
+                .body(streamBody(memberName, memberId, startDate, endDate, ndjsonRows(), false, FLUSH_EVERY_ROWS));
+    }
+
+    /*Every booking in the date range as CSV or NDJSON, gzipped when the client accepts it*/
+    @GetMapping("/export")
+    public ResponseEntity<?> exportBookings(@RequestParam(defaultValue = "csv") String format,
+                                            @RequestParam(required = false) LocalDate startDate,
+                                            @RequestParam(required = false) LocalDate endDate,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            // JSON whatever the client accepts, since it asked for an export that does not exist
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(new ApiResponse("error", "Format must be csv or ndjson"));
+        }
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("bookings." + (csv ? "csv" : "ndjson")).build().toString());
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(streamBody(null, null, startDate, endDate, csv ? csvRows() : ndjsonRows(), gzip,
+                EXPORT_FLUSH_EVERY_ROWS));
+    }
 
+    // Rows are written while the database cursor is read and flushed in chunks, so memory use does not grow with them
+    private StreamingResponseBody streamBody(String memberName, Long memberId, LocalDate startDate, LocalDate endDate,
+                                             RowWriter rowWriter, boolean gzip, int flushEvery) {
+        // The body is written on another thread, which reads the primary only if the request asked to and counts its
+        // statements as the request's
+        boolean primary = ReadRouting.isPrimaryRequested();
+        AtomicInteger statements = StatementCounter.current();
+        return outputStream -> {
+            // A syncing gzip stream hands every flushed chunk to the client instead of holding it until the end
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, true) : outputStream;
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+            int[] rows = {0};
+            try {
+                rowWriter.writeHeader(out);
+                StatementCounter.countingOn(statements, () -> ReadRouting.run(primary, () ->
+                        searchService.streamBookings(memberName, memberId, startDate, endDate, booking -> {
+                            try {
+                                rowWriter.write(out, booking);
+                                if (++rows[0] % flushEvery == 0) {
+                                    out.flush();
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+        };
     }
-     private BookingDTO convertToDTO(BookingModel bookingModel) {
-        return new BookingDTO(
-                bookingModel.getClassSession().getClubClass().getName(),
-                bookingModel.getMemberName(),
-                bookingModel.getParticipationDate()
-        );
+
+    // One JSON document per line
+    private RowWriter ndjsonRows() {
+        ObjectWriter writer = objectMapper.writerFor(BookingDTO.class);
+        return (out, booking) -> {
+            out.write(writer.writeValueAsString(booking));
+            out.write('\n');
+        };
+    }
+
+    // RFC 4180 rows under a header line
+    private static RowWriter csvRows() {
+        return new RowWriter() {
+            @Override
+            public void writeHeader(Writer out) throws IOException {
+                out.write("id,className,memberName,participationDate\r\n");
+            }
+
+            @Override
+            public void write(Writer out, BookingDTO booking) throws IOException {
+                if (booking.getId() != null) {
+                    out.write(String.valueOf(booking.getId()));
+                }
+                out.write(',');
+                out.write(csvField(booking.getClassName()));
+                out.write(',');
+                out.write(csvField(booking.getMemberName()));
+                out.write(',');
+                out.write(String.valueOf(booking.getParticipationDate()));
+                out.write("\r\n");
+            }
+        };
+    }
+
+    // Quote fields holding a separator, quote or line break, doubling the quotes inside
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private interface RowWriter {
+
+        default void writeHeader(Writer out) throws IOException {
+        }
+
+        void write(Writer out, BookingDTO booking) throws IOException;
     }
 }
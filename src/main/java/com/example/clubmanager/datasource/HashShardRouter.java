@@ -0,0 +1,13 @@
+package com.example.clubmanager.datasource;
+
+import org.springframework.stereotype.Component;
+
+/*Spreads classes over the shards by the hash of their normalised name, the same on every JVM*/
+@Component
+public class HashShardRouter implements ShardRouter {
+
+    @Override
+    public int shardOf(String classKey, int shards) {
+        return Math.floorMod(classKey.hashCode(), shards);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.clubmanager.datasource;
+
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Keeps a local H2 replica in step with an H2 primary, for development and tests where no real replication is at
+ * hand. The replica is migrated like the primary and reads it through linked tables; every sync replaces the rows
+ * of all tables in one replica transaction, so readers see the previous copy until the new one commits. A full
+ * copy grows with the data: point datasource.replica.url at a real replica in production instead.
+ */
+public class LocalReplicaSync {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicaSync.class);
+
+    private static final String LINK_SCHEMA = "PRIMARY_LINK";
+    // Copied first, so a copy is never older than the heartbeat it carries and the measured lag errs high
+    private static final String HEARTBEAT_TABLE = "REPLICATION_HEARTBEAT";
+
+    private final DataSource replica;
+    private final DataSourceProperties primary;
+    private List<String> tables;
+
+    public LocalReplicaSync(DataSource replica, DataSourceProperties primary) {
+        this.replica = replica;
+        this.primary = primary;
+    }
+
+    // The first copy waits a full interval, by then the primary is migrated and the application is up
+    @Scheduled(initialDelayString = "${datasource.replica.sync-interval-ms:1000}",
+            fixedDelayString = "${datasource.replica.sync-interval-ms:1000}")
+    public synchronized void sync() {
+        try (Connection connection = replica.getConnection()) {
+            if (tables == null) {
+                tables = link(connection);
+            }
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                for (String table : tables) {
+                    statement.executeUpdate("delete from " + table);
+                    statement.executeUpdate("insert into " + table + " select * from " + LINK_SCHEMA + "." + table);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.warn("Syncing the replica failed", e);
+        }
+    }
+
+    // Migrate the replica, then link each of its tables to the same table of the primary
+    private List<String> link(Connection connection) throws SQLException {
+        Flyway.configure().dataSource(replica).locations("classpath:db/migration").load().migrate();
+
+        List<String> names = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            // Tables are refilled one after another inside the transaction, their foreign keys would get in the way
+            statement.execute("set referential_integrity false");
+            statement.execute("create schema if not exists " + LINK_SCHEMA);
+            try (ResultSet rs = statement.executeQuery("select table_name from information_schema.tables " +
+                    "where table_schema = 'PUBLIC' and table_type = 'BASE TABLE' and table_name <> 'flyway_schema_history'")) {
+                while (rs.next()) {
+                    names.add(rs.getString(1).toUpperCase(Locale.ROOT));
+                }
+            }
+            names.sort((a, b) -> Boolean.compare(!a.equals(HEARTBEAT_TABLE), !b.equals(HEARTBEAT_TABLE)));
+            for (String table : names) {
+                statement.execute("create linked table if not exists " + LINK_SCHEMA + "." + table + "(" +
+                        literal(primary.determineDriverClassName()) + ", " + literal(primary.determineUrl()) + ", " +
+                        literal(primary.determineUsername()) + ", " + literal(primary.determinePassword()) + ", " +
+                        "'PUBLIC', " + literal(table) + ") readonly");
+            }
+        }
+        log.info("Replica linked to the {} tables of the primary", names.size());
+        return names;
+    }
+
+    private static String literal(String value) {
+        return value == null ? "''" : "'" + value.replace("'", "''") + "'";
+    }
+}
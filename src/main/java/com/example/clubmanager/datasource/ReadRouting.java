@@ -0,0 +1,57 @@
+package com.example.clubmanager.datasource;
+
+import java.util.function.Supplier;
+
+/*
+ * Read-your-writes on demand: read-only transactions started inside onPrimary, or while a request carries
+ * X-Read-Your-Writes: true, read the primary instead of the replica, so they see every write committed before.
+ */
+public final class ReadRouting {
+
+    public static final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    public static boolean isPrimaryRequested() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+
+    public static <T> T onPrimary(Supplier<T> work) {
+        return run(true, work);
+    }
+
+    /*Run the work reading the primary or not, e.g. on a streaming thread with the choice of the request thread*/
+    public static void run(boolean primary, Runnable work) {
+        run(primary, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public static <T> T run(boolean primary, Supplier<T> work) {
+        Boolean previous = begin(primary);
+        try {
+            return work.get();
+        } finally {
+            end(previous);
+        }
+    }
+
+    /*Route the reads of the current thread, returning the previous choice to hand back to end*/
+    static Boolean begin(boolean primary) {
+        Boolean previous = PRIMARY.get();
+        PRIMARY.set(primary);
+        return previous;
+    }
+
+    static void end(Boolean previous) {
+        if (previous == null) {
+            PRIMARY.remove();
+        } else {
+            PRIMARY.set(previous);
+        }
+    }
+}
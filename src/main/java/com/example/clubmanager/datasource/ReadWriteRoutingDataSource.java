@@ -0,0 +1,37 @@
+package com.example.clubmanager.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/*
+ * Hands read-only transactions connections of the replica and everything else connections of the primary. Reads
+ * stay on the primary when read-your-writes is requested or while the replica lags more than it may.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicationLag replicationLag;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicationLag replicationLag) {
+        this.replicationLag = replicationLag;
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !ReadRouting.isPrimaryRequested()
+                && replicationLag.isWithinTolerance()) {
+            return Route.REPLICA;
+        }
+        return Route.PRIMARY;
+    }
+}
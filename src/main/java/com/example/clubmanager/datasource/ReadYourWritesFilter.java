@@ -0,0 +1,42 @@
+package com.example.clubmanager.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/*Reads of requests with X-Read-Your-Writes: true go to the primary; responses carry the replica lag when there is one*/
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ObjectProvider<ReplicationLag> replicationLag;
+
+    @Autowired
+    public ReadYourWritesFilter(ObjectProvider<ReplicationLag> replicationLag) {
+        this.replicationLag = replicationLag;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReplicationLag lag = replicationLag.getIfAvailable();
+        if (lag != null) {
+            Duration current = lag.getLag();
+            response.setHeader(ReplicationLag.LAG_HEADER, current == null ? "unknown" : String.valueOf(current.toMillis()));
+        }
+
+        Boolean previous = ReadRouting.begin(Boolean.parseBoolean(request.getHeader(ReadRouting.READ_YOUR_WRITES_HEADER)));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadRouting.end(previous);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.clubmanager.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/*
+ * Read/write split, on when datasource.replica.url is set: the primary keeps the spring.datasource pool and takes
+ * every write, read-only transactions go to the replica through a pool of its own (datasource.replica.hikari.*).
+ * Without the url the application runs on the single spring.datasource database as before.
+ */
+@Configuration
+@ConditionalOnProperty("datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean(defaultCandidate = false)
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = replicaDataSourceProperties().initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicationLag replicationLag(DataSourceProperties properties, MeterRegistry meterRegistry,
+                                         @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMs) {
+        return new ReplicationLag(primaryDataSource(properties), replicaDataSource(), Duration.ofMillis(maxLagMs),
+                meterRegistry);
+    }
+
+    // The read-only flag of a transaction is set after its connection is requested, so the lazy proxy defers
+    // picking the target until the first statement
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, ReplicationLag replicationLag) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource(properties), replicaDataSource(), replicationLag));
+    }
+
+    @Bean
+    @ConditionalOnProperty("datasource.replica.sync-from-primary")
+    public LocalReplicaSync localReplicaSync(DataSourceProperties properties) {
+        return new LocalReplicaSync(replicaDataSource(), properties);
+    }
+}
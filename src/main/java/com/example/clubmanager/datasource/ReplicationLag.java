@@ -0,0 +1,83 @@
+package com.example.clubmanager.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/*
+ * Measures how far the replica is behind the primary: the primary stamps the heartbeat row on a fixed delay, and
+ * the lag is the age of the stamp the replica has. Exposed as datasource.replica.lag, in seconds, and on every
+ * response as X-Replica-Lag, in milliseconds. Until the replica has a heartbeat the lag is unknown and reads
+ * stay on the primary.
+ */
+public class ReplicationLag {
+
+    public static final String LAG_HEADER = "X-Replica-Lag";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicationLag.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+    private volatile Duration lag;
+    private volatile Instant replicaBeat;
+
+    public ReplicationLag(DataSource primary, DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        Gauge.builder("datasource.replica.lag", this, replicationLag -> {
+                    Duration current = replicationLag.lag;
+                    return current == null ? Double.NaN : current.toMillis() / 1000.0;
+                })
+                .description("Age of the newest primary heartbeat on the read replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.heartbeat-interval-ms:1000}")
+    public void heartbeat() {
+        // Whole milliseconds, so the stamp reads back exactly as written whatever the column precision
+        primary.update("update replication_heartbeat set beat_at = ? where id = 1",
+                Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS)));
+        measure();
+    }
+
+    private void measure() {
+        try {
+            Timestamp beat = replica.queryForObject("select beat_at from replication_heartbeat where id = 1", Timestamp.class);
+            replicaBeat = beat.toInstant();
+            lag = Duration.between(replicaBeat, Instant.now());
+        } catch (DataAccessException e) {
+            log.debug("Replica heartbeat not readable", e);
+            replicaBeat = null;
+            lag = null;
+        }
+    }
+
+    /*Lag at the last heartbeat, null while unknown*/
+    public Duration getLag() {
+        return lag;
+    }
+
+    /*Stamp of the newest heartbeat on the replica at the last measurement, null while unknown. The replica applies
+    the primary's commits in order, so it also has every change committed before this stamp was taken.*/
+    public Instant getReplicaBeat() {
+        return replicaBeat;
+    }
+
+    public boolean isWithinTolerance() {
+        Duration current = lag;
+        return current != null && current.compareTo(maxLag) <= 0;
+    }
+}
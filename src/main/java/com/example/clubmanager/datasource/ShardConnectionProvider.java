@@ -0,0 +1,25 @@
+package com.example.clubmanager.datasource;
+
+import org.hibernate.engine.jdbc.connections.spi.AbstractDataSourceBasedMultiTenantConnectionProviderImpl;
+
+import javax.sql.DataSource;
+
+/*Connections of the shard a JPA session was opened for, the tenant identifier being the shard number*/
+public class ShardConnectionProvider extends AbstractDataSourceBasedMultiTenantConnectionProviderImpl<String> {
+
+    private final transient ShardDataSources shardDataSources;
+
+    public ShardConnectionProvider(ShardDataSources shardDataSources) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @Override
+    protected DataSource selectAnyDataSource() {
+        return shardDataSources.get(Shards.DIRECTORY);
+    }
+
+    @Override
+    protected DataSource selectDataSource(String tenantIdentifier) {
+        return shardDataSources.get(Integer.parseInt(tenantIdentifier));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.clubmanager.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * One pool per shard, shard 0 being the application DataSource. The other shards get the same Flyway migrations,
+ * and when one is created its sequences and identity columns are moved to the start of its id range.
+ */
+public class ShardDataSources implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardDataSources.class);
+
+    private final List<DataSource> dataSources = new ArrayList<>();
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public ShardDataSources(DataSource directory, List<String> urls, String username, String password, int poolSize) {
+        dataSources.add(directory);
+        for (String url : urls) {
+            HikariDataSource pool = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(url).username(username).password(password).build();
+            pool.setPoolName("shard-" + dataSources.size());
+            pool.setMaximumPoolSize(poolSize);
+            pools.add(pool);
+            migrate(pool, dataSources.size());
+            dataSources.add(pool);
+        }
+    }
+
+    public DataSource get(int shard) {
+        return dataSources.get(shard);
+    }
+
+    private static void migrate(DataSource dataSource, int shard) {
+        MigrateResult result = Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        if (result.initialSchemaVersion != null) {
+            return;
+        }
+
+        long base = shard * Shards.ID_SPAN;
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (Map<String, Object> sequence : jdbc.queryForList("select sequence_name, increment from information_schema.sequences " +
+                "where sequence_schema = 'PUBLIC'")) {
+            // Hibernate's pooled optimizer hands out the block ending at the value it reads, so skip one block
+            long increment = ((Number) sequence.get("INCREMENT")).longValue();
+            jdbc.execute("alter sequence " + sequence.get("SEQUENCE_NAME") + " restart with " + (base + increment));
+        }
+        for (Map<String, Object> column : jdbc.queryForList("select table_name, column_name from information_schema.columns " +
+                "where table_schema = 'PUBLIC' and is_identity = 'YES'")) {
+            jdbc.execute("alter table " + column.get("TABLE_NAME") + " alter column " + column.get("COLUMN_NAME") +
+                    " restart with " + base);
+        }
+        log.info("Created shard {} with ids from {}", shard, base);
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
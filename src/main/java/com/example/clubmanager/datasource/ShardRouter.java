@@ -0,0 +1,11 @@
+package com.example.clubmanager.datasource;
+
+/*
+ * Picks the shard of a class from its normalised name. Every class of a name, with its sessions, bookings,
+ * occupancy counters, waitlists and events, lives on that shard. Replace HashShardRouter with a @Primary bean to
+ * place classes differently; the mapping must stay stable for the data already written.
+ */
+public interface ShardRouter {
+
+    int shardOf(String classKey, int shards);
+}
@@ -0,0 +1,17 @@
+package com.example.clubmanager.datasource;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/*Opens every JPA session on the shard selected on the current thread*/
+public class ShardTenantResolver implements CurrentTenantIdentifierResolver<String> {
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return Integer.toString(Shards.current());
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return false;
+    }
+}
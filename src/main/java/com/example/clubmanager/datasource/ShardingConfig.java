@@ -0,0 +1,43 @@
+package com.example.clubmanager.datasource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/*
+ * Sharding of the class data, on when sharding.urls lists the databases besides spring.datasource. Hibernate
+ * connects each session to the shard selected on its thread, see Shards. The shard count and the ShardRouter
+ * must not change once data is written, as classes are not moved between shards.
+ */
+@Configuration
+@ConditionalOnProperty("sharding.urls")
+public class ShardingConfig {
+
+    @Bean
+    public ShardDataSources shardDataSources(DataSource dataSource,
+                                             @Value("${sharding.urls}") List<String> urls,
+                                             @Value("${sharding.username:${spring.datasource.username:}}") String username,
+                                             @Value("${sharding.password:${spring.datasource.password:}}") String password,
+                                             @Value("${sharding.maximum-pool-size:10}") int poolSize,
+                                             @Value("${spring.jpa.open-in-view:true}") boolean openInView) {
+        // An entity manager opened for the whole request would stay on the shard of its first transaction
+        if (openInView) {
+            throw new IllegalStateException("Sharding requires spring.jpa.open-in-view=false");
+        }
+        return new ShardDataSources(dataSource, urls, username, password, poolSize);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardingHibernateProperties(ShardDataSources shardDataSources) {
+        return properties -> {
+            properties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER, new ShardConnectionProvider(shardDataSources));
+            properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new ShardTenantResolver());
+        };
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.clubmanager.datasource;
+
+import com.example.clubmanager.metrics.StatementCounter;
+import com.example.clubmanager.utilities.NameKeys;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/*
+ * The databases the class data is spread over. Shard 0 is the spring.datasource database and also holds the
+ * members; sharding.urls adds more, and without it everything runs on shard 0 as before. The shard selected on
+ * the current thread decides which database a new JPA session connects to, so it is selected before a transaction
+ * starts. Ids are allocated in ranges of ID_SPAN per shard, so a class or booking id tells its shard.
+ */
+@Component
+public class Shards {
+
+    public static final int DIRECTORY = 0;
+    public static final long ID_SPAN = 1L << 48;
+    // Rows buffered per shard while a merged stream waits for the slowest shard
+    private static final int MERGE_BUFFER = 500;
+    private static final Object END = new Object();
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private final ShardRouter shardRouter;
+    private final int count;
+    private final ExecutorService executor;
+
+    @Autowired
+    public Shards(ShardRouter shardRouter, @Value("${sharding.urls:}") List<String> urls,
+                  @Value("${sharding.fan-out-threads:64}") int fanOutThreads) {
+        this.shardRouter = shardRouter;
+        this.count = 1 + urls.size();
+        AtomicInteger threads = new AtomicInteger();
+        // A merged stream holds one thread per shard for as long as its client reads, so the pool is capped and
+        // hands off without queueing: when every thread is taken the request is rejected rather than left waiting
+        this.executor = count == 1 ? null : new ThreadPoolExecutor(0, Math.max(fanOutThreads, count),
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), task -> {
+            Thread thread = new Thread(task, "shard-fan-out-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, (task, pool) -> {
+            throw new RejectedExecutionException("All " + pool.getMaximumPoolSize() + " shard fan-out threads are busy");
+        });
+    }
+
+    public int count() {
+        return count;
+    }
+
+    /*Shard of the classes with the given name*/
+    public int ofClass(String className) {
+        String classKey = NameKeys.normalize(className);
+        return count == 1 || classKey == null ? DIRECTORY : shardRouter.shardOf(classKey, count);
+    }
+
+    /*Shard of a class, session or booking id; unknown ranges fall back to shard 0, where the id is not found*/
+    public int ofId(long id) {
+        long shard = id / ID_SPAN;
+        return shard > 0 && shard < count ? (int) shard : DIRECTORY;
+    }
+
+    /*Shard selected on the current thread*/
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? DIRECTORY : shard;
+    }
+
+    public void run(int shard, Runnable work) {
+        run(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T run(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        // A transaction stays on the database it started on, work for another shard would silently run there too
+        if (shard != current() && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Shard " + shard + " selected inside a transaction of shard " + current());
+        }
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /*Run the work on every shard in parallel, returning the results in shard order*/
+    public <T> List<T> fanOut(IntFunction<T> work) {
+        if (count == 1) {
+            return Collections.singletonList(run(DIRECTORY, () -> work.apply(DIRECTORY)));
+        }
+        // The workers read where the caller would, and count their statements as the caller's
+        boolean primary = ReadRouting.isPrimaryRequested();
+        AtomicInteger statements = StatementCounter.current();
+        List<Future<T>> futures = new ArrayList<>();
+        List<T> results = new ArrayList<>(count);
+        try {
+            // A rejected submission cancels the shards already started, in the finally block
+            for (int shard = 0; shard < count; shard++) {
+                int target = shard;
+                futures.add(executor.submit(() -> StatementCounter.countingOn(statements,
+                        () -> ReadRouting.run(primary, () -> run(target, () -> work.apply(target))))));
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards", e);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /*
+     * Feed the rows of every shard to the consumer as one sequence in the given order. Each shard produces its rows
+     * in that order on a thread of its own; the consumer gets the smallest head each time, so memory use stays
+     * at the buffer of every shard whatever the number of rows.
+     */
+    public <T> void mergeOrdered(Comparator<? super T> order, BiConsumer<Integer, Consumer<T>> producer, Consumer<? super T> consumer) {
+        if (count == 1) {
+            run(DIRECTORY, () -> producer.accept(DIRECTORY, consumer::accept));
+            return;
+        }
+        boolean primary = ReadRouting.isPrimaryRequested();
+        AtomicInteger statements = StatementCounter.current();
+        List<BlockingQueue<Object>> queues = new ArrayList<>(count);
+        List<Future<?>> futures = new ArrayList<>(count);
+        try {
+            for (int shard = 0; shard < count; shard++) {
+                int target = shard;
+                BlockingQueue<Object> queue = new ArrayBlockingQueue<>(MERGE_BUFFER);
+                queues.add(queue);
+                futures.add(executor.submit(() -> {
+                    try {
+                        StatementCounter.countingOn(statements, () -> ReadRouting.run(primary,
+                                () -> run(target, () -> producer.accept(target, row -> put(queue, row)))));
+                    } finally {
+                        // An interrupted producer was cancelled by a consumer that no longer reads
+                        if (!Thread.currentThread().isInterrupted()) {
+                            put(queue, END);
+                        }
+                    }
+                }));
+            }
+
+            PriorityQueue<Head<T>> heads = new PriorityQueue<>((a, b) -> order.compare(a.row, b.row));
+            for (int shard = 0; shard < count; shard++) {
+                next(queues, futures, shard, heads);
+            }
+            while (!heads.isEmpty()) {
+                Head<T> head = heads.poll();
+                consumer.accept(head.row);
+                next(queues, futures, head.shard, heads);
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void next(List<BlockingQueue<Object>> queues, List<Future<?>> futures, int shard,
+                                 PriorityQueue<Head<T>> heads) {
+        try {
+            Object row = queues.get(shard).take();
+            if (row != END) {
+                heads.add(new Head<>((T) row, shard));
+                return;
+            }
+            // Surfaces the failure of a shard that stopped early
+            futures.get(shard).get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the shards", e);
+        }
+    }
+
+    private static void put(BlockingQueue<Object> queue, Object row) {
+        try {
+            queue.put(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Merge cancelled", e);
+        }
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class Head<T> {
+        final T row;
+        final int shard;
+
+        Head(T row, int shard) {
+            this.row = row;
+            this.shard = shard;
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package com.example.clubmanager.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -13,10 +14,14 @@ import java.time.LocalDate;
 
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
 public class BookingDTO {
 
+    // Id of the stored booking, e.g. to cancel it; set on search results, ignored in requests
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long id;
+
     @NotBlank(message = "class name is required")
     private String className;
 
@@ -28,5 +33,26 @@ public class BookingDTO {
     @Future(message = "participation date must be in the future")
     private LocalDate participationDate;
 
+    // Join the session's waitlist instead of failing when the class is full; left out of responses unless set
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean joinWaitlist;
+
+    public BookingDTO(String className, String memberName, LocalDate participationDate) {
+        this(className, memberName, participationDate, false);
+    }
+
+    public BookingDTO(String className, String memberName, LocalDate participationDate, boolean joinWaitlist) {
+        this.className = className;
+        this.memberName = memberName;
+        this.participationDate = participationDate;
+        this.joinWaitlist = joinWaitlist;
+    }
+
+    /*Search result for a stored booking*/
+    public BookingDTO(Long id, String className, String memberName, LocalDate participationDate) {
+        this(className, memberName, participationDate, false);
+        this.id = id;
+    }
+
 }
 
@@ -0,0 +1,24 @@
+package com.example.clubmanager.dto;
+
+import com.example.clubmanager.model.BookingEventType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/* The part of a booking event that a projection replay reads, without managing the event entity */
+@Getter
+@AllArgsConstructor
+public class BookingEventDTO {
+
+    private BookingEventType eventType;
+
+    private Long classSessionId;
+
+    private Long bookingId;
+
+    private Long memberId;
+
+    private LocalDate sessionDate;
+
+}
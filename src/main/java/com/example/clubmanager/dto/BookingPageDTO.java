@@ -0,0 +1,17 @@
+package com.example.clubmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/* One page of a keyset-paginated booking search; nextCursor is null on the last page */
+@Getter
+@AllArgsConstructor
+public class BookingPageDTO {
+
+    private List<BookingDTO> bookings;
+
+    private String nextCursor;
+
+}
@@ -0,0 +1,24 @@
+package com.example.clubmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/* Booking projection carrying the booking id, which keyset pagination needs for its cursor */
+@Getter
+@AllArgsConstructor
+public class BookingRowDTO {
+
+    private Long id;
+
+    private String className;
+
+    private String memberName;
+
+    private LocalDate participationDate;
+
+    public BookingDTO toBookingDTO() {
+        return new BookingDTO(id, className, memberName, participationDate);
+    }
+}
@@ -7,8 +7,10 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Set;
 
 @Getter
 @Setter
@@ -38,4 +40,14 @@ public class ClubClassDTO {
     @NotNull @Min(value = 1, message = "Min capacity required is 1")
     private int capacity;
 
+    // Optional recurrence rule: days of the week the class runs on, every day when empty
+    private Set<DayOfWeek> daysOfWeek;
+
+    // When true, sessions are created on the first booking of each date instead of up front
+    private boolean recurring;
+
+    public ClubClassDTO(String name, LocalDate startDate, LocalDate endDate, LocalTime startTime, int duration, int capacity) {
+        this(name, startDate, endDate, startTime, duration, capacity, null, false);
+    }
+
 }
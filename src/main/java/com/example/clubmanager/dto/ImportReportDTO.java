@@ -0,0 +1,21 @@
+package com.example.clubmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/* Outcome of a file import; rejected holds the first rejected lines, rejectedCount all of them */
+@Getter
+@AllArgsConstructor
+public class ImportReportDTO {
+
+    private long rows;
+
+    private long imported;
+
+    private long rejectedCount;
+
+    private List<RejectedLineDTO> rejected;
+
+}
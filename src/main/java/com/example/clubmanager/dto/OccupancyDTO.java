@@ -0,0 +1,34 @@
+package com.example.clubmanager.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class OccupancyDTO {
+
+    private String className;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate periodStart;
+
+    private Long sessions;
+
+    private Long capacity;
+
+    private Long bookedCount;
+
+    private Long fullSessions;
+
+    // Share of the scheduled seats that are booked, from 0 to 1
+    public double getFillRate() {
+        return capacity == null || capacity == 0 ? 0 : (double) bookedCount / capacity;
+    }
+}
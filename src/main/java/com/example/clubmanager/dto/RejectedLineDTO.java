@@ -0,0 +1,15 @@
+package com.example.clubmanager.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/* A line of an imported file that was not imported, and why */
+@Getter
+@AllArgsConstructor
+public class RejectedLineDTO {
+
+    private long line;
+
+    private String message;
+
+}
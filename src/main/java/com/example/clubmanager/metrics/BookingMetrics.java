@@ -0,0 +1,62 @@
+package com.example.clubmanager.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+
+/*
+ * Counts booking attempts by outcome, exposed as bookings.outcome{outcome=...}. Bookings and waitlist entries are
+ * counted once their transaction commits, so a rolled-back booking is not a success; rejections are counted
+ * right away, their transaction rolls back by design.
+ */
+@Component
+public class BookingMetrics {
+
+    public enum Outcome {
+        SUCCESS(true), FULL(false), WAITLISTED(true), NO_SESSION(false), NO_CLASS(false);
+
+        private final boolean written;
+
+        Outcome(boolean written) {
+            this.written = written;
+        }
+    }
+
+    private final Counter[] counters = new Counter[Outcome.values().length];
+
+    @Autowired
+    public BookingMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : Outcome.values()) {
+            counters[outcome.ordinal()] = Counter.builder("bookings.outcome")
+                    .description("Booking attempts by outcome")
+                    .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+    }
+
+    public void record(Outcome outcome) {
+        record(outcome, 1);
+    }
+
+    public void record(Outcome outcome, int bookings) {
+        if (bookings <= 0) {
+            return;
+        }
+        Counter counter = counters[outcome.ordinal()];
+        if (!outcome.written || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.increment(bookings);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                counter.increment(bookings);
+            }
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.clubmanager.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Counts the SQL statements Hibernate prepares for the current request. Registered through
+ * hibernate.session_factory.statement_inspector, so Hibernate instantiates it and the counter lives in a
+ * static thread local that RequestMetricsFilter resets and reads around every request. Work a request hands to
+ * other threads, such as shard fan-outs and streamed responses, runs with the request's counter through
+ * countingOn, so its statements are counted too. Hibernate statistics count prepared statements as well, but
+ * only as one total for the session factory, so they cannot be split by request.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<AtomicInteger> COUNT = ThreadLocal.withInitial(AtomicInteger::new);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get().incrementAndGet();
+        return sql;
+    }
+
+    /*Start a new count on the current thread; work still running for an earlier request keeps its own counter*/
+    public static AtomicInteger reset() {
+        AtomicInteger counter = new AtomicInteger();
+        COUNT.set(counter);
+        return counter;
+    }
+
+    public static int count() {
+        return COUNT.get().get();
+    }
+
+    /*Counter of the current thread, to hand to the threads doing part of its work*/
+    public static AtomicInteger current() {
+        return COUNT.get();
+    }
+
+    /*Run the work counting its statements on the given counter, typically that of the request it is part of*/
+    public static <T> T countingOn(AtomicInteger counter, Supplier<T> work) {
+        AtomicInteger previous = COUNT.get();
+        COUNT.set(counter);
+        try {
+            return work.get();
+        } finally {
+            COUNT.set(previous);
+        }
+    }
+
+    public static void countingOn(AtomicInteger counter, Runnable work) {
+        countingOn(counter, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
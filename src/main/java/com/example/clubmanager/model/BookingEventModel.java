@@ -0,0 +1,113 @@
+package com.example.clubmanager.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+public class BookingEventModel {
+
+    // Pooled ids are only in append order within one node, so the log is replayed by logPosition
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_event_seq")
+    @SequenceGenerator(name = "booking_event_seq", sequenceName = "booking_event_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    private BookingEventType eventType;
+
+    // Plain ids rather than associations: an event is written without loading anything it refers to
+    @Column(name = "class_id")
+    private Long classId;
+
+    @Column(name = "class_session_id")
+    private Long classSessionId;
+
+    private Long bookingId;
+
+    private Long memberId;
+
+    private LocalDate sessionDate;
+
+    private LocalDateTime recordedAt;
+
+    // Replay order, taken by the database from an unpooled sequence when the row is inserted
+    @Column(name = "log_position", insertable = false, updatable = false)
+    private Long logPosition;
+
+    public BookingEventModel() {}
+
+    private BookingEventModel(BookingEventType eventType, Long classId, Long classSessionId, Long bookingId,
+                              Long memberId, LocalDate sessionDate) {
+        this.eventType = eventType;
+        this.classId = classId;
+        this.classSessionId = classSessionId;
+        this.bookingId = bookingId;
+        this.memberId = memberId;
+        this.sessionDate = sessionDate;
+        this.recordedAt = LocalDateTime.now();
+    }
+
+    public static BookingEventModel classCreated(ClubClassModel clubClass) {
+        return new BookingEventModel(BookingEventType.CLASS_CREATED, clubClass.getId(), null, null, null, null);
+    }
+
+    public static BookingEventModel seatBooked(BookingModel booking) {
+        return ofBooking(BookingEventType.SEAT_BOOKED, booking);
+    }
+
+    public static BookingEventModel bookingCancelled(BookingModel booking) {
+        return ofBooking(BookingEventType.BOOKING_CANCELLED, booking);
+    }
+
+    public static BookingEventModel sessionCancelled(ClassSessionModel classSession) {
+        return new BookingEventModel(BookingEventType.SESSION_CANCELLED, classSession.getClubClass().getId(),
+                classSession.getId(), null, null, classSession.getDate());
+    }
+
+    private static BookingEventModel ofBooking(BookingEventType eventType, BookingModel booking) {
+        ClassSessionModel classSession = booking.getClassSession();
+        return new BookingEventModel(eventType, classSession.getClubClass().getId(), classSession.getId(),
+                booking.getId(), booking.getMemberId(), classSession.getDate());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public BookingEventType getEventType() {
+        return eventType;
+    }
+
+    public Long getClassId() {
+        return classId;
+    }
+
+    public Long getClassSessionId() {
+        return classSessionId;
+    }
+
+    public Long getBookingId() {
+        return bookingId;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+
+    public LocalDate getSessionDate() {
+        return sessionDate;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public Long getLogPosition() {
+        return logPosition;
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.clubmanager.model;
+
+public enum BookingEventType {
+    CLASS_CREATED,
+    SEAT_BOOKED,       // A member got a seat, by booking or from the waitlist
+    BOOKING_CANCELLED,
+    SESSION_CANCELLED  // Every booking of the session was cancelled
+}
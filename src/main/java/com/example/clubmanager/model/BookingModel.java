@@ -6,22 +6,39 @@ import java.time.LocalDate;
 @Entity
 public class BookingModel {
 
+    // Ids come from a pooled sequence rather than IDENTITY, so booking inserts can be sent as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "booking_seq")
+    @SequenceGenerator(name = "booking_seq", sequenceName = "booking_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "class_session_id")
     private ClassSessionModel classSession;
 
-    private String memberName;
+    // Written through memberId, so a booking can be inserted without loading its member
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "member_id", insertable = false, updatable = false)
+    private MemberModel member;
+
+    @Column(name = "member_id")
+    private Long memberId;
     private LocalDate participationDate;
 
-    public String getMemberName(){
-        return memberName;
+    public Long getId() {
+        return id;
+    }
+
+    public Long getMemberId() {
+        return memberId;
     }
-    public void setMemberName(String memberName){
-        this.memberName = memberName;
+
+    public void setMemberId(Long memberId) {
+        this.memberId = memberId;
+    }
+
+    public MemberModel getMember() {
+        return member;
     }
 
     public LocalDate getParticipationDate(){
@@ -0,0 +1,116 @@
+package com.example.clubmanager.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_class_occupancy_period",
+        columnNames = {"class_id", "period_type", "period_start"}))
+public class ClassOccupancyModel {
+
+    // Pooled sequence so that the rows of a new class are batch inserted with it
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "class_occupancy_seq")
+    @SequenceGenerator(name = "class_occupancy_seq", sequenceName = "class_occupancy_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "class_id")
+    private ClubClassModel clubClass;
+
+    // Stored as plain varchar rather than the dialect's native enum type, matching the migration
+    @Enumerated(EnumType.STRING)
+    @JdbcTypeCode(SqlTypes.VARCHAR)
+    private OccupancyPeriod periodType;
+
+    private LocalDate periodStart;
+
+    private int sessions;  // Scheduled dates in the period
+
+    private int capacity;  // Seats over all scheduled dates
+
+    private int bookedCount;
+
+    private int fullSessions;  // Sessions without a seat left
+
+    public ClassOccupancyModel() {}
+
+    public ClassOccupancyModel(ClubClassModel clubClass, OccupancyPeriod periodType, LocalDate periodStart) {
+        this.clubClass = clubClass;
+        this.periodType = periodType;
+        this.periodStart = periodStart;
+    }
+
+    /*Empty counters for every week and month in which the class is scheduled, with their sessions and capacity*/
+    public static List<ClassOccupancyModel> scheduledFor(ClubClassModel clubClass) {
+        Map<String, ClassOccupancyModel> rows = new TreeMap<>();
+        for (LocalDate date = clubClass.getStartDate(); !date.isAfter(clubClass.getEndDate()); date = date.plusDays(1)) {
+            if (!clubClass.runsOn(date)) {
+                continue;
+            }
+            for (OccupancyPeriod periodType : OccupancyPeriod.values()) {
+                LocalDate periodStart = periodType.startOf(date);
+                ClassOccupancyModel row = rows.computeIfAbsent(periodType + "|" + periodStart,
+                        key -> new ClassOccupancyModel(clubClass, periodType, periodStart));
+                row.sessions++;
+                row.capacity += clubClass.getCapacity();
+            }
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ClubClassModel getClubClass() {
+        return clubClass;
+    }
+
+    public OccupancyPeriod getPeriodType() {
+        return periodType;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getBookedCount() {
+        return bookedCount;
+    }
+
+    public void setBookedCount(int bookedCount) {
+        this.bookedCount = bookedCount;
+    }
+
+    public int getFullSessions() {
+        return fullSessions;
+    }
+
+    public void setFullSessions(int fullSessions) {
+        this.fullSessions = fullSessions;
+    }
+}
@@ -5,13 +5,16 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_class_session_class_date", columnNames = {"class_id", "date"}))
 public class ClassSessionModel {
 
+    // Pooled sequence so that Hibernate can batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "class_session_seq")
+    @SequenceGenerator(name = "class_session_seq", sequenceName = "class_session_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "class_id")
     private ClubClassModel clubClass;
 
@@ -1,30 +1,43 @@
 package com.example.clubmanager.model;
 
+import com.example.clubmanager.utilities.NameKeys;
 import jakarta.persistence.*;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 
 @Entity
 public class ClubClassModel {
+
+    // Recurrence bitmask with one bit per day of the week, Monday being the lowest bit
+    public static final int EVERY_DAY = 0b1111111;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
     private String name;
+    private String nameKey;  // Lower-case name, indexed for case-insensitive lookups
     private LocalDate startDate;
     private LocalDate endDate;
     private LocalTime startTime;
     private int duration;  // Duration in minutes
     private int capacity;
+    private int recurrenceDays = EVERY_DAY;
+    private boolean recurring;  // Sessions are created on first booking instead of up front
 
     @OneToMany(mappedBy = "clubClass", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ClassSessionModel> sessions;
 
+    @OneToMany(mappedBy = "clubClass", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<ClassOccupancyModel> occupancy;
+
 
     // Constructor
     public ClubClassModel(String name, LocalDate startDate, LocalDate endDate, LocalTime startTime, int duration, int capacity) {
-        this.name = name;
+        setName(name);
         this.startDate = startDate;
         this.endDate = endDate;
         this.startTime = startTime;
@@ -52,6 +65,11 @@ public class ClubClassModel {
 
     public void setName(String name) {
         this.name = name;
+        this.nameKey = NameKeys.normalize(name);
+    }
+
+    public String getNameKey() {
+        return nameKey;
     }
 
     public LocalDate getStartDate() {
@@ -94,10 +112,64 @@ public class ClubClassModel {
         this.capacity = capacity;
     }
 
+    public int getRecurrenceDays() {
+        return recurrenceDays;
+    }
+
+    public void setRecurrenceDays(int recurrenceDays) {
+        this.recurrenceDays = recurrenceDays;
+    }
+
+    public boolean isRecurring() {
+        return recurring;
+    }
+
+    public void setRecurring(boolean recurring) {
+        this.recurring = recurring;
+    }
+
+    public List<ClassSessionModel> getSessions() {
+        return sessions;
+    }
+
     public void setSessions(List<ClassSessionModel> sessions) {
         this.sessions = sessions;
     }
 
+    public List<ClassOccupancyModel> getOccupancy() {
+        return occupancy;
+    }
+
+    public void setOccupancy(List<ClassOccupancyModel> occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    // Whether the class is scheduled on the given date: inside its period and on one of its recurrence days
+    public boolean runsOn(LocalDate date) {
+        return !date.isBefore(startDate) && !date.isAfter(endDate)
+                && isRecurrenceDay(recurrenceDays, date.getDayOfWeek());
+    }
+
+    public static boolean isRecurrenceDay(int recurrenceDays, DayOfWeek day) {
+        return (recurrenceDays & dayBit(day)) != 0;
+    }
+
+    // Build the recurrence bitmask for the given days, every day when none are given
+    public static int recurrenceDaysOf(Collection<DayOfWeek> days) {
+        if (days == null || days.isEmpty()) {
+            return EVERY_DAY;
+        }
+        int mask = 0;
+        for (DayOfWeek day : days) {
+            mask |= dayBit(day);
+        }
+        return mask;
+    }
+
+    private static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
     // Override toString() to provide meaningful string representation
     @Override
     public String toString() {
@@ -108,6 +180,7 @@ public class ClubClassModel {
                 ", startTime='" + startTime + '\'' +
                 ", duration=" + duration +
                 ", capacity=" + capacity +
+                ", recurring=" + recurring +
                 '}';
     }
 }
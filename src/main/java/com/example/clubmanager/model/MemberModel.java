@@ -0,0 +1,41 @@
+package com.example.clubmanager.model;
+
+import com.example.clubmanager.utilities.NameKeys;
+import jakarta.persistence.*;
+
+@Entity
+public class MemberModel {
+
+    // Pooled sequence so that the new members of a batch are inserted together
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 50)
+    private Long id;
+    private String name;
+    private String nameKey;  // Lower-case name, unique, see NameKeys
+
+    public MemberModel(String name) {
+        setName(name);
+    }
+
+    public MemberModel() {
+
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+        this.nameKey = NameKeys.normalize(name);
+    }
+
+    public String getNameKey() {
+        return nameKey;
+    }
+}
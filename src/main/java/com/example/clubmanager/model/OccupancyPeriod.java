@@ -0,0 +1,15 @@
+package com.example.clubmanager.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Reporting periods of the occupancy counters: ISO weeks starting on Monday, and calendar months
+public enum OccupancyPeriod {
+    WEEK,
+    MONTH;
+
+    public LocalDate startOf(LocalDate date) {
+        return this == WEEK ? date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : date.withDayOfMonth(1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.clubmanager.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_waitlist_entry_session_member",
+        columnNames = {"class_session_id", "member_id"}))
+public class WaitlistEntryModel {
+
+    // Ids are handed out in joining order, so they double as the queue order of a session
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "waitlist_entry_seq")
+    @SequenceGenerator(name = "waitlist_entry_seq", sequenceName = "waitlist_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "class_session_id")
+    private Long classSessionId;
+
+    @Column(name = "member_id")
+    private Long memberId;
+
+    public WaitlistEntryModel() {}
+
+    public WaitlistEntryModel(Long classSessionId, Long memberId) {
+        this.classSessionId = classSessionId;
+        this.memberId = memberId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getClassSessionId() {
+        return classSessionId;
+    }
+
+    public Long getMemberId() {
+        return memberId;
+    }
+}
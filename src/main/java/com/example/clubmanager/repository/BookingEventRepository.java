@@ -0,0 +1,24 @@
+package com.example.clubmanager.repository;
+
+import com.example.clubmanager.dto.BookingEventDTO;
+import com.example.clubmanager.model.BookingEventModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface BookingEventRepository extends JpaRepository<BookingEventModel, Long> {
+
+    // The log of one class in append order, a range scan of the (class_id, log_position) index read in fetch-size chunks
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.example.clubmanager.dto.BookingEventDTO(e.eventType, e.classSessionId, e.bookingId, " +
+            "e.memberId, e.sessionDate) from BookingEventModel e where e.classId = :classId order by e.logPosition")
+    Stream<BookingEventDTO> streamByClassId(@Param("classId") Long classId);
+
+}
@@ -1,17 +1,115 @@
 package com.example.clubmanager.repository;
 
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingRowDTO;
 import com.example.clubmanager.model.BookingModel;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookingRepository extends JpaRepository<BookingModel, Long> {
-    List<BookingModel> findByMemberNameEqualsIgnoreCase(String memberName);
-    List<BookingModel> findByParticipationDateBetween(LocalDate startDate, LocalDate endDate);
-    List<BookingModel> findByMemberNameEqualsIgnoreCaseAndParticipationDateBetween(String memberName, LocalDate participationDate1, LocalDate participationDate2);
 
-}
+    // Search results are built straight from one join, without loading booking, session, class or member entities.
+    // Members are matched on member_id, resolved from names by the MemberDictionary.
+    String BOOKING_DTO_SELECT = "select new com.example.clubmanager.dto.BookingDTO(b.id, c.name, m.name, b.participationDate) " +
+            "from BookingModel b join b.classSession s join s.clubClass c join b.member m ";
+
+    @Query(BOOKING_DTO_SELECT + "where b.memberId = :memberId")
+    List<BookingDTO> findBookingsByMemberId(@Param("memberId") Long memberId);
+
+    @Query(BOOKING_DTO_SELECT + "where b.participationDate between :startDate and :endDate")
+    List<BookingDTO> findBookingsByParticipationDateBetween(@Param("startDate") LocalDate startDate,
+                                                           @Param("endDate") LocalDate endDate);
+
+    @Query(BOOKING_DTO_SELECT + "where b.memberId = :memberId " +
+            "and b.participationDate between :startDate and :endDate")
+    List<BookingDTO> findBookingsByMemberIdAndParticipationDateBetween(@Param("memberId") Long memberId,
+                                                                      @Param("startDate") LocalDate startDate,
+                                                                      @Param("endDate") LocalDate endDate);
+
+    // Conditional delete: returns 0 when a concurrent cancellation already removed the booking
+    @Modifying
+    @Query("delete from BookingModel b where b.id = :id")
+    int deleteBookingById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from BookingModel b where b.classSession.id = :sessionId")
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+
+    // Booking rows of a class, compared with the event log by the projection rebuild
+    @Query("select b.id from BookingModel b where b.classSession.clubClass.id = :classId")
+    List<Long> findIdsByClassId(@Param("classId") Long classId);
+
+    // Session of each booking row, one entry per row
+    @Query("select b.classSession.id from BookingModel b where b.id in :ids")
+    List<Long> findSessionIdsByIdIn(@Param("ids") List<Long> ids);
+
+    @Modifying
+    @Query("delete from BookingModel b where b.id in :ids")
+    int deleteBookingsByIdIn(@Param("ids") List<Long> ids);
 
+    // Restore a booking row under the id it had in the event log
+    @Modifying
+    @Query(value = "insert into booking_model (id, class_session_id, member_id, participation_date) " +
+            "values (:id, :sessionId, :memberId, :date)", nativeQuery = true)
+    int insertBooking(@Param("id") Long id, @Param("sessionId") Long sessionId, @Param("memberId") Long memberId,
+                      @Param("date") LocalDate date);
+
+    // Bookings of a handful of members, typically the best matches of a member name search. The searches below take
+    // every filter as a required parameter, open dates bounded by SearchService, so no "(:x is null or ...)"
+    // predicate keeps the planner from the date and member indexes.
+    @Query(BOOKING_DTO_SELECT + "where b.memberId in :memberIds " +
+            "and b.participationDate between :startDate and :endDate " +
+            "order by b.participationDate, b.id")
+    List<BookingDTO> findBookingsByMemberIdIn(@Param("memberIds") List<Long> memberIds,
+                                              @Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+
+    // Next page in (participationDate, id) order after (afterDate, afterId); the date bound is a plain range on
+    // the (participation_date, id) index, the id only breaks the tie within afterDate
+    String BOOKING_ROW_SELECT = "select new com.example.clubmanager.dto.BookingRowDTO(b.id, c.name, m.name, b.participationDate) " +
+            "from BookingModel b join b.classSession s join s.clubClass c join b.member m ";
+    String PAGE_AFTER = "b.participationDate >= :afterDate and b.participationDate <= :endDate " +
+            "and (b.participationDate > :afterDate or b.id > :afterId) " +
+            "order by b.participationDate, b.id";
+
+    @Query(BOOKING_ROW_SELECT + "where " + PAGE_AFTER)
+    List<BookingRowDTO> findPageAfter(@Param("afterDate") LocalDate afterDate,
+                                      @Param("afterId") Long afterId,
+                                      @Param("endDate") LocalDate endDate,
+                                      Pageable pageable);
+
+    @Query(BOOKING_ROW_SELECT + "where b.memberId = :memberId and " + PAGE_AFTER)
+    List<BookingRowDTO> findPageAfterByMemberId(@Param("memberId") Long memberId,
+                                                @Param("afterDate") LocalDate afterDate,
+                                                @Param("afterId") Long afterId,
+                                                @Param("endDate") LocalDate endDate,
+                                                Pageable pageable);
+
+    // Forward-only cursors over the matching bookings, read in fetch-size chunks
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(BOOKING_DTO_SELECT + "where b.participationDate between :startDate and :endDate " +
+            "order by b.participationDate, b.id")
+    Stream<BookingDTO> streamBookings(@Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(BOOKING_DTO_SELECT + "where b.memberId = :memberId " +
+            "and b.participationDate between :startDate and :endDate " +
+            "order by b.participationDate, b.id")
+    Stream<BookingDTO> streamBookingsByMemberId(@Param("memberId") Long memberId,
+                                                @Param("startDate") LocalDate startDate,
+                                                @Param("endDate") LocalDate endDate);
+
+}
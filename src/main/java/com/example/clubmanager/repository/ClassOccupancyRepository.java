@@ -0,0 +1,78 @@
+package com.example.clubmanager.repository;
+
+import com.example.clubmanager.dto.OccupancyDTO;
+import com.example.clubmanager.model.ClassOccupancyModel;
+import com.example.clubmanager.model.OccupancyPeriod;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClassOccupancyRepository extends JpaRepository<ClassOccupancyModel, Long> {
+
+    // Report rows, one per class name and period; reads one row per class and period, never the bookings. The
+    // reports of every class and of one class are separate queries, so no "(:nameKey is null or ...)" predicate
+    // keeps the planner from the name_key index.
+    String OCCUPANCY_SELECT = "select new com.example.clubmanager.dto.OccupancyDTO(min(c.name), o.periodStart, " +
+            "sum(o.sessions), sum(o.capacity), sum(o.bookedCount), sum(o.fullSessions)) " +
+            "from ClassOccupancyModel o join o.clubClass c " +
+            "where o.periodType = :periodType and o.periodStart between :from and :to ";
+    String OCCUPANCY_GROUPING = "group by c.nameKey, o.periodStart order by c.nameKey, o.periodStart";
+
+    @Query(OCCUPANCY_SELECT + OCCUPANCY_GROUPING)
+    List<OccupancyDTO> findOccupancy(@Param("periodType") OccupancyPeriod periodType,
+                                     @Param("from") LocalDate from,
+                                     @Param("to") LocalDate to);
+
+    @Query(OCCUPANCY_SELECT + "and c.nameKey = :nameKey " + OCCUPANCY_GROUPING)
+    List<OccupancyDTO> findOccupancyByNameKey(@Param("periodType") OccupancyPeriod periodType,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to,
+                                              @Param("nameKey") String nameKey);
+
+    // Add claimed seats to the week and month of a session, counting the session as full when the claim filled it.
+    // Runs after the seat claim in the same transaction, so the session row already holds the new count.
+    @Modifying
+    @Query(value = "update class_occupancy_model set booked_count = booked_count + :seats, " +
+            "full_sessions = full_sessions + (select count(*) from class_session_model s " +
+            "    where s.id = :sessionId and s.booked_count >= s.capacity) " +
+            "where class_id = :classId and (period_type = 'WEEK' and period_start = :weekStart " +
+            "    or period_type = 'MONTH' and period_start = :monthStart)", nativeQuery = true)
+    int addBookedSeats(@Param("classId") Long classId,
+                       @Param("sessionId") Long sessionId,
+                       @Param("weekStart") LocalDate weekStart,
+                       @Param("monthStart") LocalDate monthStart,
+                       @Param("seats") int seats);
+
+    // Take released seats off the week and month of a session, no longer counting it as full if it was.
+    // Runs after the release in the same transaction, so the session row already holds the new count.
+    @Modifying
+    @Query(value = "update class_occupancy_model set booked_count = booked_count - :seats, " +
+            "full_sessions = full_sessions - (select count(*) from class_session_model s " +
+            "    where s.id = :sessionId and s.booked_count + :seats >= s.capacity) " +
+            "where class_id = :classId and (period_type = 'WEEK' and period_start = :weekStart " +
+            "    or period_type = 'MONTH' and period_start = :monthStart)", nativeQuery = true)
+    int removeBookedSeats(@Param("classId") Long classId,
+                          @Param("sessionId") Long sessionId,
+                          @Param("weekStart") LocalDate weekStart,
+                          @Param("monthStart") LocalDate monthStart,
+                          @Param("seats") int seats);
+
+    // The counters of a class, locked so that bookings wait while a rebuild recounts them
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from ClassOccupancyModel o where o.clubClass.id = :classId")
+    List<ClassOccupancyModel> lockByClassId(@Param("classId") Long classId);
+
+    // Classes without counters yet, e.g. created before occupancy was recorded
+    @Query("select c.id from ClubClassModel c where not exists " +
+            "(select o.id from ClassOccupancyModel o where o.clubClass = c)")
+    List<Long> findClassIdsWithoutOccupancy();
+
+}
@@ -1,15 +1,68 @@
 package com.example.clubmanager.repository;
 
+import com.example.clubmanager.dto.AvailabilityDTO;
 import com.example.clubmanager.model.ClassSessionModel;
-import com.example.clubmanager.model.ClubClassModel;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @Repository
 public interface ClassSessionRepository extends JpaRepository<ClassSessionModel, Long> {
 
-    ClassSessionModel findByClubClassAndDate(ClubClassModel clubClass, LocalDate date);
+    // Seek on the (class_id, date) unique key, the class itself comes from the ClassCatalog
+    ClassSessionModel findByClubClassIdAndDate(Long classId, LocalDate date);
+
+    // Remaining seats of every session of a class, loaded once per class into the AvailabilityIndex
+    @Query("select new com.example.clubmanager.dto.AvailabilityDTO(s.date, s.capacity - s.bookedCount) " +
+            "from ClassSessionModel s where s.clubClass.id = :classId")
+    List<AvailabilityDTO> findAvailabilityByClassId(@Param("classId") Long classId);
+
+    // Claim one seat atomically; returns 0 when the session is already full
+    @Modifying
+    @Query("update ClassSessionModel s set s.bookedCount = s.bookedCount + 1 " +
+            "where s.id = :sessionId and s.bookedCount < s.capacity")
+    int claimSeat(@Param("sessionId") Long sessionId);
+
+    // Claim a group of seats at once; returns 0 when they do not all fit
+    @Modifying
+    @Query("update ClassSessionModel s set s.bookedCount = s.bookedCount + :seats " +
+            "where s.id = :sessionId and s.bookedCount + :seats <= s.capacity")
+    int claimSeats(@Param("sessionId") Long sessionId, @Param("seats") int seats);
+
+    // Release one seat; the guard keeps a drifted counter from going negative
+    @Modifying
+    @Query("update ClassSessionModel s set s.bookedCount = s.bookedCount - 1 " +
+            "where s.id = :sessionId and s.bookedCount > 0")
+    int releaseSeat(@Param("sessionId") Long sessionId);
+
+    // Release every seat of a session at once, when all of its bookings are cancelled
+    @Modifying
+    @Query("update ClassSessionModel s set s.bookedCount = 0 where s.id = :sessionId")
+    int releaseAllSeats(@Param("sessionId") Long sessionId);
+
+    // Sessions locked so that no seat can be claimed or released until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ClassSessionModel s where s.id = :id")
+    ClassSessionModel lockById(@Param("id") Long id);
+
+    // In date order, the order batches claim the sessions of a class in
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ClassSessionModel s where s.clubClass.id = :classId order by s.date")
+    List<ClassSessionModel> lockByClubClassId(@Param("classId") Long classId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from ClassSessionModel s where s.clubClass.id = :classId and s.date = :date")
+    ClassSessionModel lockByClubClassIdAndDate(@Param("classId") Long classId, @Param("date") LocalDate date);
+
+    // Seats left as committed in the database, not as cached in the persistence context
+    @Query("select s.capacity - s.bookedCount from ClassSessionModel s where s.id = :sessionId")
+    int remainingSeats(@Param("sessionId") Long sessionId);
 
 }
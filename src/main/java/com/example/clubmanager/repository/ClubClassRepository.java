@@ -1,15 +1,25 @@
 package com.example.clubmanager.repository;
 
 import com.example.clubmanager.model.ClubClassModel;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.LocalDate;
 import java.util.List;
 
 @Repository
 public interface ClubClassRepository extends JpaRepository<ClubClassModel, Long> {
-    // Find all classes by name
-    List<ClubClassModel> findByNameEqualsIgnoreCase(String name);
-    ClubClassModel findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(String name, LocalDate startDate, LocalDate endDate);
+    // Find all classes by normalised name (see NameKeys)
+    List<ClubClassModel> findByNameKey(String nameKey);
+
+    // Lock the class row, used to serialise lazy session creation for recurring classes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from ClubClassModel c where c.id = :id")
+    ClubClassModel lockById(@Param("id") Long id);
+
+    @Query("select c.id from ClubClassModel c order by c.id")
+    List<Long> findAllIds();
 }
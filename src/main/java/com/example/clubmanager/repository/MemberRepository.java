@@ -0,0 +1,24 @@
+package com.example.clubmanager.repository;
+
+import com.example.clubmanager.model.MemberModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MemberRepository extends JpaRepository<MemberModel, Long> {
+    // Seek on the unique normalised name (see NameKeys)
+    MemberModel findByNameKey(String nameKey);
+
+    List<MemberModel> findByNameKeyIn(Collection<String> nameKeys);
+
+    // Copy of a member of shard 0 on the shard of a class it books, under the same id
+    @Modifying
+    @Query(value = "insert into member_model (id, name, name_key) values (:id, :name, :nameKey)", nativeQuery = true)
+    int insertCopy(@Param("id") Long id, @Param("name") String name, @Param("nameKey") String nameKey);
+}
@@ -0,0 +1,31 @@
+package com.example.clubmanager.repository;
+
+import com.example.clubmanager.model.WaitlistEntryModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntryModel, Long> {
+
+    WaitlistEntryModel findByClassSessionIdAndMemberId(Long classSessionId, Long memberId);
+
+    // Oldest entry of a session, a seek on the (class_session_id, id) index
+    WaitlistEntryModel findFirstByClassSessionIdOrderByIdAsc(Long classSessionId);
+
+    // 1-based position of an entry: the entries of its session that joined before it, and itself
+    @Query("select count(w) from WaitlistEntryModel w where w.classSessionId = :sessionId and w.id <= :entryId")
+    long positionOf(@Param("sessionId") Long sessionId, @Param("entryId") Long entryId);
+
+    // Take an entry off the queue; returns 0 when a concurrent promotion took it first
+    @Modifying
+    @Query("delete from WaitlistEntryModel w where w.id = :id")
+    int deleteEntry(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from WaitlistEntryModel w where w.classSessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") Long sessionId);
+
+}
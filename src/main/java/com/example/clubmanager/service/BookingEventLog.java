@@ -0,0 +1,51 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.model.BookingEventModel;
+import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.repository.BookingEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/*
+ * Appends to the booking event log, the history from which ProjectionService rebuilds the seat counters and
+ * booking rows. Every method must run in the transaction that makes the change it records, so an event commits
+ * or rolls back together with it. Appends are inserts with pooled ids, sent in the same JDBC batches as the bookings;
+ * the database gives each row its log position, the replay order, as it is inserted.
+ */
+@Service
+public class BookingEventLog {
+
+    private final BookingEventRepository bookingEventRepository;
+
+    @Autowired
+    public BookingEventLog(BookingEventRepository bookingEventRepository) {
+        this.bookingEventRepository = bookingEventRepository;
+    }
+
+    public void classCreated(ClubClassModel clubClass) {
+        bookingEventRepository.save(BookingEventModel.classCreated(clubClass));
+    }
+
+    /*Record bookings that were saved and so have their ids*/
+    public void seatsBooked(List<BookingModel> bookings) {
+        if (!bookings.isEmpty()) {
+            bookingEventRepository.saveAll(bookings.stream().map(BookingEventModel::seatBooked).toList());
+        }
+    }
+
+    public void seatBooked(BookingModel booking) {
+        bookingEventRepository.save(BookingEventModel.seatBooked(booking));
+    }
+
+    public void bookingCancelled(BookingModel booking) {
+        bookingEventRepository.save(BookingEventModel.bookingCancelled(booking));
+    }
+
+    public void sessionCancelled(ClassSessionModel classSession) {
+        bookingEventRepository.save(BookingEventModel.sessionCancelled(classSession));
+    }
+}
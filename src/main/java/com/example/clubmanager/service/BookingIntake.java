@@ -0,0 +1,183 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import com.example.clubmanager.utilities.NameKeys;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Asynchronous booking mode. Bookings are queued per target session and every queue has at most one
+ * writer at a time, which drains it in batches through BookingService.bookClasses. However many clients
+ * pile onto a session, the database sees one transaction at a time for it, and request threads only
+ * enqueue and return.
+ */
+@Service
+public class BookingIntake {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingIntake.class);
+
+    private final BookingService bookingService;
+    private final Executor executor;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration ticketRetention;
+
+    private final ConcurrentMap<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Ticket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @Autowired
+    public BookingIntake(BookingService bookingService,
+                         @Value("${booking.intake.enabled:false}") boolean enabled,
+                         @Value("${booking.intake.writers:4}") int writers,
+                         @Value("${booking.intake.capacity:10000}") int capacity,
+                         @Value("${booking.intake.batch-size:100}") int batchSize,
+                         @Value("${booking.intake.ticket-retention:PT10M}") Duration ticketRetention) {
+        this(bookingService, Executors.newFixedThreadPool(writers), enabled, capacity, batchSize, ticketRetention);
+    }
+
+    BookingIntake(BookingService bookingService, Executor executor, boolean enabled, int capacity, int batchSize,
+                  Duration ticketRetention) {
+        this.bookingService = bookingService;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.ticketRetention = ticketRetention;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /*Queue a booking and return its ticket id, or null when the intake is full*/
+    public String submit(BookingDTO bookingDTO) {
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            return null;
+        }
+
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), bookingDTO);
+        tickets.put(ticket.id, ticket);
+
+        String sessionKey = NameKeys.normalize(bookingDTO.getClassName()) + "|" + bookingDTO.getParticipationDate();
+        SessionQueue queue = queues.computeIfAbsent(sessionKey, key -> new SessionQueue());
+        queue.tickets.add(ticket);
+        schedule(queue);
+        return ticket.id;
+    }
+
+    /*The outcome of a ticket, a "pending" response while it is queued, or null for unknown tickets*/
+    public ApiResponse getStatus(String ticketId) {
+        Ticket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            return null;
+        }
+        ApiResponse outcome = ticket.outcome;
+        return outcome != null ? outcome : new ApiResponse("pending", "Booking is being processed");
+    }
+
+    /*Forget the outcomes nobody asked for within the retention period*/
+    @Scheduled(fixedDelayString = "${booking.intake.purge-interval-ms:60000}")
+    public void purgeTickets() {
+        Instant cutoff = Instant.now().minus(ticketRetention);
+        tickets.values().removeIf(ticket -> ticket.completedAt != null && ticket.completedAt.isBefore(cutoff));
+        // Idle queues are dropped. A submit racing with the removal can briefly give a session two writers,
+        // which the conditional seat claims make safe
+        queues.values().removeIf(queue -> queue.tickets.isEmpty() && !queue.scheduled.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdown();
+        }
+    }
+
+    // Hand the queue to a writer unless one already owns it
+    private void schedule(SessionQueue queue) {
+        if (queue.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(queue));
+        }
+    }
+
+    /*Book one batch of the queue, then yield the writer so that a hot session cannot starve the others*/
+    private void drain(SessionQueue queue) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        Ticket ticket;
+        while (batch.size() < batchSize && (ticket = queue.tickets.poll()) != null) {
+            batch.add(ticket);
+        }
+
+        if (!batch.isEmpty()) {
+            process(batch);
+        }
+
+        // Release ownership, then re-check so a ticket added meanwhile is not left behind
+        queue.scheduled.set(false);
+        if (!queue.tickets.isEmpty()) {
+            schedule(queue);
+        }
+    }
+
+    private void process(List<Ticket> batch) {
+        List<ApiResponse> outcomes;
+        try {
+            outcomes = bookingService.bookClasses(batch.stream().map(ticket -> ticket.booking).toList());
+        } catch (RuntimeException e) {
+            log.error("Booking batch of {} failed", batch.size(), e);
+            ApiResponse failure = new ApiResponse("error", "Booking could not be processed");
+            outcomes = batch.stream().map(ticket -> failure).toList();
+        }
+
+        Instant now = Instant.now();
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(outcomes.get(i), now);
+        }
+        pending.addAndGet(-batch.size());
+    }
+
+    private static final class SessionQueue {
+        private final Queue<Ticket> tickets = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+
+    private static final class Ticket {
+        private final String id;
+        private final BookingDTO booking;
+        private volatile ApiResponse outcome;
+        private volatile Instant completedAt;
+
+        private Ticket(String id, BookingDTO booking) {
+            this.id = id;
+            this.booking = booking;
+        }
+
+        private void complete(ApiResponse outcome, Instant completedAt) {
+            this.outcome = outcome;
+            this.completedAt = completedAt;
+        }
+    }
+}
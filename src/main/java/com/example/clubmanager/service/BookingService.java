@@ -1,5 +1,13 @@
 package com.example.clubmanager.service;
 
+import com.example.clubmanager.cache.AvailabilityIndex;
+import com.example.clubmanager.cache.BookingVersions;
+import com.example.clubmanager.cache.ClassCatalog;
+import com.example.clubmanager.cache.ClassSchedule;
+import com.example.clubmanager.cache.MemberDictionary;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.metrics.BookingMetrics;
+import com.example.clubmanager.metrics.BookingMetrics.Outcome;
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.BookingDTO;
 import com.example.clubmanager.model.BookingModel;
@@ -8,10 +16,20 @@ import com.example.clubmanager.model.ClubClassModel;
 import com.example.clubmanager.repository.BookingRepository;
 import com.example.clubmanager.repository.ClassSessionRepository;
 import com.example.clubmanager.repository.ClubClassRepository;
+import com.example.clubmanager.utilities.NameKeys;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class BookingService {
@@ -19,60 +37,368 @@ public class BookingService {
     private final BookingRepository bookingRepository;
     private final ClassSessionRepository classSessionRepository;
     private final ClubClassRepository clubClassRepository;
+    private final ClassCatalog classCatalog;
+    private final AvailabilityIndex availabilityIndex;
+    private final MemberDictionary memberDictionary;
+    private final OccupancyService occupancyService;
+    private final WaitlistService waitlistService;
+    private final BookingVersions bookingVersions;
+    private final BookingEventLog bookingEventLog;
+    private final BookingMetrics bookingMetrics;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public BookingService(BookingRepository bookingRepository, ClassSessionRepository classSessionRepository, ClubClassRepository clubClassRepository) {
+    public BookingService(BookingRepository bookingRepository, ClassSessionRepository classSessionRepository,
+                          ClubClassRepository clubClassRepository, ClassCatalog classCatalog,
+                          AvailabilityIndex availabilityIndex, MemberDictionary memberDictionary,
+                          OccupancyService occupancyService, WaitlistService waitlistService,
+                          BookingVersions bookingVersions, BookingEventLog bookingEventLog,
+                          BookingMetrics bookingMetrics, Shards shards, PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
         this.classSessionRepository = classSessionRepository;
         this.clubClassRepository = clubClassRepository;
+        this.classCatalog = classCatalog;
+        this.availabilityIndex = availabilityIndex;
+        this.memberDictionary = memberDictionary;
+        this.occupancyService = occupancyService;
+        this.waitlistService = waitlistService;
+        this.bookingVersions = bookingVersions;
+        this.bookingEventLog = bookingEventLog;
+        this.bookingMetrics = bookingMetrics;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     /*Book a class*/
     public ApiResponse bookClass(BookingDTO bookingDTO) {
+        // The whole booking runs on the shard of its class, which is checked first so a rejected booking creates no member
+        int shard = shards.ofClass(bookingDTO.getClassName());
+        shards.run(shard, () -> scheduleOf(bookingDTO.getClassName(), bookingDTO.getParticipationDate(), 1));
+        // Members are resolved before the booking transaction, so creating a new one never holds two connections
+        Long memberId = memberDictionary.resolveId(bookingDTO.getMemberName());
+        return shards.run(shard, () -> {
+            memberDictionary.share(memberId, bookingDTO.getMemberName());
+            return transactionTemplate.execute(status -> book(bookingDTO, memberId));
+        });
+    }
 
-        // Find the class by name (assume class names are not unique)
-        List<ClubClassModel> clubClasses = clubClassRepository.findByNameEqualsIgnoreCase(bookingDTO.getClassName());
-        if (clubClasses.isEmpty()){
-            throw new IllegalArgumentException("Class not found with the given name");
+    private ApiResponse book(BookingDTO bookingDTO, Long memberId) {
+
+        // Find the class session by class name and participation date
+        ClassSessionModel classSession = resolveSession(bookingDTO.getClassName(), bookingDTO.getParticipationDate(), 1);
+
+        // Claim a seat with a single conditional update, so concurrent bookings cannot overbook the session
+        if (classSessionRepository.claimSeat(classSession.getId()) == 0) {
+            if (!bookingDTO.isJoinWaitlist()) {
+                bookingMetrics.record(Outcome.FULL);
+                throw new IllegalArgumentException("Class is full for this date");
+            }
+            if (reclaimSeats(classSession.getId(), 1) == 0) {
+                return waitlist(bookingDTO, memberId, classSession);
+            }
         }
+        seatsClaimed(classSession, 1);
+        occupancyService.seatsClaimed(classSession, 1);
 
-        //Find class  by name and participation date between start and end date of the class
-        ClubClassModel clubClass =
-                clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual
-                        (bookingDTO.getClassName(), bookingDTO.getParticipationDate(), bookingDTO.getParticipationDate());
+        // Save the booking and its event in the same transaction as the seat claim
+        BookingModel booking = toBooking(bookingDTO, memberId, classSession);
+        bookingRepository.save(booking);
+        bookingEventLog.seatBooked(booking);
+        bookingVersions.bookingChanged(memberId, classSession.getDate());
+        bookingMetrics.record(Outcome.SUCCESS);
 
-        if (clubClass == null) {
-            throw new IllegalArgumentException("Class not found for the given participation date");
+        // Return success message, with the id that cancels the booking
+        return bookedResponse(bookingDTO, booking);
+    }
+
+    /*Book a list of classes in one transaction per shard, returning one response per item in request order*/
+    public List<ApiResponse> bookClasses(List<BookingDTO> bookingDTOs) {
+        ApiResponse[] responses = new ApiResponse[bookingDTOs.size()];
+        Long[] memberIds = new Long[bookingDTOs.size()];
+
+        // Items whose class does not run on their date are answered right away, without creating their member
+        Map<Integer, List<Integer>> itemsByShard = new TreeMap<>();
+        List<Integer> bookable = new ArrayList<>();
+        for (int i = 0; i < bookingDTOs.size(); i++) {
+            BookingDTO bookingDTO = bookingDTOs.get(i);
+            int shard = shards.ofClass(bookingDTO.getClassName());
+            try {
+                shards.run(shard, () -> scheduleOf(bookingDTO.getClassName(), bookingDTO.getParticipationDate(), 1));
+            } catch (IllegalArgumentException e) {
+                responses[i] = new ApiResponse("error", e.getMessage());
+                continue;
+            }
+            bookable.add(i);
+            itemsByShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(i);
+        }
+        // New members of the batch are inserted together, the ids are then resolved from the dictionary's cache
+        memberDictionary.createMissing(bookable.stream().map(i -> bookingDTOs.get(i).getMemberName()).toList());
+        for (int i : bookable) {
+            memberIds[i] = memberDictionary.resolveId(bookingDTOs.get(i).getMemberName());
+        }
+        itemsByShard.forEach((shard, items) -> {
+            List<ApiResponse> shardResponses = shards.run(shard, () -> bookOnShard(
+                    items.stream().map(bookingDTOs::get).toList(), items.stream().map(i -> memberIds[i]).toList()));
+            for (int n = 0; n < items.size(); n++) {
+                responses[items.get(n)] = shardResponses.get(n);
+            }
+        });
+        return Arrays.asList(responses);
+    }
+
+    private List<ApiResponse> bookOnShard(List<BookingDTO> bookingDTOs, List<Long> memberIds) {
+        for (int i = 0; i < bookingDTOs.size(); i++) {
+            memberDictionary.share(memberIds.get(i), bookingDTOs.get(i).getMemberName());
+        }
+        return transactionTemplate.execute(status -> bookAll(bookingDTOs, memberIds));
+    }
+
+    private List<ApiResponse> bookAll(List<BookingDTO> bookingDTOs, List<Long> memberIds) {
+        ApiResponse[] responses = new ApiResponse[bookingDTOs.size()];
+
+        // Group the items by target session, so each session is resolved and claimed once
+        Map<String, List<Integer>> itemsBySession = new HashMap<>();
+        for (int i = 0; i < bookingDTOs.size(); i++) {
+            BookingDTO bookingDTO = bookingDTOs.get(i);
+            String sessionKey = NameKeys.normalize(bookingDTO.getClassName()) + "|" + bookingDTO.getParticipationDate();
+            itemsBySession.computeIfAbsent(sessionKey, key -> new ArrayList<>()).add(i);
+        }
+        // Sessions are locked in (class id, date) order whatever the request order, so two batches sharing some of
+        // their sessions cannot deadlock on them; the responses are still written back to the items' positions
+        List<List<Integer>> groups = new ArrayList<>(itemsBySession.values());
+        groups.sort(Comparator.comparingLong((List<Integer> items) -> classIdOf(bookingDTOs.get(items.get(0))))
+                .thenComparing(items -> bookingDTOs.get(items.get(0)).getParticipationDate()));
+
+        // Every session is resolved before the first seat is claimed: creating a session of a recurring class locks
+        // its class, and the class is locked before its sessions everywhere, as in the occupancy and projection rebuilds
+        List<List<Integer>> resolved = new ArrayList<>();
+        List<ClassSessionModel> sessions = new ArrayList<>();
+        for (List<Integer> items : groups) {
+            BookingDTO first = bookingDTOs.get(items.get(0));
+            try {
+                sessions.add(resolveSession(first.getClassName(), first.getParticipationDate(), items.size()));
+                resolved.add(items);
+            } catch (IllegalArgumentException e) {
+                items.forEach(i -> responses[i] = new ApiResponse("error", e.getMessage()));
+            }
+        }
+
+        List<BookingModel> bookings = new ArrayList<>();
+        List<Integer> bookedItems = new ArrayList<>();
+        Map<ClassSessionModel, Integer> claims = new HashMap<>();
+        for (int g = 0; g < resolved.size(); g++) {
+            List<Integer> items = resolved.get(g);
+            ClassSessionModel classSession = sessions.get(g);
+
+            // Seats go to the items in request order, the ones past the claimed count are rejected
+            int claimed = claimSeats(classSession.getId(), items.size());
+            if (claimed < items.size()
+                    && items.subList(claimed, items.size()).stream().anyMatch(i -> bookingDTOs.get(i).isJoinWaitlist())) {
+                claimed += reclaimSeats(classSession.getId(), items.size() - claimed);
+            }
+            seatsClaimed(classSession, claimed);
+            claims.put(classSession, claimed);
+            int full = 0;
+            for (int n = 0; n < items.size(); n++) {
+                BookingDTO bookingDTO = bookingDTOs.get(items.get(n));
+                if (n < claimed) {
+                    bookings.add(toBooking(bookingDTO, memberIds.get(items.get(n)), classSession));
+                    bookedItems.add(items.get(n));
+                    bookingVersions.bookingChanged(memberIds.get(items.get(n)), classSession.getDate());
+                } else if (bookingDTO.isJoinWaitlist()) {
+                    responses[items.get(n)] = waitlist(bookingDTO, memberIds.get(items.get(n)), classSession);
+                } else {
+                    responses[items.get(n)] = new ApiResponse("error", "Class is full for this date");
+                    full++;
+                }
+            }
+            bookingMetrics.record(Outcome.SUCCESS, claimed);
+            bookingMetrics.record(Outcome.FULL, full);
+        }
+
+        // A single saveAll lets Hibernate send the inserts, and those of their events, as JDBC batches
+        bookingRepository.saveAll(bookings);
+        bookingEventLog.seatsBooked(bookings);
+        // Ids are assigned by the save, so the booked items are answered once it is done
+        for (int b = 0; b < bookings.size(); b++) {
+            responses[bookedItems.get(b)] = bookedResponse(bookingDTOs.get(bookedItems.get(b)), bookings.get(b));
+        }
+
+        // Occupancy rows are shared by all sessions of a class and period; updating them last and in a fixed
+        // order keeps batches from deadlocking on them while they hold their session rows
+        claims.entrySet().stream()
+                .sorted(Comparator.comparing((Map.Entry<ClassSessionModel, Integer> claim) -> claim.getKey().getClubClass().getId())
+                        .thenComparing(claim -> claim.getKey().getDate()))
+                .forEach(claim -> occupancyService.seatsClaimed(claim.getKey(), claim.getValue()));
+        return Arrays.asList(responses);
+    }
+
+    /*Cancel a booking; its seat goes to the head of the session's waitlist, or back to the session*/
+    public ApiResponse cancelBooking(Long bookingId) {
+        return shards.run(shards.ofId(bookingId), () -> transactionTemplate.execute(status -> cancel(bookingId)));
+    }
+
+    private ApiResponse cancel(Long bookingId) {
+        BookingModel booking = bookingRepository.findById(bookingId).orElse(null);
+        if (booking == null) {
+            throw new IllegalArgumentException("Booking not found");
         }
 
-        // Find class session for the given date
-        ClassSessionModel classSession = classSessionRepository
-                .findByClubClassAndDate(clubClass, bookingDTO.getParticipationDate());
+        // The session row is locked before the booking row, in the same order as a session-wide cancellation
+        ClassSessionModel classSession = classSessionRepository.lockById(booking.getClassSession().getId());
+        // Only the cancellation whose delete removes the row goes on, so concurrent cancels release the seat once
+        if (bookingRepository.deleteBookingById(bookingId) == 0) {
+            throw new IllegalArgumentException("Booking not found");
+        }
+        bookingEventLog.bookingCancelled(booking);
 
-        if (classSession==null) {
+        bookingVersions.bookingChanged(booking.getMemberId(), booking.getParticipationDate());
+        Long promoted = waitlistService.promote(classSession);
+        if (promoted != null) {
+            bookingVersions.bookingChanged(promoted, classSession.getDate());
+            return new ApiResponse("success", "Booking cancelled, the seat went to the next member on the waitlist.");
+        }
+        // Conditional decrement, so a counter that drifted below the real bookings never goes negative
+        if (classSessionRepository.releaseSeat(classSession.getId()) == 1) {
+            seatsReleased(classSession, 1);
+        }
+        return new ApiResponse("success", "Booking cancelled.");
+    }
+
+    /*Cancel every booking of a class session, e.g. when the class is called off*/
+    public ApiResponse cancelSession(String className, LocalDate date) {
+        return shards.run(shards.ofClass(className), () -> transactionTemplate.execute(status -> cancelAll(className, date)));
+    }
+
+    private ApiResponse cancelAll(String className, LocalDate date) {
+        ClassSchedule schedule = classCatalog.find(NameKeys.normalize(className), date);
+        // Locking the session keeps bookings out until its bookings are gone and its counter is reset
+        ClassSessionModel classSession = schedule == null ? null
+                : classSessionRepository.lockByClubClassIdAndDate(schedule.getId(), date);
+        if (classSession == null) {
             throw new IllegalArgumentException("Class session not found for this date");
         }
 
-        // Check if the session has available capacity
-        if (classSession.getBookedCount() >= clubClass.getCapacity()) {
-            throw new IllegalArgumentException("Class is full for this date");
+        // Set-based: one delete for the bookings, one for the waitlist, one update for the counter
+        int released = classSession.getBookedCount();
+        int cancelled = bookingRepository.deleteBySessionId(classSession.getId());
+        bookingEventLog.sessionCancelled(classSession);
+        waitlistService.clear(classSession.getId());
+        classSessionRepository.releaseAllSeats(classSession.getId());
+        seatsReleased(classSession, released);
+        bookingVersions.bookingsChanged(date);
+        return new ApiResponse("success", "Cancelled " + cancelled + " bookings of " + className + " on " + date + ".");
+    }
+
+    /*Claim up to the given number of seats on a session, returning how many were claimed*/
+    private int claimSeats(Long sessionId, int seats) {
+        // Try the whole group first; when it does not fit, shrink it to the seats left and try again
+        while (seats > 0 && classSessionRepository.claimSeats(sessionId, seats) == 0) {
+            seats = Math.min(seats, classSessionRepository.remainingSeats(sessionId));
+        }
+        return Math.max(seats, 0);
+    }
+
+    /*Claim the seats released since a failed claim, locking the session before anyone joins its waitlist*/
+    private int reclaimSeats(Long sessionId, int seats) {
+        // Cancellations release seats and promote from the waitlist under this lock, so once it is held either a
+        // cancellation has released its seat and it is claimed here, or it comes later and promotes the new entry
+        classSessionRepository.lockById(sessionId);
+        return claimSeats(sessionId, seats);
+    }
+
+    // Keep the availability index in step once the claim commits
+    private void seatsClaimed(ClassSessionModel classSession, int seats) {
+        if (seats > 0) {
+            availabilityIndex.seatsClaimed(classSession.getClubClass().getId(), classSession.getDate(), seats);
+        }
+    }
+
+    // A full session answers with a waitlist position instead of an error
+    private ApiResponse waitlist(BookingDTO bookingDTO, Long memberId, ClassSessionModel classSession) {
+        long position = waitlistService.join(classSession.getId(), memberId);
+        bookingMetrics.record(Outcome.WAITLISTED);
+        return new ApiResponse("waitlisted", "Class is full for this date, member " + bookingDTO.getMemberName() +
+                " is number " + position + " on the waitlist.");
+    }
+
+    // Give released seats back to the availability index once the release commits, and to the occupancy counters now
+    private void seatsReleased(ClassSessionModel classSession, int seats) {
+        if (seats > 0) {
+            availabilityIndex.seatsReleased(classSession.getClubClass().getId(), classSession.getDate(), seats);
+            occupancyService.seatsReleased(classSession, seats);
         }
+    }
 
-        // Create the booking
+    private BookingModel toBooking(BookingDTO bookingDTO, Long memberId, ClassSessionModel classSession) {
         BookingModel booking = new BookingModel();
-        booking.setMemberName(bookingDTO.getMemberName());
+        booking.setMemberId(memberId);
         booking.setParticipationDate(bookingDTO.getParticipationDate());
         booking.setClassSession(classSession);
+        return booking;
+    }
 
-        // Save the booking
-        bookingRepository.save(booking);
+    private ApiResponse bookedResponse(BookingDTO bookingDTO, BookingModel booking) {
+        return new ApiResponse("success", "Member " + bookingDTO.getMemberName() + " booked for "+bookingDTO.getClassName() + " class successfully.",
+                booking.getId());
+    }
 
-        // Increment the booking count for the class session
-        classSession.incrementBookingCount();
-        classSessionRepository.save(classSession);
+    // Class a booking targets according to the catalog; unknown classes sort last, they claim no session
+    private long classIdOf(BookingDTO bookingDTO) {
+        ClassSchedule schedule = classCatalog.find(NameKeys.normalize(bookingDTO.getClassName()), bookingDTO.getParticipationDate());
+        return schedule == null ? Long.MAX_VALUE : schedule.getId();
+    }
 
-        // Return success message
-        return new ApiResponse("success", "Member " + bookingDTO.getMemberName() + " booked for "+bookingDTO.getClassName() + " class successfully.");
+    /*The class running on the date, from the in-memory catalog, reporting which part of the lookup failed; checked
+    before a booking's member is resolved, so it rejects every date no session can be found or created for*/
+    private ClassSchedule scheduleOf(String className, LocalDate participationDate, int bookings) {
+        String classKey = NameKeys.normalize(className);
+        if (!classCatalog.hasClass(classKey)) {
+            bookingMetrics.record(Outcome.NO_CLASS, bookings);
+            throw new IllegalArgumentException("Class not found with the given name");
+        }
+
+        ClassSchedule schedule = classCatalog.find(classKey, participationDate);
+        if (schedule == null) {
+            bookingMetrics.record(Outcome.NO_CLASS, bookings);
+            throw new IllegalArgumentException("Class not found for the given participation date");
+        }
+        // A recurring class has no session on the days it does not recur on, and none is created for them
+        if (schedule.isRecurring() && !schedule.runsOn(participationDate)) {
+            bookingMetrics.record(Outcome.NO_SESSION, bookings);
+            throw new IllegalArgumentException("Class session not found for this date");
+        }
+        return schedule;
     }
-}
 
+    /*Resolve the session to book, reporting which part of the lookup failed for the given number of bookings*/
+    private ClassSessionModel resolveSession(String className, LocalDate participationDate, int bookings) {
+        // The class comes from the in-memory catalog, only the session itself is read from the database
+        ClassSchedule schedule = scheduleOf(className, participationDate, bookings);
+
+        ClassSessionModel classSession = classSessionRepository.findByClubClassIdAndDate(schedule.getId(), participationDate);
+        if (classSession != null) {
+            return classSession;
+        }
+
+        // Recurring classes only get a session row once the first booking for the date arrives
+        if (schedule.isRecurring()) {
+            return materializeSession(schedule, participationDate);
+        }
+        bookingMetrics.record(Outcome.NO_SESSION, bookings);
+        throw new IllegalArgumentException("Class session not found for this date");
+    }
+
+    /*Create the session of a recurring class for the given date, unless a concurrent booking already did*/
+    private ClassSessionModel materializeSession(ClassSchedule schedule, LocalDate date) {
+        // Lock the class row so that the first bookings of a date cannot create two sessions
+        ClubClassModel clubClass = clubClassRepository.lockById(schedule.getId());
+        ClassSessionModel classSession = classSessionRepository.findByClubClassIdAndDate(schedule.getId(), date);
+        if (classSession != null) {
+            return classSession;
+        }
+        return classSessionRepository.saveAndFlush(
+                new ClassSessionModel(clubClass, date, schedule.getStartTime(), schedule.getCapacity()));
+    }
+}
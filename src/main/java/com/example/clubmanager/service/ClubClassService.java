@@ -1,38 +1,66 @@
 package com.example.clubmanager.service;
 
+import com.example.clubmanager.cache.AvailabilityIndex;
+import com.example.clubmanager.cache.ClassCatalog;
+import com.example.clubmanager.cache.ClassSchedule;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.AvailabilityDTO;
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.model.ClassOccupancyModel;
 import com.example.clubmanager.model.ClassSessionModel;
 import com.example.clubmanager.model.ClubClassModel;
 import com.example.clubmanager.repository.ClubClassRepository;
+import com.example.clubmanager.utilities.NameKeys;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class ClubClassService {
 
+    public static final int MAX_AVAILABILITY_DAYS = 366;
+
     private final ClubClassRepository clubClassRepository;
+    private final ClassCatalog classCatalog;
+    private final AvailabilityIndex availabilityIndex;
+    private final BookingEventLog bookingEventLog;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
     @Autowired
-    public ClubClassService(ClubClassRepository clubClassRepository) {
+    public ClubClassService(ClubClassRepository clubClassRepository, ClassCatalog classCatalog,
+                            AvailabilityIndex availabilityIndex, BookingEventLog bookingEventLog,
+                            Shards shards, PlatformTransactionManager transactionManager) {
         this.clubClassRepository = clubClassRepository;
+        this.classCatalog = classCatalog;
+        this.availabilityIndex = availabilityIndex;
+        this.bookingEventLog = bookingEventLog;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /*Create a class, with its sessions, on the shard of its name*/
     public ApiResponse createClass(ClubClassDTO request) {
+        return shards.run(shards.ofClass(request.getName()), () -> create(request));
+    }
+
+    private ApiResponse create(ClubClassDTO request) {
 
         // Validation for start date being in the future
         if (!request.getStartDate().isBefore(request.getEndDate())) {
             return new ApiResponse("error", "Start date must be before end date.");
         }
 
-        // Check if class is already created with overlapping start and end date
-        ClubClassModel clubClassModel =
-                clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual
-                        (request.getName(), request.getEndDate(), request.getStartDate());
+        // Check if class is already created with overlapping start and end date, answered by the in-memory catalog
+        String classKey = NameKeys.normalize(request.getName());
+        ClassSchedule overlapping = classCatalog.findOverlapping(classKey, request.getStartDate(), request.getEndDate());
 
-        if(clubClassModel != null) {
+        if(overlapping != null) {
             return new ApiResponse("error", "Class already exists for the given period");
         }
 
@@ -45,21 +73,53 @@ public class ClubClassService {
                 request.getDuration(),
                 request.getCapacity()
         );
+        clubClass.setRecurrenceDays(ClubClassModel.recurrenceDaysOf(request.getDaysOfWeek()));
+        clubClass.setRecurring(request.isRecurring());
 
-        // Generate the class sessions for each day in the date range
+        // Recurring classes only store their schedule, sessions are created when the first booking of a date arrives
         List<ClassSessionModel> sessions = new ArrayList<>();
-        LocalDate startDate = request.getStartDate();
-        while (!startDate.isAfter(request.getEndDate())) {
-            ClassSessionModel session = new ClassSessionModel(clubClass, startDate, request.getStartTime(), request.getCapacity());
-            sessions.add(session);
-            startDate = startDate.plusDays(1);
+        if (!clubClass.isRecurring()) {
+            // Generate the class sessions for each scheduled day in the date range
+            LocalDate startDate = request.getStartDate();
+            while (!startDate.isAfter(request.getEndDate())) {
+                if (clubClass.runsOn(startDate)) {
+                    ClassSessionModel session = new ClassSessionModel(clubClass, startDate, request.getStartTime(), request.getCapacity());
+                    sessions.add(session);
+                }
+                startDate = startDate.plusDays(1);
+            }
         }
 
-        // Set the sessions to the club class and save it
+        // Set the sessions and the empty occupancy counters to the club class and save it
         clubClass.setSessions(sessions);
-        clubClassRepository.save(clubClass);
+        clubClass.setOccupancy(ClassOccupancyModel.scheduledFor(clubClass));
+        // The class and its creation event commit together
+        transactionTemplate.executeWithoutResult(status -> {
+            clubClassRepository.save(clubClass);
+            bookingEventLog.classCreated(clubClass);
+        });
+        classCatalog.refresh(classKey);
 
         // Return success message
         return new ApiResponse("success", "Class " + request.getName() + " created successfully.");
     }
+
+    /*Remaining seats of a class for every date from..to, served from the in-memory availability index*/
+    public List<AvailabilityDTO> getAvailability(String className, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_AVAILABILITY_DAYS) {
+            throw new IllegalArgumentException("Availability can be requested for at most " + MAX_AVAILABILITY_DAYS + " days");
+        }
+
+        String classKey = NameKeys.normalize(className);
+        // Classes missing from the index are loaded from their shard
+        return shards.run(shards.ofClass(className), () -> {
+            if (!classCatalog.hasClass(classKey)) {
+                throw new IllegalArgumentException("Class not found with the given name");
+            }
+            return availabilityIndex.getAvailability(classKey, from, to);
+        });
+    }
 }
@@ -0,0 +1,291 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.dto.ImportReportDTO;
+import com.example.clubmanager.dto.RejectedLineDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import com.example.clubmanager.utilities.CsvReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.constraints.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Bulk import of classes and bookings from CSV files, e.g. when a club moves onto the system. Files are read
+ * one record at a time, rows are checked against the same rules as the JSON endpoints, except that dates may lie
+ * in the past, and bookings are written in chunks through BookingService.bookClasses: one transaction and
+ * batched inserts per chunk, with sessions resolved through the class catalog and members through the dictionary.
+ */
+@Service
+public class ImportService {
+
+    public static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final int PROGRESS_EVERY_ROWS = 100_000;
+
+    private static final Logger log = LoggerFactory.getLogger(ImportService.class);
+
+    private final BookingService bookingService;
+    private final ClubClassService clubClassService;
+    private final Validator validator;
+    private final int chunkSize;
+
+    @Autowired
+    public ImportService(BookingService bookingService, ClubClassService clubClassService, Validator validator,
+                         @Value("${import.chunk-size:1000}") int chunkSize) {
+        this.bookingService = bookingService;
+        this.clubClassService = clubClassService;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    /*Import bookings from a CSV file with the columns className, memberName and participationDate*/
+    public ImportReportDTO importBookings(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        Map<String, Integer> columns = readHeader(csv, "className", "memberName", "participationDate");
+        Run run = new Run("booking");
+
+        List<BookingDTO> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        List<String> fields;
+        while ((fields = next(csv, run)) != null) {
+            if (isBlank(fields)) {
+                continue;
+            }
+            run.rows++;
+            BookingDTO booking;
+            try {
+                booking = new BookingDTO(value(fields, columns, "className"), value(fields, columns, "memberName"),
+                        parse(value(fields, columns, "participationDate"), LocalDate::parse, "participationDate"));
+            } catch (IllegalArgumentException e) {
+                run.reject(csv.getLine(), e.getMessage());
+                continue;
+            }
+            String errorMessage = validate(booking);
+            if (errorMessage != null) {
+                run.reject(csv.getLine(), errorMessage);
+                continue;
+            }
+
+            chunk.add(booking);
+            chunkLines.add(csv.getLine());
+            if (chunk.size() == chunkSize) {
+                book(chunk, chunkLines, run);
+                chunk = new ArrayList<>(chunkSize);
+                chunkLines = new ArrayList<>(chunkSize);
+            }
+        }
+        book(chunk, chunkLines, run);
+        return run.finish();
+    }
+
+    /*Import classes from a CSV file with the columns name, startDate, endDate, startTime, duration and capacity,
+    and optionally daysOfWeek (e.g. MONDAY;THURSDAY) and recurring*/
+    public ImportReportDTO importClasses(Reader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        Map<String, Integer> columns = readHeader(csv, "name", "startDate", "endDate", "startTime", "duration", "capacity");
+        Run run = new Run("class");
+
+        List<String> fields;
+        while ((fields = next(csv, run)) != null) {
+            if (isBlank(fields)) {
+                continue;
+            }
+            run.rows++;
+            ClubClassDTO clubClass;
+            try {
+                clubClass = new ClubClassDTO(value(fields, columns, "name"),
+                        parse(value(fields, columns, "startDate"), LocalDate::parse, "startDate"),
+                        parse(value(fields, columns, "endDate"), LocalDate::parse, "endDate"),
+                        parse(value(fields, columns, "startTime"), LocalTime::parse, "startTime"),
+                        number(value(fields, columns, "duration"), "duration"),
+                        number(value(fields, columns, "capacity"), "capacity"),
+                        parse(value(fields, columns, "daysOfWeek"), ImportService::parseDays, "daysOfWeek"),
+                        Boolean.parseBoolean(value(fields, columns, "recurring")));
+            } catch (IllegalArgumentException e) {
+                run.reject(csv.getLine(), e.getMessage());
+                continue;
+            }
+            String errorMessage = validate(clubClass);
+            if (errorMessage != null) {
+                run.reject(csv.getLine(), errorMessage);
+                continue;
+            }
+
+            // Classes are few and carry their sessions, so each one is created in its own transaction
+            ApiResponse response;
+            try {
+                response = clubClassService.createClass(clubClass);
+            } catch (IllegalArgumentException e) {
+                response = new ApiResponse("error", e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Import of class {} failed", clubClass.getName(), e);
+                response = new ApiResponse("error", "Class could not be processed");
+            }
+            run.record(csv.getLine(), response);
+        }
+        return run.finish();
+    }
+
+    // Book a chunk in one transaction; a chunk that fails as a whole rejects all of its lines
+    private void book(List<BookingDTO> chunk, List<Long> chunkLines, Run run) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<ApiResponse> responses;
+        try {
+            responses = bookingService.bookClasses(chunk);
+        } catch (RuntimeException e) {
+            log.error("Import chunk of {} bookings failed", chunk.size(), e);
+            ApiResponse failure = new ApiResponse("error", "Booking could not be processed");
+            responses = chunk.stream().map(booking -> failure).toList();
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            run.record(chunkLines.get(i), responses.get(i));
+        }
+    }
+
+    // A record that cannot be read, such as an unterminated quote, runs to the end of the file: it is rejected and
+    // the import stops there, keeping the rows before it
+    private static List<String> next(CsvReader csv, Run run) throws IOException {
+        try {
+            return csv.next();
+        } catch (IllegalArgumentException e) {
+            run.rows++;
+            run.reject(csv.getLine(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Columns are matched by name, in any order and case; the required ones must be present
+    private static Map<String, Integer> readHeader(CsvReader csv, String... required) throws IOException {
+        List<String> header = csv.next();
+        if (header == null) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Spreadsheet exports often start with a byte order mark
+            String name = i == 0 ? header.get(i).replace("\uFEFF", "") : header.get(i);
+            columns.putIfAbsent(name.trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : required) {
+            if (!columns.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Missing column: " + column);
+            }
+        }
+        return columns;
+    }
+
+    // Trimmed value of a column, null when the column or the value is missing
+    private static String value(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Missing values stay null and are reported by the validator
+    private static <T> T parse(String value, Function<String, T> parser, String column) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid " + column + ": " + value);
+        }
+    }
+
+    // Numbers are primitives in the DTO, so a missing one is reported here
+    private static int number(String value, String column) {
+        if (value == null) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+        return parse(value, Integer::parseInt, column);
+    }
+
+    private static Set<DayOfWeek> parseDays(String value) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (String day : value.split("[;\\s]+")) {
+            days.add(DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT)));
+        }
+        return days;
+    }
+
+    private static boolean isBlank(List<String> fields) {
+        return fields.size() == 1 && fields.get(0).isBlank();
+    }
+
+    // The DTO rules, except that imported history may lie in the past
+    private <T> String validate(T dto) {
+        Set<ConstraintViolation<T>> violations = validator.validate(dto);
+        String errorMessage = violations.stream()
+                .filter(violation -> !(violation.getConstraintDescriptor().getAnnotation() instanceof Future))
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining(", "));
+        return errorMessage.isEmpty() ? null : errorMessage;
+    }
+
+    /*Counters of one import, logged as it progresses*/
+    private static final class Run {
+        private final String kind;
+        private final long startedAt = System.nanoTime();
+        private final List<RejectedLineDTO> rejected = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long rejectedCount;
+
+        private Run(String kind) {
+            this.kind = kind;
+        }
+
+        private void record(long line, ApiResponse response) {
+            if ("success".equals(response.getStatus())) {
+                imported++;
+                if ((imported + rejectedCount) % PROGRESS_EVERY_ROWS == 0) {
+                    log.info("Import: {} {} rows processed, {} rejected", imported + rejectedCount, kind, rejectedCount);
+                }
+            } else {
+                reject(line, response.getMessage());
+            }
+        }
+
+        private void reject(long line, String message) {
+            rejectedCount++;
+            if (rejected.size() < MAX_REPORTED_REJECTIONS) {
+                rejected.add(new RejectedLineDTO(line, message));
+            }
+        }
+
+        private ImportReportDTO finish() {
+            long millis = Math.max((System.nanoTime() - startedAt) / 1_000_000, 1);
+            log.info("Import: {} of {} {} rows imported in {} ms ({} rows/s), {} rejected",
+                    imported, rows, kind, millis, rows * 1000 / millis, rejectedCount);
+            return new ImportReportDTO(rows, imported, rejectedCount, rejected);
+        }
+    }
+}
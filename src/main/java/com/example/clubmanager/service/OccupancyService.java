@@ -0,0 +1,192 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.OccupancyDTO;
+import com.example.clubmanager.model.ClassOccupancyModel;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.model.OccupancyPeriod;
+import com.example.clubmanager.repository.ClassOccupancyRepository;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import com.example.clubmanager.repository.ClubClassRepository;
+import com.example.clubmanager.utilities.NameKeys;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * Occupancy reporting per class and week or month. The counters are created with the class and advanced by
+ * the booking transaction itself, so reports read one row per class and period instead of grouping bookings.
+ * The rebuild recounts them from the session rows, for classes created before reporting or after manual fixes.
+ */
+@Service
+public class OccupancyService {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyService.class);
+
+    private final ClassOccupancyRepository classOccupancyRepository;
+    private final ClubClassRepository clubClassRepository;
+    private final ClassSessionRepository classSessionRepository;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    // Read-only transactions, served by the read replica when there is one
+    private final TransactionTemplate readOnly;
+
+    @Autowired
+    public OccupancyService(ClassOccupancyRepository classOccupancyRepository, ClubClassRepository clubClassRepository,
+                            ClassSessionRepository classSessionRepository, Shards shards,
+                            PlatformTransactionManager transactionManager) {
+        this.classOccupancyRepository = classOccupancyRepository;
+        this.clubClassRepository = clubClassRepository;
+        this.classSessionRepository = classSessionRepository;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /*Count seats claimed on a session; must run in the transaction that claimed them*/
+    public void seatsClaimed(ClassSessionModel classSession, int seats) {
+        if (seats > 0) {
+            LocalDate date = classSession.getDate();
+            classOccupancyRepository.addBookedSeats(classSession.getClubClass().getId(), classSession.getId(),
+                    OccupancyPeriod.WEEK.startOf(date), OccupancyPeriod.MONTH.startOf(date), seats);
+        }
+    }
+
+    /*Count seats released on a session; must run in the transaction that released them*/
+    public void seatsReleased(ClassSessionModel classSession, int seats) {
+        if (seats > 0) {
+            LocalDate date = classSession.getDate();
+            classOccupancyRepository.removeBookedSeats(classSession.getClubClass().getId(), classSession.getId(),
+                    OccupancyPeriod.WEEK.startOf(date), OccupancyPeriod.MONTH.startOf(date), seats);
+        }
+    }
+
+    /*Occupancy of every class, or of the named one, for the weeks or months overlapping from..to*/
+    public List<OccupancyDTO> getOccupancy(String period, LocalDate from, LocalDate to, String className) {
+        OccupancyPeriod periodType = parsePeriod(period);
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date must not be after to date");
+        }
+        if (className != null) {
+            String nameKey = NameKeys.normalize(className);
+            return shards.run(shards.ofClass(className), () -> readOnly.execute(status ->
+                    classOccupancyRepository.findOccupancyByNameKey(periodType, periodType.startOf(from), to, nameKey)));
+        }
+
+        // Every class of a name is on one shard, so the rows of all shards only need to be put back in order
+        List<List<OccupancyDTO>> byShard = shards.fanOut(shard -> readOnly.execute(status ->
+                classOccupancyRepository.findOccupancy(periodType, periodType.startOf(from), to)));
+        if (byShard.size() == 1) {
+            return byShard.get(0);
+        }
+        List<OccupancyDTO> occupancy = new ArrayList<>();
+        byShard.forEach(occupancy::addAll);
+        occupancy.sort(Comparator.comparing((OccupancyDTO row) -> NameKeys.normalize(row.getClassName()))
+                .thenComparing(OccupancyDTO::getPeriodStart));
+        return occupancy;
+    }
+
+    /*Recount the occupancy of every class, one transaction per class, returning the number of classes*/
+    public int rebuild() {
+        List<Long> classIds = allShards(clubClassRepository::findAllIds);
+        classIds.forEach(this::rebuild);
+        return classIds.size();
+    }
+
+    // Off unless reporting.occupancy.rebuild-cron is set
+    @Scheduled(cron = "${reporting.occupancy.rebuild-cron:-}")
+    public void scheduledRebuild() {
+        log.info("Rebuilt the occupancy of {} classes", rebuild());
+    }
+
+    // Classes that have no counters yet get them once the application is up
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        List<Long> classIds = allShards(classOccupancyRepository::findClassIdsWithoutOccupancy);
+        if (!classIds.isEmpty()) {
+            classIds.forEach(this::rebuild);
+            log.info("Created the occupancy of {} classes", classIds.size());
+        }
+    }
+
+    void rebuild(Long classId) {
+        shards.run(shards.ofId(classId), () -> transactionTemplate.executeWithoutResult(status -> recount(classId)));
+    }
+
+    // Class ids of every shard
+    private List<Long> allShards(Supplier<List<Long>> query) {
+        List<Long> classIds = new ArrayList<>();
+        shards.fanOut(shard -> query.get()).forEach(classIds::addAll);
+        return classIds;
+    }
+
+    private void recount(Long classId) {
+        // Locks are taken in the order of the booking path: the class, which new sessions of recurring classes
+        // take, then the sessions, which every claim takes, then the counters. Claims that ran before the counters
+        // existed have committed once the sessions are locked, so they are read below; later claims wait and then
+        // find the counters. Locking only the counters missed claims of classes that had none yet.
+        ClubClassModel clubClass = clubClassRepository.lockById(classId);
+        if (clubClass == null) {
+            return;
+        }
+        List<ClassSessionModel> sessions = classSessionRepository.lockByClubClassId(classId);
+        List<ClassOccupancyModel> rows = classOccupancyRepository.lockByClassId(classId);
+
+        Map<String, ClassOccupancyModel> expected = new HashMap<>();
+        for (ClassOccupancyModel row : ClassOccupancyModel.scheduledFor(clubClass)) {
+            expected.put(key(row.getPeriodType(), row.getPeriodStart()), row);
+        }
+        for (ClassSessionModel session : sessions) {
+            for (OccupancyPeriod periodType : OccupancyPeriod.values()) {
+                ClassOccupancyModel row = expected.get(key(periodType, periodType.startOf(session.getDate())));
+                if (row != null) {
+                    row.setBookedCount(row.getBookedCount() + session.getBookedCount());
+                    row.setFullSessions(row.getFullSessions() + (session.getBookedCount() >= session.getCapacity() ? 1 : 0));
+                }
+            }
+        }
+
+        // Update the rows in place, add missing periods and drop the ones the schedule no longer has
+        for (ClassOccupancyModel row : rows) {
+            ClassOccupancyModel counted = expected.remove(key(row.getPeriodType(), row.getPeriodStart()));
+            if (counted == null) {
+                classOccupancyRepository.delete(row);
+            } else {
+                row.setSessions(counted.getSessions());
+                row.setCapacity(counted.getCapacity());
+                row.setBookedCount(counted.getBookedCount());
+                row.setFullSessions(counted.getFullSessions());
+            }
+        }
+        classOccupancyRepository.saveAll(expected.values());
+    }
+
+    private static String key(OccupancyPeriod periodType, LocalDate periodStart) {
+        return periodType + "|" + periodStart;
+    }
+
+    private static OccupancyPeriod parsePeriod(String period) {
+        try {
+            return OccupancyPeriod.valueOf(period.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Period must be week or month");
+        }
+    }
+}
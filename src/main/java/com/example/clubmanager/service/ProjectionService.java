@@ -0,0 +1,205 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.cache.AvailabilityIndex;
+import com.example.clubmanager.cache.BookingVersions;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.BookingEventDTO;
+import com.example.clubmanager.metrics.StatementCounter;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.repository.BookingEventRepository;
+import com.example.clubmanager.repository.BookingRepository;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import com.example.clubmanager.repository.ClubClassRepository;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/*
+ * Rebuilds the read models of the booking event log: the seat counters of the sessions and the booking rows that
+ * searches read, and from them the occupancy counters and the availability index. Classes are replayed in
+ * parallel, each in its own transaction that locks only its class and sessions, so bookings of every other
+ * class go on while a rebuild runs.
+ */
+@Service
+public class ProjectionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectionService.class);
+    private static final int MAX_LOGGED_UNLOGGED_IDS = 20;
+
+    private final BookingEventRepository bookingEventRepository;
+    private final BookingRepository bookingRepository;
+    private final ClassSessionRepository classSessionRepository;
+    private final ClubClassRepository clubClassRepository;
+    private final OccupancyService occupancyService;
+    private final AvailabilityIndex availabilityIndex;
+    private final BookingVersions bookingVersions;
+    private final Shards shards;
+    private final TransactionTemplate transactionTemplate;
+    private final int threads;
+
+    @Autowired
+    public ProjectionService(BookingEventRepository bookingEventRepository, BookingRepository bookingRepository,
+                             ClassSessionRepository classSessionRepository, ClubClassRepository clubClassRepository,
+                             OccupancyService occupancyService, AvailabilityIndex availabilityIndex,
+                             BookingVersions bookingVersions, Shards shards, PlatformTransactionManager transactionManager,
+                             @Value("${projections.rebuild-threads:4}") int threads) {
+        this.bookingEventRepository = bookingEventRepository;
+        this.bookingRepository = bookingRepository;
+        this.classSessionRepository = classSessionRepository;
+        this.clubClassRepository = clubClassRepository;
+        this.occupancyService = occupancyService;
+        this.availabilityIndex = availabilityIndex;
+        this.bookingVersions = bookingVersions;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.threads = threads;
+    }
+
+    /*Replay the log of every class and correct the read models that drifted from it; booking rows without events
+    are reported, and only deleted when asked to*/
+    public ApiResponse rebuild(boolean deleteUnlogged) {
+        List<Long> classIds = new ArrayList<>();
+        shards.fanOut(shard -> clubClassRepository.findAllIds()).forEach(classIds::addAll);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, classIds.size())));
+        int sessions = 0;
+        int bookings = 0;
+        int unlogged = 0;
+        int failed = 0;
+        try {
+            List<Future<Corrections>> results = new ArrayList<>();
+            // The replays count their statements as those of the rebuild request
+            AtomicInteger statements = StatementCounter.current();
+            for (Long classId : classIds) {
+                results.add(executor.submit(() -> StatementCounter.countingOn(statements, () -> rebuild(classId, deleteUnlogged))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    Corrections corrections = results.get(i).get();
+                    sessions += corrections.sessions;
+                    bookings += corrections.bookings;
+                    unlogged += corrections.unlogged;
+                } catch (ExecutionException e) {
+                    // Typically a lock timeout against a batch holding sessions of several classes; a rerun catches up
+                    log.warn("Rebuilding the projections of class {} failed", classIds.get(i), e.getCause());
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Projection rebuild interrupted", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        log.info("Rebuilt the projections of {} classes: {} session counters and {} bookings corrected, {} booking rows " +
+                "without events {}, {} failed", classIds.size() - failed, sessions, bookings, unlogged,
+                deleteUnlogged ? "deleted" : "kept", failed);
+        return new ApiResponse(failed == 0 ? "success" : "error", "Projections of " + (classIds.size() - failed) +
+                " classes rebuilt, " + sessions + " session counters and " + bookings + " bookings corrected, " +
+                unlogged + " booking rows without events " + (deleteUnlogged ? "deleted" : "kept") +
+                (failed == 0 ? "." : ", " + failed + " classes failed."));
+    }
+
+    Corrections rebuild(Long classId, boolean deleteUnlogged) {
+        // The log and the read models of a class are on its shard
+        return shards.run(shards.ofId(classId), () -> {
+            Corrections corrections = transactionTemplate.execute(status -> replay(classId, deleteUnlogged));
+            // The occupancy counters are recounted from the corrected session rows, under their own lock
+            if (corrections.sessions > 0) {
+                occupancyService.rebuild(classId);
+            }
+            return corrections;
+        });
+    }
+
+    private Corrections replay(Long classId, boolean deleteUnlogged) {
+        Corrections corrections = new Corrections();
+        // Bookings and cancellations lock their session before appending, and new sessions lock their class, so
+        // once both are held every event of the class is committed and no new one can be appended. The class is
+        // locked before its sessions, the order in which bookings, batches and the occupancy recount take them.
+        if (clubClassRepository.lockById(classId) == null) {
+            return corrections;
+        }
+        List<ClassSessionModel> sessions = classSessionRepository.lockByClubClassId(classId);
+
+        // Fold the log into the bookings that are live at its end
+        Map<Long, BookingEventDTO> live = new HashMap<>();
+        try (Stream<BookingEventDTO> events = bookingEventRepository.streamByClassId(classId)) {
+            events.forEach(event -> apply(live, event));
+        }
+
+        // Booking rows without events come from a write that bypassed the log; they are only deleted when asked to,
+        // otherwise they keep their seats and are reported
+        Set<Long> existing = new HashSet<>(bookingRepository.findIdsByClassId(classId));
+        List<Long> unlogged = existing.stream().filter(id -> !live.containsKey(id)).toList();
+        corrections.unlogged = unlogged.size();
+        Map<Long, Integer> booked = new HashMap<>();
+        live.values().forEach(booking -> booked.merge(booking.getClassSessionId(), 1, Integer::sum));
+        if (!unlogged.isEmpty()) {
+            if (deleteUnlogged) {
+                corrections.bookings += bookingRepository.deleteBookingsByIdIn(unlogged);
+            } else {
+                log.warn("Class {} has {} booking rows without events, kept: {}", classId, unlogged.size(),
+                        unlogged.stream().limit(MAX_LOGGED_UNLOGGED_IDS).toList());
+                bookingRepository.findSessionIdsByIdIn(unlogged).forEach(sessionId -> booked.merge(sessionId, 1, Integer::sum));
+            }
+        }
+        for (ClassSessionModel session : sessions) {
+            int count = booked.getOrDefault(session.getId(), 0);
+            if (session.getBookedCount() != count) {
+                session.setBookedCount(count);
+                corrections.sessions++;
+            }
+        }
+
+        // Bookings of the log without a row are restored
+        for (BookingEventDTO booking : live.values()) {
+            if (!existing.contains(booking.getBookingId())) {
+                corrections.bookings += bookingRepository.insertBooking(booking.getBookingId(),
+                        booking.getClassSessionId(), booking.getMemberId(), booking.getSessionDate());
+            }
+        }
+
+        if (corrections.sessions > 0) {
+            availabilityIndex.invalidate(classId);
+        }
+        if (corrections.bookings > 0) {
+            sessions.forEach(session -> bookingVersions.bookingsChanged(session.getDate()));
+        }
+        return corrections;
+    }
+
+    private static void apply(Map<Long, BookingEventDTO> live, BookingEventDTO event) {
+        switch (event.getEventType()) {
+            case SEAT_BOOKED -> live.put(event.getBookingId(), event);
+            case BOOKING_CANCELLED -> live.remove(event.getBookingId());
+            case SESSION_CANCELLED -> live.values().removeIf(booking -> booking.getClassSessionId().equals(event.getClassSessionId()));
+            case CLASS_CREATED -> {
+            }
+        }
+    }
+
+    static final class Corrections {
+        int sessions;
+        int bookings;
+        int unlogged;  // Booking rows without events, deleted or kept
+    }
+}
@@ -1,36 +1,235 @@
 package com.example.clubmanager.service;
 
-import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.cache.BookingVersions;
+import com.example.clubmanager.cache.MemberDictionary;
+import com.example.clubmanager.cache.MemberNameIndex;
+import com.example.clubmanager.cache.SearchResultCache;
+import com.example.clubmanager.datasource.ReadRouting;
+import com.example.clubmanager.datasource.ReplicationLag;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingPageDTO;
+import com.example.clubmanager.dto.BookingRowDTO;
 import com.example.clubmanager.repository.BookingRepository;
+import com.example.clubmanager.utilities.BookingCursor;
+import com.example.clubmanager.utilities.NameKeys;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class SearchService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 500;
+    // How many of the best matching members a member prefix search returns bookings for
+    public static final int MEMBER_MATCHES = 10;
+
+    // Member filter for names nobody has booked with; no member has this id, so nothing matches
+    static final long UNKNOWN_MEMBER = -1L;
+
+    // Bounds standing in for an open start or end date, so the queries always get a plain date range
+    static final LocalDate FIRST_DATE = LocalDate.of(1, 1, 1);
+    static final LocalDate LAST_DATE = LocalDate.of(9999, 12, 31);
+
+    private static final Comparator<BookingDTO> BY_DATE = Comparator.comparing(BookingDTO::getParticipationDate);
+    private static final Comparator<BookingRowDTO> BY_DATE_AND_ID =
+            Comparator.comparing(BookingRowDTO::getParticipationDate).thenComparing(BookingRowDTO::getId);
+
     private final BookingRepository bookingRepository;
+    private final MemberDictionary memberDictionary;
+    private final MemberNameIndex memberNameIndex;
+    private final BookingVersions bookingVersions;
+    private final SearchResultCache searchResultCache;
+    private final Shards shards;
+    private final ObjectProvider<ReplicationLag> replicationLag;
+    // Read-only transactions, served by the read replica when there is one
+    private final TransactionTemplate readOnly;
 
     @Autowired
-    public SearchService(BookingRepository bookingRepository) {
+    public SearchService(BookingRepository bookingRepository, MemberDictionary memberDictionary,
+                         MemberNameIndex memberNameIndex, BookingVersions bookingVersions,
+                         SearchResultCache searchResultCache, Shards shards,
+                         ObjectProvider<ReplicationLag> replicationLag, PlatformTransactionManager transactionManager) {
         this.bookingRepository = bookingRepository;
+        this.memberDictionary = memberDictionary;
+        this.memberNameIndex = memberNameIndex;
+        this.bookingVersions = bookingVersions;
+        this.searchResultCache = searchResultCache;
+        this.shards = shards;
+        this.replicationLag = replicationLag;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /*Version of the bookings a search can return; it changes whenever one of them is booked or cancelled*/
+    public String searchVersion(String memberName, Long memberId, LocalDate startDate, LocalDate endDate) {
+        return version(memberFilter(memberName, memberId), startDate, endDate);
+    }
+
+    /*Search for bookings, by member name or member id, or by date range; unbounded searches page instead*/
+    public List<BookingDTO> searchBookings(String memberName, Long memberId, LocalDate startDate, LocalDate endDate) {
+        Long member = memberFilter(memberName, memberId);
+        // A list of every booking grows with the table, those searches go through searchBookingPage instead
+        if (member == null && (startDate == null || endDate == null)) {
+            throw new IllegalArgumentException("Search by member or by start and end date, or page with limit and cursor");
+        }
+
+        // The version is read before the query, so a result is never cached under a version newer than its data
+        String version = version(member, startDate, endDate);
+        List<BookingDTO> cached = searchResultCache.get(member, startDate, endDate, version);
+        if (cached != null) {
+            return cached;
+        }
+        // Every shard is searched in parallel, their results merged in date order
+        List<BookingDTO> bookings = merge(shards.fanOut(shard -> readOnly.execute(status ->
+                findBookings(member, startDate, endDate))), BY_DATE);
+        searchResultCache.put(member, startDate, endDate, version, bookings);
+        return bookings;
     }
 
-    /*Search for bookings*/
-    public List<BookingModel> searchBookings(String memberName, LocalDate startDate, LocalDate endDate) {
-        if(memberName != null && startDate != null && endDate != null) {
-            return bookingRepository.findByMemberNameEqualsIgnoreCaseAndParticipationDateBetween
-                    (memberName, startDate, endDate);
-        } else if(memberName != null) {
-            return bookingRepository.findByMemberNameEqualsIgnoreCase(memberName);
-        } else if(startDate != null && endDate != null) {
-            return bookingRepository.findByParticipationDateBetween(startDate, endDate);
+    private List<BookingDTO> findBookings(Long member, LocalDate startDate, LocalDate endDate) {
+        if(member != null && startDate != null && endDate != null) {
+            return bookingRepository.findBookingsByMemberIdAndParticipationDateBetween
+                    (member, startDate, endDate);
+        } else if(member != null) {
+            return bookingRepository.findBookingsByMemberId(member);
         } else {
-            return bookingRepository.findAll();
+            return bookingRepository.findBookingsByParticipationDateBetween(startDate, endDate);
         }
     }
 
-}
+    /*Bookings of the members best matching a partial or misspelt name, best match first, then by date*/
+    public List<BookingDTO> searchBookingsByMemberPrefix(String memberPrefix, LocalDate startDate, LocalDate endDate) {
+        List<Long> memberIds = memberNameIndex.search(memberPrefix, MEMBER_MATCHES);
+        if (memberIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<String, Integer> rankByKey = new HashMap<>();
+        for (int i = 0; i < memberIds.size(); i++) {
+            rankByKey.putIfAbsent(memberNameIndex.keyOf(memberIds.get(i)), i);
+        }
+        // The query and the merge return date order; the stable sort keeps it within each member
+        return merge(shards.fanOut(shard -> readOnly.execute(status ->
+                        bookingRepository.findBookingsByMemberIdIn(memberIds, from(startDate), to(endDate)))), BY_DATE).stream()
+                .sorted(Comparator.comparingInt(booking ->
+                        rankByKey.getOrDefault(NameKeys.normalize(booking.getMemberName()), memberIds.size())))
+                .toList();
+    }
+
+    /*Search one page of bookings in (participationDate, id) order, starting after the given cursor*/
+    public BookingPageDTO searchBookingPage(String memberName, Long memberId, LocalDate startDate, LocalDate endDate,
+                                            String cursor, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        BookingCursor after = cursor == null ? null : BookingCursor.parse(cursor);
+
+        // Read one row more than the page size to know whether another page follows, from every shard; ids are
+        // unique across shards, so the merged (participationDate, id) order continues from the cursor on each of them
+        Long member = memberFilter(memberName, memberId);
+        // Without a cursor, or with one before the start date, the page starts with the first booking of that date
+        boolean fromCursor = after != null && !after.getParticipationDate().isBefore(from(startDate));
+        LocalDate afterDate = fromCursor ? after.getParticipationDate() : from(startDate);
+        long afterId = fromCursor ? after.getId() : Long.MIN_VALUE;
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<BookingRowDTO> rows = merge(shards.fanOut(shard -> readOnly.execute(status -> member == null
+                ? bookingRepository.findPageAfter(afterDate, afterId, to(endDate), page)
+                : bookingRepository.findPageAfterByMemberId(member, afterDate, afterId, to(endDate), page))),
+                BY_DATE_AND_ID);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            BookingRowDTO last = rows.get(pageSize - 1);
+            nextCursor = new BookingCursor(last.getParticipationDate(), last.getId()).toString();
+        }
+        return new BookingPageDTO(rows.stream().map(BookingRowDTO::toBookingDTO).toList(), nextCursor);
+    }
+
+    /*Hand every matching booking to the consumer as it is read from the database cursors, in date order*/
+    public void streamBookings(String memberName, Long memberId, LocalDate startDate, LocalDate endDate,
+                               Consumer<BookingDTO> consumer) {
+        Long member = memberFilter(memberName, memberId);
+        shards.mergeOrdered(BY_DATE, (shard, rows) -> readOnly.executeWithoutResult(status -> {
+            try (Stream<BookingDTO> bookings = member == null
+                    ? bookingRepository.streamBookings(from(startDate), to(endDate))
+                    : bookingRepository.streamBookingsByMemberId(member, from(startDate), to(endDate))) {
+                bookings.forEach(rows);
+            }
+        }), consumer);
+    }
+
+    // Results of a single shard as they are, those of several merged into the given order
+    private static <T> List<T> merge(List<List<T>> results, Comparator<? super T> order) {
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        List<T> merged = new ArrayList<>();
+        results.forEach(merged::addAll);
+        merged.sort(order);
+        return merged;
+    }
+
+    private static LocalDate from(LocalDate startDate) {
+        return startDate == null ? FIRST_DATE : startDate;
+    }
+
+    private static LocalDate to(LocalDate endDate) {
+        return endDate == null ? LAST_DATE : endDate;
+    }
 
+    // Member searches depend on the member's version, date range searches on their months, others on every booking.
+    // Versions count primary commits. A replica that has a heartbeat stamped after the last change of the version
+    // has that change too, and its results share the plain version. Until then its results are also keyed by the
+    // heartbeat it has, so they are read again once it applies more. Requests that read their writes read the
+    // primary and keep the plain version.
+    private String version(Long member, LocalDate startDate, LocalDate endDate) {
+        String scope;
+        long lastChange;
+        // Counts are read before the change times, which are set first, so a time is never older than its count
+        if (member != null) {
+            scope = "m" + member + "-" + bookingVersions.ofMember(member);
+            lastChange = bookingVersions.lastChangeOfMember(member);
+        } else if (startDate != null && endDate != null) {
+            scope = "d" + bookingVersions.ofDates(startDate, endDate);
+            lastChange = bookingVersions.lastChangeOfDates(startDate, endDate);
+        } else {
+            scope = "a" + bookingVersions.ofAll();
+            lastChange = bookingVersions.lastChangeOfAll();
+        }
+        ReplicationLag lag = replicationLag.getIfAvailable();
+        if (lag != null && !ReadRouting.isPrimaryRequested()) {
+            Instant replicaBeat = lag.getReplicaBeat();
+            if (replicaBeat == null || replicaBeat.toEpochMilli() <= lastChange) {
+                scope += "-r" + (replicaBeat == null ? 0 : replicaBeat.toEpochMilli());
+            }
+        }
+        return bookingVersions.getEpoch() + "-" + scope;
+    }
+
+    /*Member id to filter on, or null to not filter by member*/
+    private Long memberFilter(String memberName, Long memberId) {
+        if (memberName != null && memberId != null) {
+            throw new IllegalArgumentException("Search by member name or member id, not both");
+        }
+        if (memberName == null) {
+            return memberId;
+        }
+        Long id = memberDictionary.findId(memberName);
+        return id != null ? id : UNKNOWN_MEMBER;
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.model.WaitlistEntryModel;
+import com.example.clubmanager.repository.BookingRepository;
+import com.example.clubmanager.repository.WaitlistRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/*
+ * Waitlists of full sessions. Both operations run inside the caller's booking or cancellation transaction,
+ * with the session row locked: joins of a session are serialized with each other and with the cancellations
+ * that promote from its waitlist, so no freed seat is missed and a member never gets two entries.
+ */
+@Service
+public class WaitlistService {
+
+    private final WaitlistRepository waitlistRepository;
+    private final BookingRepository bookingRepository;
+    private final BookingEventLog bookingEventLog;
+
+    @Autowired
+    public WaitlistService(WaitlistRepository waitlistRepository, BookingRepository bookingRepository,
+                           BookingEventLog bookingEventLog) {
+        this.waitlistRepository = waitlistRepository;
+        this.bookingRepository = bookingRepository;
+        this.bookingEventLog = bookingEventLog;
+    }
+
+    /*Put a member on the waitlist of a locked session, returning their position; joining again keeps the first place*/
+    public long join(Long sessionId, Long memberId) {
+        // Under the session lock no other join of this member can insert between the lookup and the save
+        WaitlistEntryModel entry = waitlistRepository.findByClassSessionIdAndMemberId(sessionId, memberId);
+        if (entry == null) {
+            entry = waitlistRepository.save(new WaitlistEntryModel(sessionId, memberId));
+        }
+        return waitlistRepository.positionOf(sessionId, entry.getId());
+    }
+
+    /*Hand a freed seat to the head of the session's waitlist, returning the promoted member id or null when nobody waits*/
+    public Long promote(ClassSessionModel classSession) {
+        WaitlistEntryModel head;
+        while ((head = waitlistRepository.findFirstByClassSessionIdOrderByIdAsc(classSession.getId())) != null) {
+            // Whoever deletes the entry promotes it; a concurrent promotion blocks on the row and then moves on
+            if (waitlistRepository.deleteEntry(head.getId()) == 1) {
+                BookingModel booking = new BookingModel();
+                booking.setMemberId(head.getMemberId());
+                booking.setParticipationDate(classSession.getDate());
+                booking.setClassSession(classSession);
+                bookingRepository.save(booking);
+                bookingEventLog.seatBooked(booking);
+                return head.getMemberId();
+            }
+        }
+        return null;
+    }
+
+    /*Drop the whole waitlist of a session, e.g. when all of its bookings are cancelled*/
+    public int clear(Long sessionId) {
+        return waitlistRepository.deleteBySessionId(sessionId);
+    }
+}
@@ -1,15 +1,25 @@
 package com.example.clubmanager.utilities;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class ApiResponse {
 
     private String status;
     private String message;
+    // Id of the booking a request created, which cancelling it takes; left out of other responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long bookingId;
 
     public ApiResponse(String status, String message) {
         this.status = status;
         this.message = message;
     }
 
+    public ApiResponse(String status, String message, Long bookingId) {
+        this(status, message);
+        this.bookingId = bookingId;
+    }
+
     // Getters and setters
     public String getStatus() {
         return status;
@@ -26,4 +36,12 @@ public class ApiResponse {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public Long getBookingId() {
+        return bookingId;
+    }
+
+    public void setBookingId(Long bookingId) {
+        this.bookingId = bookingId;
+    }
 }
@@ -0,0 +1,42 @@
+package com.example.clubmanager.utilities;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/* Keyset position in the (participationDate, id) ordering of bookings, serialised as "yyyy-MM-dd_id" */
+public class BookingCursor {
+
+    private final LocalDate participationDate;
+    private final long id;
+
+    public BookingCursor(LocalDate participationDate, long id) {
+        this.participationDate = participationDate;
+        this.id = id;
+    }
+
+    public static BookingCursor parse(String cursor) {
+        int separator = cursor.lastIndexOf('_');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new BookingCursor(LocalDate.parse(cursor.substring(0, separator)),
+                    Long.parseLong(cursor.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public LocalDate getParticipationDate() {
+        return participationDate;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return participationDate + "_" + id;
+    }
+}
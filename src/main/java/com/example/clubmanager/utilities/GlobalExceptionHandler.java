@@ -6,6 +6,8 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -14,4 +16,17 @@ public class GlobalExceptionHandler {
     public ApiResponse handleConstraintViolation(MethodArgumentNotValidException ex) {
         return new ApiResponse("error", ex.getMessage());
     }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiResponse handleIllegalArgument(IllegalArgumentException ex) {
+        return new ApiResponse("error", ex.getMessage());
+    }
+
+    // Every shard fan-out thread is taken, typically by merged streams of slow clients
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ApiResponse handleRejectedExecution(RejectedExecutionException ex) {
+        return new ApiResponse("error", "Too many concurrent searches, try again later");
+    }
 }
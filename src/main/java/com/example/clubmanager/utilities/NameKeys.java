@@ -0,0 +1,14 @@
+package com.example.clubmanager.utilities;
+
+import java.util.Locale;
+
+/* Normalised lookup keys for class and member names, matching the name_key columns */
+public final class NameKeys {
+
+    private NameKeys() {
+    }
+
+    public static String normalize(String name) {
+        return name == null ? null : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
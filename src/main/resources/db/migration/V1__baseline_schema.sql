@@ -0,0 +1,48 @@
+-- Baseline schema, previously generated by Hibernate's ddl-auto=update.
+-- name_key and member_key hold the trimmed lower-case names, so the case-insensitive lookups are plain index seeks.
+
+create table club_class_model (
+    id              bigint generated by default as identity primary key,
+    name            varchar(255),
+    name_key        varchar(255),
+    start_date      date,
+    end_date        date,
+    start_time      time,
+    duration        integer not null,
+    capacity        integer not null,
+    recurrence_days integer not null,
+    recurring       boolean not null
+);
+
+create sequence class_session_seq start with 1 increment by 50;
+
+create table class_session_model (
+    id           bigint not null primary key,
+    class_id     bigint,
+    date         date,
+    start_time   time,
+    capacity     integer not null,
+    booked_count integer not null,
+    constraint fk_class_session_class foreign key (class_id) references club_class_model (id),
+    constraint uk_class_session_class_date unique (class_id, date)
+);
+
+create sequence booking_seq start with 1 increment by 50;
+
+create table booking_model (
+    id                 bigint not null primary key,
+    class_session_id   bigint,
+    member_name        varchar(255),
+    member_key         varchar(255),
+    participation_date date,
+    constraint fk_booking_class_session foreign key (class_session_id) references class_session_model (id)
+);
+
+-- Class lookup by name and period (booking resolution and the overlap check on class creation)
+create index idx_club_class_name_key_dates on club_class_model (name_key, start_date, end_date);
+
+-- Member searches, optionally bounded by date
+create index idx_booking_member_key_date on booking_model (member_key, participation_date);
+
+-- Date range searches and keyset pagination in (participation_date, id) order
+create index idx_booking_date_id on booking_model (participation_date, id);
@@ -0,0 +1,26 @@
+-- Members are stored once and bookings reference them by id, replacing the member_name/member_key strings
+-- repeated on every booking row. Existing names are folded per member_key, keeping one spelling.
+
+create table member_model (
+    id       bigint generated by default as identity primary key,
+    name     varchar(255) not null,
+    name_key varchar(255) not null,
+    constraint uk_member_name_key unique (name_key)
+);
+
+insert into member_model (name, name_key)
+select min(member_name), member_key from booking_model where member_key is not null group by member_key;
+
+alter table booking_model add column member_id bigint;
+
+update booking_model b set member_id = (select m.id from member_model m where m.name_key = b.member_key);
+
+alter table booking_model alter column member_id set not null;
+alter table booking_model add constraint fk_booking_member foreign key (member_id) references member_model (id);
+
+drop index idx_booking_member_key_date;
+alter table booking_model drop column member_name;
+alter table booking_model drop column member_key;
+
+-- Member searches, optionally bounded by date, are integer seeks
+create index idx_booking_member_date on booking_model (member_id, participation_date);
@@ -0,0 +1,21 @@
+-- Occupancy per class and calendar week or month, kept in step with class_session_model.booked_count by the
+-- booking transaction. Capacity and sessions count every scheduled date, including the sessions of recurring
+-- classes that are only created on their first booking. Existing classes are filled in by the rebuild on startup.
+
+create sequence class_occupancy_seq start with 1 increment by 50;
+
+create table class_occupancy_model (
+    id            bigint not null primary key,
+    class_id      bigint not null,
+    period_type   varchar(16) not null,
+    period_start  date not null,
+    sessions      integer not null,
+    capacity      integer not null,
+    booked_count  integer not null,
+    full_sessions integer not null,
+    constraint fk_class_occupancy_class foreign key (class_id) references club_class_model (id),
+    constraint uk_class_occupancy_period unique (class_id, period_type, period_start)
+);
+
+-- Reports over every class for a range of weeks or months
+create index idx_class_occupancy_period on class_occupancy_model (period_type, period_start);
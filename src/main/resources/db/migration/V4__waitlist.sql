@@ -0,0 +1,16 @@
+-- Waitlist of full sessions. Joining is a plain insert: entries are never updated, the queue order is the
+-- sequence order of their ids, and promotion deletes the head entry when it turns it into a booking.
+
+create sequence waitlist_entry_seq start with 1 increment by 50;
+
+create table waitlist_entry_model (
+    id               bigint not null primary key,
+    class_session_id bigint not null,
+    member_id        bigint not null,
+    constraint fk_waitlist_entry_session foreign key (class_session_id) references class_session_model (id),
+    constraint fk_waitlist_entry_member foreign key (member_id) references member_model (id),
+    constraint uk_waitlist_entry_session_member unique (class_session_id, member_id)
+);
+
+-- Head of the queue and waitlist positions of a session
+create index idx_waitlist_entry_session_id on waitlist_entry_model (class_session_id, id);
@@ -0,0 +1,29 @@
+-- Append-only log of the booking history. Every class creation, booking, cancellation and session cancellation
+-- adds one row in the transaction that makes the change, and rows are never updated or deleted. The seat counters
+-- and booking rows are projections of it that can be rebuilt per class by replaying the events in id order.
+-- There are no foreign keys: the log outlives the rows it describes and appending checks nothing.
+
+create sequence booking_event_seq start with 1 increment by 50;
+
+create table booking_event_model (
+    id               bigint not null primary key,
+    event_type       varchar(32) not null,
+    class_id         bigint not null,
+    class_session_id bigint,
+    booking_id       bigint,
+    member_id        bigint,
+    session_date     date,
+    recorded_at      timestamp not null
+);
+
+-- Replay of one class in log order
+create index idx_booking_event_class_id on booking_event_model (class_id, id);
+
+-- The history so far: the existing classes and bookings become the first events
+insert into booking_event_model (id, event_type, class_id, recorded_at)
+select next value for booking_event_seq, 'CLASS_CREATED', c.id, current_timestamp
+from club_class_model c order by c.id;
+
+insert into booking_event_model (id, event_type, class_id, class_session_id, booking_id, member_id, session_date, recorded_at)
+select next value for booking_event_seq, 'SEAT_BOOKED', s.class_id, s.id, b.id, b.member_id, s.date, current_timestamp
+from booking_model b join class_session_model s on s.id = b.class_session_id order by b.id;
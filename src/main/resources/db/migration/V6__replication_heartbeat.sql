@@ -0,0 +1,9 @@
+-- Heartbeat of the read replica: the primary rewrites the single row every second or so, and the age of the row
+-- as read on the replica is how far the replica is behind.
+
+create table replication_heartbeat (
+    id      int       not null primary key,
+    beat_at timestamp not null
+);
+
+insert into replication_heartbeat (id, beat_at) values (1, current_timestamp);
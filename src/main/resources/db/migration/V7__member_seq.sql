@@ -0,0 +1,7 @@
+-- Members get ids from a pooled sequence instead of the identity column, so that the new members of an imported
+-- chunk or a booking batch are inserted in one JDBC batch. The sequence starts past the existing ids, and the
+-- identity default stays for the copies of members on other shards, which keep the id of shard 0.
+
+create sequence member_seq start with 1 increment by 50;
+
+alter sequence member_seq restart with (select coalesce(max(id), 0) + 50 from member_model);
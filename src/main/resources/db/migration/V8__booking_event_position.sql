@@ -0,0 +1,23 @@
+-- Replay order of the booking event log. Event ids come from a pooled sequence, so they follow append order only
+-- within the node that allocated their block: with two nodes, or blocks handed out before and after a restart, a
+-- later cancellation can get a lower id than its booking. The log position is taken from a sequence without pooling
+-- by the database itself as each row is inserted. Events of one class that depend on each other are appended
+-- under the lock of their session, the later one after the earlier one committed, so their positions follow.
+
+create sequence booking_event_position_seq start with 1 increment by 1;
+
+alter table booking_event_model add column log_position bigint;
+
+-- The events so far were all written by one node, so their ids are their order
+update booking_event_model set log_position = id;
+
+alter sequence booking_event_position_seq restart with (select coalesce(max(id), 0) + 1 from booking_event_model);
+
+alter table booking_event_model alter column log_position set default next value for booking_event_position_seq;
+
+alter table booking_event_model alter column log_position set not null;
+
+-- Replay of one class in log order
+drop index idx_booking_event_class_id;
+
+create index idx_booking_event_class_id on booking_event_model (class_id, log_position);
@@ -0,0 +1,108 @@
+package com.example.clubmanager;
+
+import com.example.ClubManagerApplication;
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.service.BookingService;
+import com.example.clubmanager.service.ClubClassService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Books in a separate JVM against the durable profile, kills it with SIGKILL while it keeps writing, then starts
+ * the application again on the same files: every acknowledged booking must be there, and the seat and occupancy
+ * counters must match the bookings, i.e. no transaction survived half-written.
+ */
+class DurableRecoveryTest {
+
+    private static final String CLASS_NAME = "Recovery Spin";
+    private static final LocalDate DATE = LocalDate.of(2099, 5, 1);
+    private static final int CAPACITY = 1_000_000;
+    private static final int ACKS_BEFORE_KILL = 200;
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void testRestart_KeepsEveryAcknowledgedBookingAfterKill() throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process worker = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Worker.class.getName(), dataDir.toString())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        // Wait for enough acknowledged bookings, then kill the worker in the middle of its next ones
+        int acked = assertTimeoutPreemptively(Duration.ofMinutes(2), () -> {
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(worker.getInputStream(), StandardCharsets.UTF_8))) {
+                int last = 0;
+                String line;
+                while (last < ACKS_BEFORE_KILL && (line = out.readLine()) != null) {
+                    if (line.startsWith(Worker.ACK)) {
+                        last = Integer.parseInt(line.substring(Worker.ACK.length()));
+                    }
+                }
+                worker.destroyForcibly();
+                return last;
+            }
+        });
+        worker.waitFor();
+        assertEquals(ACKS_BEFORE_KILL, acked, "worker stopped before acknowledging its bookings");
+
+        try (ConfigurableApplicationContext context = start(dataDir.toString())) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            long bookings = jdbc.queryForObject("select count(*) from booking_model", Long.class);
+            assertTrue(bookings >= acked, bookings + " bookings recovered, " + acked + " were acknowledged");
+
+            // Seat claims, occupancy counters and bookings are written in one transaction, so they agree after recovery
+            assertEquals(bookings, jdbc.queryForObject("select booked_count from class_session_model where date = ?", Long.class, DATE));
+            assertEquals(bookings, jdbc.queryForObject(
+                    "select booked_count from class_occupancy_model where period_type = 'MONTH'", Long.class));
+
+            // The restarted application serves the recovered state and keeps booking on it
+            ClubClassService clubClassService = context.getBean(ClubClassService.class);
+            assertEquals(CAPACITY - bookings, clubClassService.getAvailability(CLASS_NAME, DATE, DATE).get(0).getRemainingSeats());
+            context.getBean(BookingService.class).bookClass(new BookingDTO(CLASS_NAME, "Member after restart", DATE));
+            assertEquals(bookings + 1, jdbc.queryForObject("select count(*) from booking_model", Long.class));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String dataDir) {
+        return new SpringApplicationBuilder(ClubManagerApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("durable")
+                .properties("club.data-dir=" + dataDir, "logging.level.root=WARN")
+                .run();
+    }
+
+    /*Creates a class, then books it one member at a time, printing an acknowledgement after every commit*/
+    public static final class Worker {
+
+        static final String ACK = "ACK ";
+
+        public static void main(String[] args) {
+            ConfigurableApplicationContext context = start(args[0]);
+            context.getBean(ClubClassService.class).createClass(
+                    new ClubClassDTO(CLASS_NAME, DATE, DATE.plusDays(1), LocalTime.of(7, 0), 45, CAPACITY));
+            BookingService bookingService = context.getBean(BookingService.class);
+            for (int i = 1; ; i++) {
+                bookingService.bookClass(new BookingDTO(CLASS_NAME, "Member " + i, DATE));
+                System.out.println(ACK + i);
+                System.out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.dto.AvailabilityDTO;
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import com.example.clubmanager.repository.ClubClassRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AvailabilityIndexTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 2, 10);
+
+    @Mock
+    private ClubClassRepository clubClassRepository;
+
+    @Mock
+    private ClassSessionRepository classSessionRepository;
+
+    private AvailabilityIndex availabilityIndex;
+
+    private long classId;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ClubClassModel pilates = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28),
+                LocalTime.of(10, 0), 60, 10);
+        classId = pilates.getId();
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(pilates));
+        availabilityIndex = new AvailabilityIndex(new ClassCatalog(clubClassRepository), classSessionRepository);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private int remaining() {
+        return availabilityIndex.getAvailability("pilates", DATE, DATE).get(0).getRemainingSeats();
+    }
+
+    @Test
+    void testLoad_IsKeptAndUpdatedInPlace() {
+        when(classSessionRepository.findAvailabilityByClassId(anyLong())).thenReturn(List.of(new AvailabilityDTO(DATE, 10)));
+
+        assertEquals(10, remaining());
+        availabilityIndex.seatsClaimed(classId, DATE, 2);
+
+        assertEquals(8, remaining());
+        verify(classSessionRepository, times(1)).findAvailabilityByClassId(anyLong());
+    }
+
+    @Test
+    void testLoad_WhileAClaimIsUncommitted_IsNotKept() {
+        // Given: a booking transaction claimed a seat and committed the row, its afterCommit has not run yet
+        TransactionSynchronizationManager.initSynchronization();
+        availabilityIndex.seatsClaimed(classId, DATE, 1);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        when(classSessionRepository.findAvailabilityByClassId(anyLong())).thenReturn(List.of(new AvailabilityDTO(DATE, 9)));
+
+        // When: a read loads the class, then the claim completes
+        assertEquals(9, remaining());
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        // Then: the claim is not taken off a second time, the next read loads the class again and keeps it
+        assertEquals(9, remaining());
+        assertEquals(9, remaining());
+        verify(classSessionRepository, times(2)).findAvailabilityByClassId(anyLong());
+    }
+
+    @Test
+    void testLoad_RacingWithACommittedClaim_IsNotKept() {
+        // Given: a claim commits while the load reads the rows, which do not have it yet
+        when(classSessionRepository.findAvailabilityByClassId(anyLong()))
+                .thenAnswer(invocation -> {
+                    availabilityIndex.seatsClaimed(classId, DATE, 1);
+                    return List.of(new AvailabilityDTO(DATE, 10));
+                })
+                .thenReturn(List.of(new AvailabilityDTO(DATE, 9)));
+
+        // When & Then: the stale load answers its own read only
+        assertEquals(10, remaining());
+        assertEquals(9, remaining());
+        assertEquals(9, remaining());
+        verify(classSessionRepository, times(2)).findAvailabilityByClassId(anyLong());
+    }
+}
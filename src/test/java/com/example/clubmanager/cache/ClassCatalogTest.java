@@ -0,0 +1,98 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.repository.ClubClassRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClassCatalogTest {
+
+    @Mock
+    private ClubClassRepository clubClassRepository;
+
+    private ClassCatalog classCatalog;
+
+    private ClubClassModel february;
+    private ClubClassModel april;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        classCatalog = new ClassCatalog(clubClassRepository);
+
+        february = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28),
+                LocalTime.of(10, 0), 60, 20);
+        april = new ClubClassModel("Pilates", LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30),
+                LocalTime.of(18, 0), 60, 10);
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(april, february));
+    }
+
+    @Test
+    void testFind_ReturnsClassCoveringDate() {
+        assertEquals(20, classCatalog.find("pilates", LocalDate.of(2025, 2, 1)).getCapacity());
+        assertEquals(20, classCatalog.find("pilates", LocalDate.of(2025, 2, 28)).getCapacity());
+        assertEquals(10, classCatalog.find("pilates", LocalDate.of(2025, 4, 15)).getCapacity());
+    }
+
+    @Test
+    void testFind_ReturnsNullBetweenAndOutsidePeriods() {
+        assertNull(classCatalog.find("pilates", LocalDate.of(2025, 1, 31)));
+        assertNull(classCatalog.find("pilates", LocalDate.of(2025, 3, 15)));
+        assertNull(classCatalog.find("pilates", LocalDate.of(2025, 5, 1)));
+    }
+
+    @Test
+    void testFindOverlapping() {
+        assertNotNull(classCatalog.findOverlapping("pilates", LocalDate.of(2025, 2, 20), LocalDate.of(2025, 3, 10)));
+        assertNotNull(classCatalog.findOverlapping("pilates", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 1)));
+        assertNotNull(classCatalog.findOverlapping("pilates", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31)));
+        assertNull(classCatalog.findOverlapping("pilates", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31)));
+    }
+
+    @Test
+    void testFindAll_OrderedByStartDate() {
+        List<ClassSchedule> schedules = classCatalog.findAll("pilates");
+
+        assertEquals(2, schedules.size());
+        assertEquals(LocalDate.of(2025, 2, 1), schedules.get(0).getStartDate());
+        assertEquals(LocalDate.of(2025, 4, 1), schedules.get(1).getStartDate());
+    }
+
+    @Test
+    void testLookups_LoadNameOnce() {
+        classCatalog.find("pilates", LocalDate.of(2025, 2, 10));
+        classCatalog.find("pilates", LocalDate.of(2025, 4, 10));
+        classCatalog.hasClass("pilates");
+
+        verify(clubClassRepository, times(1)).findByNameKey("pilates");
+    }
+
+    @Test
+    void testRefresh_ReloadsName() {
+        assertNull(classCatalog.find("pilates", LocalDate.of(2025, 3, 10)));
+
+        ClubClassModel march = new ClubClassModel("Pilates", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31),
+                LocalTime.of(9, 0), 60, 15);
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(february, march, april));
+        classCatalog.refresh("pilates");
+
+        assertEquals(15, classCatalog.find("pilates", LocalDate.of(2025, 3, 10)).getCapacity());
+    }
+
+    @Test
+    void testUnknownName_IsNotCached() {
+        assertFalse(classCatalog.hasClass("yoga"));
+        assertFalse(classCatalog.hasClass("yoga"));
+
+        verify(clubClassRepository, times(2)).findByNameKey("yoga");
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.MemberModel;
+import com.example.clubmanager.repository.MemberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MemberDictionaryTest {
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MemberNameIndex memberNameIndex;
+
+    private MemberDictionary memberDictionary;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        memberNameIndex = new MemberNameIndex(memberRepository);
+        memberDictionary = new MemberDictionary(memberRepository, memberNameIndex, transactionManager);
+    }
+
+    private MemberModel member(long id, String name) {
+        MemberModel member = new MemberModel(name);
+        ReflectionTestUtils.setField(member, "id", id);
+        return member;
+    }
+
+    @Test
+    void testFindId_CachedByNormalisedName() {
+        when(memberRepository.findByNameKey("john doe")).thenReturn(member(7L, "John Doe"));
+
+        assertEquals(7L, memberDictionary.findId("John Doe"));
+        assertEquals(7L, memberDictionary.findId("  JOHN DOE "));
+
+        verify(memberRepository, times(1)).findByNameKey("john doe");
+    }
+
+    @Test
+    void testFindId_UnknownNameIsNotCached() {
+        assertNull(memberDictionary.findId("Jane Roe"));
+        assertNull(memberDictionary.findId("Jane Roe"));
+        assertNull(memberDictionary.findId(null));
+
+        verify(memberRepository, times(2)).findByNameKey("jane roe");
+        verify(memberRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void testResolveId_CreatesMemberInOwnTransaction() {
+        when(memberRepository.saveAndFlush(any(MemberModel.class))).thenReturn(member(9L, "Jane Roe"));
+
+        assertEquals(9L, memberDictionary.resolveId(" Jane Roe"));
+        assertEquals(9L, memberDictionary.resolveId("jane roe"));
+
+        verify(memberRepository, times(1)).saveAndFlush(argThat(member -> member.getName().equals("Jane Roe")));
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(List.of(9L), memberNameIndex.search("jan", 10));
+    }
+
+    @Test
+    void testResolveId_ConcurrentlyCreatedMember() {
+        when(memberRepository.findByNameKey("jane roe")).thenReturn(null, member(9L, "Jane Roe"));
+        when(memberRepository.saveAndFlush(any(MemberModel.class))).thenThrow(new DataIntegrityViolationException("uk_member_name_key"));
+
+        assertEquals(9L, memberDictionary.resolveId("Jane Roe"));
+    }
+
+    @Test
+    void testCreateMissing_InsertsNewMembersTogether() {
+        when(memberRepository.findByNameKeyIn(any())).thenReturn(List.of(member(7L, "John Doe")));
+        when(memberRepository.saveAll(anyList())).thenReturn(List.of(member(9L, "Jane Roe"), member(10L, "Max Mustermann")));
+
+        memberDictionary.createMissing(List.of("John Doe", "Jane Roe", " jane roe", "Max Mustermann"));
+
+        // One lookup and one transaction for the batch, whose ids are then resolved from the cache
+        verify(memberRepository, times(1)).saveAll(anyList());
+        verify(transactionManager, times(1)).commit(any());
+        assertEquals(7L, memberDictionary.resolveId("John Doe"));
+        assertEquals(9L, memberDictionary.resolveId("Jane Roe"));
+        assertEquals(10L, memberDictionary.resolveId("max mustermann"));
+        verify(memberRepository, never()).findByNameKey(any());
+        verify(memberRepository, never()).saveAndFlush(any());
+        assertEquals(List.of(10L), memberNameIndex.search("max", 10));
+    }
+
+    @Test
+    void testCreateMissing_ConcurrentlyCreatedMemberFallsBackToOneAtATime() {
+        when(memberRepository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("uk_member_name_key"));
+        when(memberRepository.findByNameKey("jane roe")).thenReturn(member(9L, "Jane Roe"));
+        when(memberRepository.saveAndFlush(any(MemberModel.class))).thenReturn(member(10L, "Max Mustermann"));
+
+        memberDictionary.createMissing(List.of("Jane Roe", "Max Mustermann"));
+
+        assertEquals(9L, memberDictionary.resolveId("Jane Roe"));
+        assertEquals(10L, memberDictionary.resolveId("Max Mustermann"));
+    }
+}
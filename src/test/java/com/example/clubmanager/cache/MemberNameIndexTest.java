@@ -0,0 +1,74 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.model.MemberModel;
+import com.example.clubmanager.repository.MemberRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MemberNameIndexTest {
+
+    @Mock
+    private MemberRepository memberRepository;
+
+    private MemberNameIndex memberNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        memberNameIndex = new MemberNameIndex(memberRepository);
+        when(memberRepository.findAll()).thenReturn(List.of(
+                member(1L, "John Doe"),
+                member(2L, "Johanna Smith"),
+                member(3L, "Jane Doerr"),
+                member(4L, "Max Mustermann")));
+    }
+
+    private MemberModel member(long id, String name) {
+        MemberModel member = new MemberModel(name);
+        ReflectionTestUtils.setField(member, "id", id);
+        return member;
+    }
+
+    @Test
+    void testSearch_PrefixOfNameRanksBeforePrefixOfWord() {
+        // "jo" starts both first names; "doe" only starts last names
+        assertEquals(List.of(1L, 2L), memberNameIndex.search("Jo", 10).subList(0, 2));
+        assertEquals(List.of(1L, 3L), memberNameIndex.search("doe", 10).subList(0, 2));
+        assertEquals(1L, memberNameIndex.search("john d", 10).get(0));
+    }
+
+    @Test
+    void testSearch_ToleratesTypos() {
+        assertEquals(1L, memberNameIndex.search("Jhon Doe", 10).get(0));
+        assertEquals(4L, memberNameIndex.search("max musterman", 10).get(0));
+    }
+
+    @Test
+    void testSearch_NoMatch() {
+        assertTrue(memberNameIndex.search("zzz", 10).isEmpty());
+        assertTrue(memberNameIndex.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testSearch_LimitsResults() {
+        assertEquals(1, memberNameIndex.search("j", 1).size());
+    }
+
+    @Test
+    void testAdd_IndexesNewMembersWithoutReload() {
+        memberNameIndex.search("jo", 10);
+        memberNameIndex.add(5L, "Joanna Jones");
+        memberNameIndex.add(5L, "Joanna Jones");
+
+        assertTrue(memberNameIndex.search("joan", 10).contains(5L));
+        verify(memberRepository, times(1)).findAll();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.clubmanager.cache;
+
+import com.example.clubmanager.dto.BookingDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private final BookingDTO booking = new BookingDTO("Pilates", "John Doe", LocalDate.of(2099, 3, 1));
+
+    @Test
+    void testGet_OnlyAtCachedVersion() {
+        SearchResultCache cache = new SearchResultCache(10);
+        cache.put(1L, null, null, "v1", List.of(booking));
+
+        assertEquals(List.of(booking), cache.get(1L, null, null, "v1"));
+        assertNull(cache.get(1L, null, null, "v2"));
+        assertNull(cache.get(2L, null, null, "v1"));
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsed() {
+        SearchResultCache cache = new SearchResultCache(2);
+        cache.put(1L, null, null, "v", List.of(booking));
+        cache.put(2L, null, null, "v", List.of(booking));
+        cache.get(1L, null, null, "v");
+        cache.put(3L, null, null, "v", List.of(booking));
+
+        assertNotNull(cache.get(1L, null, null, "v"));
+        assertNull(cache.get(2L, null, null, "v"));
+        assertNotNull(cache.get(3L, null, null, "v"));
+    }
+
+    @Test
+    void testPut_SkipsLargeResults() {
+        SearchResultCache cache = new SearchResultCache(10);
+        cache.put(null, null, null, "v", Collections.nCopies(SearchResultCache.MAX_CACHED_ROWS + 1, booking));
+
+        assertNull(cache.get(null, null, null, "v"));
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.clubmanager.controller;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.service.ClubClassService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/*Bookings made, found and cancelled through the API alone*/
+@SpringBootTest
+@AutoConfigureMockMvc
+class BookingApiTest {
+
+    private static final String CLASS_NAME = "Api Kettlebell";
+    private static final LocalDate DATE = LocalDate.of(2099, 9, 1);
+    private static final String RECURRING_CLASS_NAME = "Api Mondays";
+    // 2099-09-07 is a Monday
+    private static final LocalDate MONDAY = LocalDate.of(2099, 9, 7);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testCancelBooking_ByTheIdOfTheBookingResponse() throws Exception {
+        // Given: a booking made through the API
+        clubClassService.createClass(new ClubClassDTO(CLASS_NAME, DATE, DATE, LocalTime.of(19, 0), 45, 10));
+        JsonNode booked = perform(post("/api/bookings/create")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(new BookingDTO(CLASS_NAME, "Api Member", DATE))), 201);
+        long bookingId = booked.get("bookingId").asLong();
+
+        // Then: batch items and search results carry the ids of their bookings too
+        JsonNode batch = perform(post("/api/bookings/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(new BookingDTO(CLASS_NAME, "Api Member 2", DATE)))), 200);
+        long batchBookingId = batch.get(0).get("bookingId").asLong();
+        assertNotEquals(bookingId, batchBookingId);
+
+        JsonNode found = perform(get("/api/bookings/search").param("memberName", "Api Member"), 200);
+        assertEquals(1, found.size());
+        assertEquals(bookingId, found.get(0).get("id").asLong());
+
+        // When: the booking is cancelled by that id
+        mockMvc.perform(delete("/api/bookings/" + bookingId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Booking cancelled."));
+
+        // Then: it is gone, and a second cancellation finds nothing
+        assertEquals(0, perform(get("/api/bookings/search").param("memberName", "Api Member"), 200).size());
+        assertEquals(batchBookingId,
+                perform(get("/api/bookings/search").param("memberName", "Api Member 2"), 200).get(0).get("id").asLong());
+        mockMvc.perform(delete("/api/bookings/" + bookingId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCreateBooking_OffDayOfRecurringClassCreatesNoMember() throws Exception {
+        // Given: a class recurring on Mondays
+        clubClassService.createClass(new ClubClassDTO(RECURRING_CLASS_NAME, MONDAY, MONDAY.plusWeeks(4), LocalTime.of(8, 0),
+                45, 10, Set.of(DayOfWeek.MONDAY), true));
+        Integer members = jdbc.queryForObject("select count(*) from member_model", Integer.class);
+
+        // When: a new member books it on a Tuesday, alone and in a batch
+        JsonNode rejected = perform(post("/api/bookings/create")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(new BookingDTO(RECURRING_CLASS_NAME, "Api Tuesday Member", MONDAY.plusDays(1)))), 400);
+        JsonNode batch = perform(post("/api/bookings/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(List.of(
+                        new BookingDTO(RECURRING_CLASS_NAME, "Api Tuesday Member 2", MONDAY.plusDays(8))))), 200);
+
+        // Then: both are rejected and no member was created
+        assertEquals("Class session not found for this date", rejected.get("message").asText());
+        assertEquals("Class session not found for this date", batch.get(0).get("message").asText());
+        assertEquals(members, jdbc.queryForObject("select count(*) from member_model", Integer.class));
+    }
+
+    private JsonNode perform(RequestBuilder request, int statusCode) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().is(statusCode))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
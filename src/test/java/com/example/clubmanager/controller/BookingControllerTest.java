@@ -2,8 +2,11 @@ package com.example.clubmanager.controller;
 
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.service.BookingIntake;
 import com.example.clubmanager.service.BookingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
@@ -14,8 +17,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -27,6 +33,12 @@ class BookingControllerTest {
     @Mock
     private BookingService bookingService;
 
+    @Mock
+    private BookingIntake bookingIntake;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private BookingController bookingController;
 
@@ -65,6 +77,21 @@ class BookingControllerTest {
         verify(bookingService, times(1)).bookClass(any(BookingDTO.class));
     }
 
+    @Test
+    void testCreateBooking_WaitlistedWhenFull() throws Exception {
+        // Arrange: the session is full and the member asked to wait for a seat
+        BookingDTO waitlistBooking = new BookingDTO("Pilates", "John Doe", LocalDate.of(2099, 2, 10), true);
+        when(bookingService.bookClass(argThat(BookingDTO::isJoinWaitlist))).thenReturn(new ApiResponse("waitlisted",
+                "Class is full for this date, member John Doe is number 2 on the waitlist."));
+
+        // Act & Assert: accepted, not created
+        mockMvc.perform(post("/api/bookings/create")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(waitlistBooking)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.status").value("waitlisted"));
+    }
+
     @Test
     void testCreateBooking_Failure_InvalidMemberName() throws Exception {
 
@@ -133,5 +160,106 @@ class BookingControllerTest {
         // Verify the service interaction
         verify(bookingService, times(0)).bookClass(any(BookingDTO.class));
     }
-}
 
+    @Test
+    void testCreateBookings_ReportsResultPerItem() throws Exception {
+        // Arrange: the second item is invalid and never reaches the service
+        BookingDTO invalidBookingDTO = new BookingDTO("Pilates", "", LocalDate.now().plusDays(3));
+        BookingDTO otherBookingDTO = new BookingDTO("Yoga", "Jane Roe", LocalDate.now().plusDays(3));
+        validBookingDTO.setParticipationDate(LocalDate.now().plusDays(3));
+        when(bookingService.bookClasses(anyList())).thenReturn(List.of(
+                new ApiResponse("success", "Member John Doe booked for Pilates class successfully."),
+                new ApiResponse("error", "Class not found with the given name")));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/bookings/batch")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(List.of(validBookingDTO, invalidBookingDTO, otherBookingDTO))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].status").value("success"))
+                .andExpect(jsonPath("$[1].status").value("error"))
+                .andExpect(jsonPath("$[1].message").value("member name is required"))
+                .andExpect(jsonPath("$[2].message").value("Class not found with the given name"));
+
+        // Verify only the valid items are booked
+        verify(bookingService, times(1)).bookClasses(argThat(bookings -> bookings.size() == 2));
+    }
+
+    @Test
+    void testCreateBooking_AsyncMode_ReturnsTicket() throws Exception {
+        // Arrange
+        validBookingDTO.setParticipationDate(LocalDate.now().plusDays(3));
+        when(bookingIntake.isEnabled()).thenReturn(true);
+        when(bookingIntake.submit(any(BookingDTO.class))).thenReturn("ticket-1");
+
+        // Act & Assert
+        mockMvc.perform(post("/api/bookings/create")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(validBookingDTO)))
+                .andExpect(status().isAccepted())  // Expect HTTP 202
+                .andExpect(header().string("Location", "/api/bookings/tickets/ticket-1"))
+                .andExpect(jsonPath("$.status").value("accepted"))
+                .andExpect(jsonPath("$.message").value("ticket-1"));
+
+        verify(bookingService, never()).bookClass(any(BookingDTO.class));
+    }
+
+    @Test
+    void testCreateBooking_AsyncMode_IntakeFull() throws Exception {
+        // Arrange
+        validBookingDTO.setParticipationDate(LocalDate.now().plusDays(3));
+        when(bookingIntake.isEnabled()).thenReturn(true);
+        when(bookingIntake.submit(any(BookingDTO.class))).thenReturn(null);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/bookings/create")
+                        .contentType("application/json")
+                        .content(objectMapper.writeValueAsString(validBookingDTO)))
+                .andExpect(status().isServiceUnavailable());  // Expect HTTP 503
+    }
+
+    @Test
+    void testGetTicket() throws Exception {
+        // Arrange
+        when(bookingIntake.getStatus("ticket-1")).thenReturn(new ApiResponse("success", "Member John Doe booked for Pilates class successfully."));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/bookings/tickets/ticket-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+        mockMvc.perform(get("/api/bookings/tickets/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCancelBooking() throws Exception {
+        when(bookingService.cancelBooking(7L)).thenReturn(new ApiResponse("success", "Booking cancelled."));
+
+        mockMvc.perform(delete("/api/bookings/7"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Booking cancelled."));
+    }
+
+    @Test
+    void testCancelBooking_NotFound() throws Exception {
+        when(bookingService.cancelBooking(7L)).thenThrow(new IllegalArgumentException("Booking not found"));
+
+        mockMvc.perform(delete("/api/bookings/7"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("Booking not found"));
+    }
+
+    @Test
+    void testCancelSession() throws Exception {
+        when(bookingService.cancelSession("Pilates", LocalDate.of(2099, 3, 1)))
+                .thenReturn(new ApiResponse("success", "Cancelled 12 bookings of Pilates on 2099-03-01."));
+
+        mockMvc.perform(delete("/api/bookings/session")
+                        .param("className", "Pilates")
+                        .param("date", "2099-03-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Cancelled 12 bookings of Pilates on 2099-03-01."));
+        verify(bookingService, never()).cancelBooking(any());
+    }
+}
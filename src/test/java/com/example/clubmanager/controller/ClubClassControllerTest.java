@@ -1,5 +1,6 @@
 package com.example.clubmanager.controller;
 
+import com.example.clubmanager.dto.AvailabilityDTO;
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.ClubClassDTO;
 import com.example.clubmanager.service.ClubClassService;
@@ -16,9 +17,11 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -99,4 +102,34 @@ public class ClubClassControllerTest {
                 .andExpect(jsonPath("$.message").value("class name is required"));
     }
 
+    @Test
+    void testGetAvailability_Success() throws Exception {
+        // Arrange
+        when(clubClassService.getAvailability("Pilates", LocalDate.of(2025, 12, 5), LocalDate.of(2025, 12, 6)))
+                .thenReturn(List.of(new AvailabilityDTO(LocalDate.of(2025, 12, 5), 7),
+                        new AvailabilityDTO(LocalDate.of(2025, 12, 6), 0)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/classes/Pilates/availability")
+                        .param("from", "2025-12-05")
+                        .param("to", "2025-12-06"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].date").value("2025-12-05"))
+                .andExpect(jsonPath("$[0].remainingSeats").value(7))
+                .andExpect(jsonPath("$[1].remainingSeats").value(0));
+    }
+
+    @Test
+    void testGetAvailability_SingleDayWhenToIsOmitted() throws Exception {
+        // Arrange
+        when(clubClassService.getAvailability("Pilates", LocalDate.of(2025, 12, 5), LocalDate.of(2025, 12, 5)))
+                .thenReturn(List.of(new AvailabilityDTO(LocalDate.of(2025, 12, 5), 7)));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/classes/Pilates/availability")
+                        .param("from", "2025-12-05"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
 }
@@ -0,0 +1,89 @@
+package com.example.clubmanager.controller;
+
+import com.example.clubmanager.dto.ImportReportDTO;
+import com.example.clubmanager.dto.RejectedLineDTO;
+import com.example.clubmanager.service.ImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ImportControllerTest {
+
+    @Mock
+    private ImportService importService;
+
+    @InjectMocks
+    private ImportController importController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(importController).build();
+    }
+
+    @Test
+    void testImportBookings_ReadsTheRequestBody() throws Exception {
+        // Given
+        when(importService.importBookings(any(Reader.class))).thenAnswer(invocation -> {
+            BufferedReader reader = invocation.getArgument(0);
+            long lines = reader.lines().count();
+            return new ImportReportDTO(lines - 1, lines - 2, 1, List.of(new RejectedLineDTO(3, "member name is required")));
+        });
+
+        // When & Then
+        mockMvc.perform(post("/api/import/bookings")
+                        .contentType("text/csv")
+                        .content("className,memberName,participationDate\nPilates,John Doe,2020-01-06\nPilates,,2020-01-06\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows").value(2))
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejectedCount").value(1))
+                .andExpect(jsonPath("$.rejected[0].line").value(3))
+                .andExpect(jsonPath("$.rejected[0].message").value("member name is required"));
+    }
+
+    @Test
+    void testImportClasses() throws Exception {
+        // Given
+        when(importService.importClasses(any(Reader.class))).thenReturn(new ImportReportDTO(1, 1, 0, List.of()));
+
+        // When & Then
+        mockMvc.perform(post("/api/import/classes")
+                        .contentType("text/csv")
+                        .content("name,startDate,endDate,startTime,duration,capacity\nPilates,2019-01-01,2019-12-31,10:00,60,20\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+
+        verify(importService, times(1)).importClasses(any(Reader.class));
+    }
+
+    @Test
+    void testImportBookings_MissingColumnIsABadRequest() throws Exception {
+        // Given
+        when(importService.importBookings(any(Reader.class)))
+                .thenThrow(new IllegalArgumentException("Missing column: participationDate"));
+
+        // When & Then
+        mockMvc.perform(post("/api/import/bookings")
+                        .contentType("text/csv")
+                        .content("className,memberName\nPilates,John Doe\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status").value("error"))
+                .andExpect(jsonPath("$.message").value("Missing column: participationDate"));
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.clubmanager.controller;
+
+import com.example.clubmanager.dto.OccupancyDTO;
+import com.example.clubmanager.service.OccupancyService;
+import com.example.clubmanager.service.ProjectionService;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ReportControllerTest {
+
+    @Mock
+    private OccupancyService occupancyService;
+
+    @Mock
+    private ProjectionService projectionService;
+
+    @InjectMocks
+    private ReportController reportController;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(reportController).build();
+    }
+
+    @Test
+    void testGetOccupancy_MonthlyByDefault() throws Exception {
+        // Given
+        when(occupancyService.getOccupancy("month", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 31), null))
+                .thenReturn(List.of(new OccupancyDTO("Pilates", LocalDate.of(2025, 2, 1), 4L, 80L, 60L, 1L)));
+
+        // When & Then
+        mockMvc.perform(get("/api/reports/occupancy")
+                        .param("from", "2025-02-01")
+                        .param("to", "2025-03-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].className").value("Pilates"))
+                .andExpect(jsonPath("$[0].periodStart").value("2025-02-01"))
+                .andExpect(jsonPath("$[0].fullSessions").value(1))
+                .andExpect(jsonPath("$[0].fillRate").value(0.75));
+    }
+
+    @Test
+    void testRebuildOccupancy() throws Exception {
+        when(occupancyService.rebuild()).thenReturn(3);
+
+        mockMvc.perform(post("/api/reports/occupancy/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Occupancy of 3 classes rebuilt."));
+    }
+
+    @Test
+    void testRebuildProjections() throws Exception {
+        when(projectionService.rebuild(anyBoolean())).thenReturn(new ApiResponse("success",
+                "Projections of 3 classes rebuilt, 1 session counters and 2 bookings corrected, 0 booking rows without events kept."));
+
+        mockMvc.perform(post("/api/reports/projections/rebuild"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("success"));
+
+        // Booking rows without events are only deleted when asked to
+        verify(projectionService, times(1)).rebuild(false);
+    }
+
+    @Test
+    void testRebuildProjections_DeletingUnloggedRows() throws Exception {
+        when(projectionService.rebuild(anyBoolean())).thenReturn(new ApiResponse("success",
+                "Projections of 3 classes rebuilt, 0 session counters and 1 bookings corrected, 1 booking rows without events deleted."));
+
+        mockMvc.perform(post("/api/reports/projections/rebuild").param("deleteUnlogged", "true"))
+                .andExpect(status().isOk());
+
+        verify(projectionService, times(1)).rebuild(true);
+    }
+}
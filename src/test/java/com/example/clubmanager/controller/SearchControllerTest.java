@@ -1,22 +1,31 @@
 package com.example.clubmanager.controller;
 
-import com.example.clubmanager.model.BookingModel;
-import com.example.clubmanager.model.ClassSessionModel;
-import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingPageDTO;
 import com.example.clubmanager.service.SearchService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,32 +35,20 @@ public class SearchControllerTest {
     @Mock
     private SearchService searchService;
 
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private SearchController searchController;
 
     private MockMvc mockMvc;
 
-    private BookingModel bookingModel;
+    private BookingDTO booking;
 
     @BeforeEach
     void setUp() {
-        // Setup mock data
-        ClubClassModel clubClassModel = new ClubClassModel();
-        clubClassModel.setName("Pilates");
-        clubClassModel.setCapacity(20);
-        clubClassModel.setStartDate(LocalDate.of(2025, 2, 1));
-        clubClassModel.setEndDate(LocalDate.of(2025, 2, 20));
-
-        ClassSessionModel classSessionModel = new ClassSessionModel();
-        classSessionModel.setClubClass(clubClassModel);
-        classSessionModel.setDate(LocalDate.of(2025, 2, 10));
-        classSessionModel.setStartTime(LocalTime.of(10,0));
-        classSessionModel.setCapacity(20);
-
-        bookingModel = new BookingModel();
-        bookingModel.setMemberName("John Doe");
-        bookingModel.setParticipationDate(LocalDate.of(2025, 2, 10));
-        bookingModel.setClassSession(classSessionModel);
+        // Setup mock data, as projected by the repository
+        booking = new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 10));
         // Initialize MockMvc
         mockMvc = MockMvcBuilders.standaloneSetup(searchController).build();
     }
@@ -59,8 +56,8 @@ public class SearchControllerTest {
     @Test
     void testSearchBookings_ByMemberName() throws Exception {
         // Given
-        List<BookingModel> bookings = List.of(bookingModel);
-        when(searchService.searchBookings("John Doe", null, null)).thenReturn(bookings);
+        List<BookingDTO> bookings = List.of(booking);
+        when(searchService.searchBookings("John Doe", null, null, null)).thenReturn(bookings);
 
         // When & Then
         mockMvc.perform(get("/api/bookings/search")
@@ -70,7 +67,7 @@ public class SearchControllerTest {
                 .andExpect(jsonPath("$[0].className").value("Pilates"))  // assuming Pilates class for the test data
                 .andExpect(jsonPath("$[0].participationDate").value("2025-02-10"));
 
-        verify(searchService, times(1)).searchBookings("John Doe", null, null);
+        verify(searchService, times(1)).searchBookings("John Doe", null, null, null);
     }
 
     @Test
@@ -78,8 +75,8 @@ public class SearchControllerTest {
         // Given
         LocalDate startDate = LocalDate.of(2025, 2, 1);
         LocalDate endDate = LocalDate.of(2025, 2, 20);
-        List<BookingModel> bookings = List.of(bookingModel);
-        when(searchService.searchBookings(null, startDate, endDate)).thenReturn(bookings);
+        List<BookingDTO> bookings = List.of(booking);
+        when(searchService.searchBookings(null, null, startDate, endDate)).thenReturn(bookings);
 
         // When & Then
         mockMvc.perform(get("/api/bookings/search")
@@ -90,7 +87,7 @@ public class SearchControllerTest {
                 .andExpect(jsonPath("$[0].className").value("Pilates"))
                 .andExpect(jsonPath("$[0].participationDate").value("2025-02-10"));
 
-        verify(searchService, times(1)).searchBookings(null, startDate, endDate);
+        verify(searchService, times(1)).searchBookings(null, null, startDate, endDate);
     }
 
     @Test
@@ -98,8 +95,8 @@ public class SearchControllerTest {
         // Given
         LocalDate startDate = LocalDate.of(2025, 2, 1);
         LocalDate endDate = LocalDate.of(2025, 2, 20);
-        List<BookingModel> bookings = List.of(bookingModel);
-        when(searchService.searchBookings("John Doe", startDate, endDate)).thenReturn(bookings);
+        List<BookingDTO> bookings = List.of(booking);
+        when(searchService.searchBookings("John Doe", null, startDate, endDate)).thenReturn(bookings);
 
         // When & Then
         mockMvc.perform(get("/api/bookings/search")
@@ -111,29 +108,47 @@ public class SearchControllerTest {
                 .andExpect(jsonPath("$[0].className").value("Pilates"))
                 .andExpect(jsonPath("$[0].participationDate").value("2025-02-10"));
 
-        verify(searchService, times(1)).searchBookings("John Doe", startDate, endDate);
+        verify(searchService, times(1)).searchBookings("John Doe", null, startDate, endDate);
     }
 
     @Test
     void testSearchBookings_NoCriteria() throws Exception {
         // Given
-        List<BookingModel> bookings = List.of(bookingModel);
-        when(searchService.searchBookings(null, null, null)).thenReturn(bookings);
+        when(searchService.searchBookingPage(null, null, null, null, null, null))
+                .thenReturn(new BookingPageDTO(List.of(booking), "2025-02-10_42"));
 
-        // When & Then
+        // When & Then: every booking is paged through rather than listed at once
         mockMvc.perform(get("/api/bookings/search"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(SearchController.NEXT_CURSOR_HEADER, "2025-02-10_42"))
                 .andExpect(jsonPath("$[0].memberName").value("John Doe"))
                 .andExpect(jsonPath("$[0].className").value("Pilates"))
                 .andExpect(jsonPath("$[0].participationDate").value("2025-02-10"));
 
-        verify(searchService, times(1)).searchBookings(null, null, null);
+        verify(searchService, never()).searchBookings(any(), any(), any(), any());
+    }
+
+    @Test
+    void testSearchBookings_OpenDateRangePages() throws Exception {
+        // Given
+        LocalDate startDate = LocalDate.of(2025, 2, 1);
+        when(searchService.searchBookingPage(null, null, startDate, null, null, null))
+                .thenReturn(new BookingPageDTO(List.of(booking), null));
+
+        // When & Then
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("startDate", "2025-02-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(SearchController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$[0].memberName").value("John Doe"));
+
+        verify(searchService, never()).searchBookings(any(), any(), any(), any());
     }
 
     @Test
     void testSearchBookings_WhenNoResultsFound() throws Exception {
         // Given
-        when(searchService.searchBookings("Non Existent", null, null)).thenReturn(List.of());
+        when(searchService.searchBookings("Non Existent", null, null, null)).thenReturn(List.of());
 
         // When & Then
         mockMvc.perform(get("/api/bookings/search")
@@ -141,6 +156,186 @@ public class SearchControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().json("[]"));
 
-        verify(searchService, times(1)).searchBookings("Non Existent", null, null);
+        verify(searchService, times(1)).searchBookings("Non Existent", null, null, null);
+    }
+
+    @Test
+    void testSearchBookings_Paginated_ReturnsNextCursorHeader() throws Exception {
+        // Given
+        BookingPageDTO page = new BookingPageDTO(
+                List.of(new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 10))), "2025-02-10_42");
+        when(searchService.searchBookingPage(null, null, null, null, null, 1)).thenReturn(page);
+
+        // When & Then
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(SearchController.NEXT_CURSOR_HEADER, "2025-02-10_42"))
+                .andExpect(jsonPath("$[0].memberName").value("John Doe"))
+                .andExpect(jsonPath("$[0].className").value("Pilates"));
+
+        verify(searchService, never()).searchBookings(any(), any(), any(), any());
+    }
+
+    @Test
+    void testSearchBookings_Paginated_LastPageHasNoCursor() throws Exception {
+        // Given
+        when(searchService.searchBookingPage("John Doe", null, null, null, "2025-02-10_42", null))
+                .thenReturn(new BookingPageDTO(List.of(), null));
+
+        // When & Then
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("memberName", "John Doe")
+                        .param("cursor", "2025-02-10_42"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(SearchController.NEXT_CURSOR_HEADER))
+                .andExpect(content().json("[]"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchBookings_Ndjson_StreamsOneLinePerBooking() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<BookingDTO> consumer = invocation.getArgument(4);
+            consumer.accept(new BookingDTO(7L, "Pilates", "John Doe", LocalDate.of(2025, 2, 10)));
+            consumer.accept(new BookingDTO(8L, "Yoga", "Jane Roe", LocalDate.of(2025, 2, 11)));
+            return null;
+        }).when(searchService).streamBookings(eq(null), eq(null), eq(null), eq(null), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/bookings/search")
+                        .param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SearchController.NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":7,\"className\":\"Pilates\",\"memberName\":\"John Doe\",\"participationDate\":\"2025-02-10\"}\n" +
+                        "{\"id\":8,\"className\":\"Yoga\",\"memberName\":\"Jane Roe\",\"participationDate\":\"2025-02-11\"}\n"));
+
+        verify(searchService, never()).searchBookings(any(), any(), any(), any());
+    }
+
+    @Test
+    void testSearchBookings_ByMemberId() throws Exception {
+        // Given
+        when(searchService.searchBookings(null, 42L, null, null)).thenReturn(List.of(booking));
+
+        // When & Then: the response shape is the same as for a name search
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("memberId", "42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].memberName").value("John Doe"));
+
+        verify(searchService, times(1)).searchBookings(null, 42L, null, null);
+    }
+
+    @Test
+    void testSearchBookings_ByMemberPrefix() throws Exception {
+        // Given
+        when(searchService.searchBookingsByMemberPrefix("jo", null, null)).thenReturn(List.of(booking));
+
+        // When & Then
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("memberPrefix", "jo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].memberName").value("John Doe"));
+
+        verify(searchService, times(1)).searchBookingsByMemberPrefix("jo", null, null);
+        verify(searchService, never()).searchBookings(any(), any(), any(), any());
+    }
+
+    @Test
+    void testSearchBookings_NotModifiedWhileVersionUnchanged() throws Exception {
+        // Given
+        when(searchService.searchVersion("John Doe", null, null, null)).thenReturn("k2x-m1-3");
+        when(searchService.searchBookings("John Doe", null, null, null)).thenReturn(List.of(booking));
+
+        // When & Then: the first poll gets the tag, the next one a 304 without running the search
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("memberName", "John Doe"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"k2x-m1-3\""));
+        mockMvc.perform(get("/api/bookings/search")
+                        .param("memberName", "John Doe")
+                        .header("If-None-Match", "\"k2x-m1-3\""))
+                .andExpect(status().isNotModified());
+
+        verify(searchService, times(1)).searchBookings("John Doe", null, null, null);
+    }
+
+    @Test
+    void testExportBookings_Csv_QuotesFieldsThatNeedIt() throws Exception {
+        // Given
+        LocalDate start = LocalDate.of(2025, 2, 1);
+        LocalDate end = LocalDate.of(2025, 2, 28);
+        doAnswer(invocation -> {
+            Consumer<BookingDTO> consumer = invocation.getArgument(4);
+            consumer.accept(new BookingDTO(7L, "Pilates", "John Doe", LocalDate.of(2025, 2, 10)));
+            consumer.accept(new BookingDTO(8L, "Yoga, Advanced", "Jane \"JR\" Roe", LocalDate.of(2025, 2, 11)));
+            return null;
+        }).when(searchService).streamBookings(eq(null), eq(null), eq(start), eq(end), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/bookings/export")
+                        .param("startDate", "2025-02-01")
+                        .param("endDate", "2025-02-28"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SearchController.CSV))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"bookings.csv\""))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("id,className,memberName,participationDate\r\n" +
+                        "7,Pilates,John Doe,2025-02-10\r\n" +
+                        "8,\"Yoga, Advanced\",\"Jane \"\"JR\"\" Roe\",2025-02-11\r\n"));
+    }
+
+    @Test
+    void testExportBookings_NdjsonGzipped() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<BookingDTO> consumer = invocation.getArgument(4);
+            consumer.accept(booking);
+            return null;
+        }).when(searchService).streamBookings(eq(null), eq(null), eq(null), eq(null), any(Consumer.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/bookings/export")
+                        .param("format", "ndjson")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SearchController.NDJSON))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("{\"className\":\"Pilates\",\"memberName\":\"John Doe\",\"participationDate\":\"2025-02-10\"}\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testExportBookings_UnknownFormat() throws Exception {
+        // When & Then: a bad request, even from a client that only accepts CSV
+        mockMvc.perform(get("/api/bookings/export")
+                        .param("format", "xml")
+                        .accept("text/csv"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status").value("error"))
+                .andExpect(jsonPath("$.message").value("Format must be csv or ndjson"));
+        verifyNoInteractions(searchService);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,118 @@
+package com.example.clubmanager.datasource;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.service.BookingService;
+import com.example.clubmanager.service.ClubClassService;
+import com.example.clubmanager.service.SearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/*Runs the replica profile on databases of its own, syncing and measuring the lag by hand rather than on a timer*/
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:replica-test-primary;DB_CLOSE_DELAY=-1",
+        "datasource.replica.url=jdbc:h2:mem:replica-test-replica;DB_CLOSE_DELAY=-1",
+        "datasource.replica.sync-interval-ms=3600000",
+        "datasource.replica.heartbeat-interval-ms=3600000"
+})
+@ActiveProfiles("replica")
+@AutoConfigureMockMvc
+class ReadReplicaTest {
+
+    private static final String CLASS_NAME = "Replica Boxing";
+    private static final String MEMBER = "Replica Member";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2099, 7, 1);
+    private static final LocalDate SECOND_DAY = LocalDate.of(2099, 7, 2);
+    private static final String POLLED_CLASS_NAME = "Replica Rowing";
+    private static final String POLLER = "Replica Poller";
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private LocalReplicaSync localReplicaSync;
+
+    @Autowired
+    private ReplicationLag replicationLag;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testReadOnlySearches_ReadTheReplicaUnlessReadYourWritesIsRequested() {
+        // Given: a booking replicated, and the lag measured against the copy
+        clubClassService.createClass(new ClubClassDTO(CLASS_NAME, FIRST_DAY, SECOND_DAY, LocalTime.of(18, 0), 60, 10));
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, MEMBER, FIRST_DAY));
+        replicate();
+        assertTrue(replicationLag.isWithinTolerance());
+        assertEquals(1, streamed().size());
+
+        // When: a second booking is committed on the primary only
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, MEMBER, SECOND_DAY));
+
+        // Then: the replica still serves the old copy, the primary the new booking
+        assertEquals(1, streamed().size());
+        assertEquals(2, ReadRouting.onPrimary(this::streamed).size());
+        // Cached searches too, until the replica has the booking
+        assertEquals(1, searchService.searchBookings(MEMBER, null, null, null).size());
+        assertEquals(2, ReadRouting.onPrimary(() -> searchService.searchBookings(MEMBER, null, null, null)).size());
+
+        // And the replica has it after the next sync
+        replicate();
+        assertEquals(2, streamed().size());
+        assertEquals(2, searchService.searchBookings(MEMBER, null, null, null).size());
+    }
+
+    @Test
+    void testSearchBookings_NotModifiedAcrossHeartbeatsWithoutWrites() throws Exception {
+        // Given: a booking the replica has, and the ETag of a search read from the replica
+        clubClassService.createClass(new ClubClassDTO(POLLED_CLASS_NAME, FIRST_DAY, SECOND_DAY, LocalTime.of(7, 0), 60, 10));
+        bookingService.bookClass(new BookingDTO(POLLED_CLASS_NAME, POLLER, FIRST_DAY));
+        // Twice, so the replica surely has a heartbeat stamped in a later millisecond than the booking
+        replicate();
+        replicate();
+        String etag = mockMvc.perform(get("/api/bookings/search").param("memberName", POLLER))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // When: the replica syncs and beats again, with nothing written meanwhile
+        replicate();
+
+        // Then: the same search is still not modified
+        mockMvc.perform(get("/api/bookings/search").param("memberName", POLLER)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    private void replicate() {
+        replicationLag.heartbeat();
+        localReplicaSync.sync();
+        replicationLag.heartbeat();
+    }
+
+    private List<BookingDTO> streamed() {
+        List<BookingDTO> bookings = new ArrayList<>();
+        searchService.streamBookings(MEMBER, null, null, null, bookings::add);
+        return bookings;
+    }
+}
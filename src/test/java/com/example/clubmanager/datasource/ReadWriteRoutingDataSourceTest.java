@@ -0,0 +1,69 @@
+package com.example.clubmanager.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private ReplicationLag replicationLag;
+
+    private ReadWriteRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        dataSource = new ReadWriteRoutingDataSource(primary, replica, replicationLag);
+        when(replicationLag.isWithinTolerance()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void testWrites_UseThePrimary() {
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void testReadOnlyTransactions_UseTheReplica() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReadWriteRoutingDataSource.Route.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void testReadYourWrites_UsesThePrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY,
+                ReadRouting.onPrimary(() -> dataSource.determineCurrentLookupKey()));
+        // The choice ends with the work it was made for
+        assertEquals(ReadWriteRoutingDataSource.Route.REPLICA, dataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void testLaggingReplica_FallsBackToThePrimary() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(replicationLag.isWithinTolerance()).thenReturn(false);
+
+        assertEquals(ReadWriteRoutingDataSource.Route.PRIMARY, dataSource.determineCurrentLookupKey());
+    }
+}
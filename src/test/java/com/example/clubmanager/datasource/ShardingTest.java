@@ -0,0 +1,113 @@
+package com.example.clubmanager.datasource;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingPageDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.service.BookingService;
+import com.example.clubmanager.service.ClubClassService;
+import com.example.clubmanager.service.OccupancyService;
+import com.example.clubmanager.service.SearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*Spreads classes over three local H2 databases and checks each shard holds its own, while searches see them all*/
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharding-test-0;DB_CLOSE_DELAY=-1",
+        "sharding.urls=jdbc:h2:mem:sharding-test-1;DB_CLOSE_DELAY=-1,jdbc:h2:mem:sharding-test-2;DB_CLOSE_DELAY=-1",
+        "spring.jpa.open-in-view=false"
+})
+class ShardingTest {
+
+    private static final String MEMBER = "Sharded Member";
+    private static final LocalDate START = LocalDate.of(2099, 8, 1);
+
+    @Autowired
+    private Shards shards;
+
+    @Autowired
+    private ShardDataSources shardDataSources;
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private SearchService searchService;
+
+    @Autowired
+    private OccupancyService occupancyService;
+
+    @Test
+    void testClassesLiveOnTheirShard_AndSearchesMergeAllShards() {
+        // Given: one class per shard, booked by the same member, the class of the last shard first
+        assertEquals(3, shards.count());
+        String[] names = new String[shards.count()];
+        for (int i = 0; names[0] == null || names[1] == null || names[2] == null; i++) {
+            String name = "Sharded Class " + i;
+            if (names[shards.ofClass(name)] == null) {
+                names[shards.ofClass(name)] = name;
+            }
+        }
+        for (int shard = 0; shard < names.length; shard++) {
+            clubClassService.createClass(new ClubClassDTO(names[shard], START, START.plusDays(9), LocalTime.of(9, 0), 60, 5));
+            bookingService.bookClass(new BookingDTO(names[shard], MEMBER, START.plusDays(2 - shard)));
+        }
+
+        // Then: every shard holds its class and booking, with ids from its own range, and a copy of the member
+        Long memberId = jdbc(Shards.DIRECTORY).queryForObject("select id from member_model where name = ?", Long.class, MEMBER);
+        for (int shard = 0; shard < names.length; shard++) {
+            JdbcTemplate jdbc = jdbc(shard);
+            Long classId = jdbc.queryForObject("select id from club_class_model where name = ?", Long.class, names[shard]);
+            assertEquals(shard, shards.ofId(classId));
+            assertEquals(1, jdbc.queryForObject("select count(*) from club_class_model where name like 'Sharded Class %'", Integer.class));
+            Long bookingId = bookingId(shard);
+            assertEquals(shard, shards.ofId(bookingId));
+            assertEquals(memberId, jdbc.queryForObject("select member_id from booking_model where id = ?", Long.class, bookingId));
+        }
+
+        // And searches return the bookings of all shards in date order
+        List<String> expected = List.of(names[2], names[1], names[0]);
+        assertEquals(expected, classNames(searchService.searchBookings(MEMBER, null, null, null)));
+        List<BookingDTO> streamed = new ArrayList<>();
+        searchService.streamBookings(MEMBER, null, null, null, streamed::add);
+        assertEquals(expected, classNames(streamed));
+
+        BookingPageDTO first = searchService.searchBookingPage(MEMBER, null, null, null, null, 2);
+        assertEquals(List.of(names[2], names[1]), classNames(first.getBookings()));
+        BookingPageDTO second = searchService.searchBookingPage(MEMBER, null, null, null, first.getNextCursor(), 2);
+        assertEquals(List.of(names[0]), classNames(second.getBookings()));
+        assertNull(second.getNextCursor());
+
+        // And availability, reports and cancellations find the shard of their class
+        assertEquals(4, clubClassService.getAvailability(names[1], START.plusDays(1), START.plusDays(1)).get(0).getRemainingSeats());
+        assertEquals(3, occupancyService.getOccupancy("month", START, START, null).stream()
+                .filter(row -> row.getClassName().startsWith("Sharded Class ")).count());
+        bookingService.cancelBooking(bookingId(2));
+        assertEquals(0, jdbc(2).queryForObject("select count(*) from booking_model", Integer.class));
+        assertEquals(List.of(names[1], names[0]), classNames(searchService.searchBookings(MEMBER, null, null, null)));
+    }
+
+    private JdbcTemplate jdbc(int shard) {
+        return new JdbcTemplate(shardDataSources.get(shard));
+    }
+
+    private Long bookingId(int shard) {
+        return jdbc(shard).queryForObject("select b.id from booking_model b join class_session_model s on s.id = b.class_session_id " +
+                "join club_class_model c on c.id = s.class_id where c.name like 'Sharded Class %'", Long.class);
+    }
+
+    private static List<String> classNames(List<BookingDTO> bookings) {
+        return bookings.stream().map(BookingDTO::getClassName).toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.clubmanager.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardsTest {
+
+    private Shards shards;
+
+    private ExecutorService reader;
+
+    @BeforeEach
+    void setUp() {
+        // Three shards and three fan-out threads: one merged stream takes all of them
+        shards = new Shards(new HashShardRouter(), List.of("shard-1", "shard-2"), 3);
+        reader = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reader.shutdownNow();
+        shards.shutdown();
+    }
+
+    @Test
+    void testFanOut_RejectedWhileEveryThreadIsTaken() throws Exception {
+        // Given: a merged stream whose shards are still reading their cursors after the first row
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> stream = reader.submit(() -> shards.mergeOrdered(Comparator.<Integer>naturalOrder(),
+                (shard, rows) -> {
+                    rows.accept(shard);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, row -> reading.countDown()));
+        assertTrue(reading.await(10, TimeUnit.SECONDS));
+
+        // When & Then: the producers of the stream hold every thread, a fan-out is rejected instead of queued
+        assertThrows(RejectedExecutionException.class, () -> shards.fanOut(shard -> shard));
+
+        // And runs again once the stream is done
+        release.countDown();
+        stream.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(0, 1, 2), retry(() -> shards.fanOut(shard -> shard)));
+    }
+
+    // Finished producers hand their threads back right after the stream ends, not necessarily before it returns
+    private static <T> T retry(Supplier<T> work) throws InterruptedException {
+        List<RuntimeException> failures = new ArrayList<>();
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                return work.get();
+            } catch (RejectedExecutionException e) {
+                failures.add(e);
+                Thread.sleep(20);
+            }
+        }
+        throw failures.get(failures.size() - 1);
+    }
+}
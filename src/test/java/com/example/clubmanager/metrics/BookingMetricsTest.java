@@ -0,0 +1,59 @@
+package com.example.clubmanager.metrics;
+
+import com.example.clubmanager.metrics.BookingMetrics.Outcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BookingMetrics bookingMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bookingMetrics = new BookingMetrics(meterRegistry);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private double count(String outcome) {
+        return meterRegistry.counter("bookings.outcome", "outcome", outcome).count();
+    }
+
+    @Test
+    void testBookingsCountOnceTheTransactionCommits() {
+        bookingMetrics.record(Outcome.SUCCESS, 3);
+        bookingMetrics.record(Outcome.WAITLISTED);
+        assertEquals(0, count("success"));
+        assertEquals(0, count("waitlisted"));
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(3, count("success"));
+        assertEquals(1, count("waitlisted"));
+    }
+
+    @Test
+    void testRolledBackBookingsAreNotCounted() {
+        bookingMetrics.record(Outcome.SUCCESS);
+        bookingMetrics.record(Outcome.FULL);
+
+        // A rollback completes the synchronizations without calling afterCommit
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertEquals(0, count("success"));
+        assertEquals(1, count("full"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.clubmanager.metrics;
+
+import com.example.clubmanager.datasource.HashShardRouter;
+import com.example.clubmanager.datasource.Shards;
+import io.micrometer.core.instrument.DistributionSummary;
+import jakarta.servlet.DispatcherType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RequestMetricsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RequestMetricsFilter(meterRegistry);
+    }
+
+    private MockHttpServletRequest request(String path, String pattern) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, pattern);
+        return request;
+    }
+
+    @Test
+    void testRecordsStatementsPerRequest() throws Exception {
+        StatementCounter inspector = new StatementCounter();
+        // Statements of an earlier request on the same thread are not carried over
+        inspector.inspect("select 1");
+
+        filter.doFilter(request("/api/classes/Pilates/availability", "/api/classes/{name}/availability"),
+                new MockHttpServletResponse(), (req, res) -> {
+                    inspector.inspect("select * from class_session_model");
+                    inspector.inspect("select * from club_class_model");
+                });
+        filter.doFilter(request("/api/classes/Yoga/availability", "/api/classes/{name}/availability"),
+                new MockHttpServletResponse(), (req, res) -> inspector.inspect("select * from class_session_model"));
+
+        DistributionSummary summary = meterRegistry.get("http.server.requests.statements")
+                .tag("uri", "/api/classes/{name}/availability")
+                .summary();
+        assertEquals(2, summary.count());
+        assertEquals(3, summary.totalAmount());
+        assertEquals(2, summary.max());
+    }
+
+    @Test
+    void testCountsStatementsOfShardWorkersAndStreamingThreads() throws Exception {
+        StatementCounter inspector = new StatementCounter();
+        Shards shards = new Shards(new HashShardRouter(), List.of("shard-1", "shard-2"), 8);
+        MockHttpServletRequest request = request("/api/bookings/search", "/api/bookings/search");
+        request.setAsyncSupported(true);
+        AtomicInteger[] requestCounter = new AtomicInteger[1];
+        try {
+            // Given: a request that fans out to three shards, then streams its body from another thread
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                shards.fanOut(shard -> inspector.inspect("select * from booking_model"));
+                shards.mergeOrdered(Comparator.<Integer>naturalOrder(), (shard, rows) -> {
+                    inspector.inspect("select * from booking_model");
+                    rows.accept(shard);
+                }, row -> { });
+                requestCounter[0] = StatementCounter.current();
+                req.startAsync();
+            });
+
+            // Then: nothing is recorded before the body is written
+            assertTrue(meterRegistry.find("http.server.requests.statements").summaries().isEmpty());
+
+            // When: the body is written on a thread of its own, and the async dispatch completes the request
+            CompletableFuture.runAsync(() -> StatementCounter.countingOn(requestCounter[0],
+                    () -> inspector.inspect("select * from booking_model"))).get();
+            request.setAsyncStarted(false);
+            request.setDispatcherType(DispatcherType.ASYNC);
+            filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> { });
+        } finally {
+            shards.shutdown();
+        }
+
+        // Then: the statements of every thread count for the request, once
+        DistributionSummary summary = meterRegistry.get("http.server.requests.statements")
+                .tag("uri", "/api/bookings/search")
+                .summary();
+        assertEquals(1, summary.count());
+        assertEquals(7, summary.totalAmount());
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.clubmanager.repository;
+
+import com.example.clubmanager.metrics.StatementCounter;
+import com.example.clubmanager.model.OccupancyPeriod;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * Guards the indexes of the hot lookups: each statement must not fall back to a table scan. Most mirror a repository
+ * query by hand; the searches are explained as Hibernate generates them, captured through the statement inspector.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+        "com.example.clubmanager.repository.QueryPlanTest$SqlCapture")
+class QueryPlanTest {
+
+    private static final LocalDate START = LocalDate.of(2099, 1, 1);
+    private static final LocalDate END = LocalDate.of(2099, 1, 31);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ClassOccupancyRepository classOccupancyRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String explain(String sql, Object... parameters) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters).toUpperCase();
+    }
+
+    // Runs the repository call, then explains the select it sent with the given parameters in order; trailing
+    // parameters Hibernate adds for the page limit get a small row count
+    private String explainGenerated(Runnable query, Object... parameters) {
+        SqlCapture.STATEMENTS.get().clear();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> query.run());
+        List<String> selects = SqlCapture.STATEMENTS.get().stream()
+                .filter(sql -> sql.trim().toLowerCase().startsWith("select")).toList();
+        assertFalse(selects.isEmpty(), "no select was captured");
+        String sql = selects.get(selects.size() - 1);
+
+        Object[] bound = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+        for (int i = 0; i < bound.length; i++) {
+            bound[i] = i < parameters.length ? parameters[i] : 10;
+        }
+        return explain(sql, bound);
+    }
+
+    @Test
+    void testClassLookupByNameAndPeriod_UsesNameKeyIndex() {
+        String plan = explain("SELECT id FROM club_class_model WHERE name_key = 'pilates' " +
+                "AND start_date <= DATE '2099-03-10' AND end_date >= DATE '2099-03-01'");
+
+        assertTrue(plan.contains("IDX_CLUB_CLASS_NAME_KEY_DATES"), plan);
+        assertFalse(plan.contains("CLUB_CLASS_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testSessionLookupByClassAndDate_UsesUniqueIndex() {
+        String plan = explain("SELECT c.id, s.id FROM club_class_model c " +
+                "LEFT JOIN class_session_model s ON s.class_id = c.id AND s.date = DATE '2099-03-01' " +
+                "WHERE c.name_key = 'pilates'");
+
+        assertTrue(plan.contains("UK_CLASS_SESSION_CLASS_DATE"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void testMemberLookupByName_UsesUniqueKey() {
+        String plan = explain("SELECT id FROM member_model WHERE name_key = 'john doe'");
+
+        assertTrue(plan.contains("UK_MEMBER_NAME_KEY"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void testMemberSearch_UsesMemberIdIndex() {
+        String plan = explain("SELECT c.name, m.name, b.participation_date FROM booking_model b " +
+                "JOIN class_session_model s ON b.class_session_id = s.id " +
+                "JOIN club_class_model c ON s.class_id = c.id " +
+                "JOIN member_model m ON b.member_id = m.id " +
+                "WHERE b.member_id = 42 " +
+                "AND b.participation_date BETWEEN DATE '2099-01-01' AND DATE '2099-12-31'");
+
+        assertTrue(plan.contains("IDX_BOOKING_MEMBER_DATE"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testDateRangeSearch_UsesDateIndex() {
+        String plan = explain("SELECT b.id FROM booking_model b " +
+                "WHERE b.participation_date BETWEEN DATE '2099-01-01' AND DATE '2099-01-31' " +
+                "ORDER BY b.participation_date, b.id");
+
+        assertTrue(plan.contains("IDX_BOOKING_DATE_ID"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testOccupancyReport_UsesPeriodIndex() {
+        String plan = explain("SELECT c.name_key, o.period_start, SUM(o.booked_count) FROM class_occupancy_model o " +
+                "JOIN club_class_model c ON o.class_id = c.id " +
+                "WHERE o.period_type = 'MONTH' AND o.period_start BETWEEN DATE '2099-01-01' AND DATE '2099-12-31' " +
+                "GROUP BY c.name_key, o.period_start");
+
+        assertTrue(plan.contains("IDX_CLASS_OCCUPANCY_PERIOD"), plan);
+        assertFalse(plan.contains("CLASS_OCCUPANCY_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testOccupancyUpdate_UsesUniqueKey() {
+        String plan = explain("UPDATE class_occupancy_model SET booked_count = booked_count + 1 " +
+                "WHERE class_id = 1 AND (period_type = 'WEEK' AND period_start = DATE '2099-03-02' " +
+                "OR period_type = 'MONTH' AND period_start = DATE '2099-03-01')");
+
+        assertTrue(plan.contains("UK_CLASS_OCCUPANCY_PERIOD"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void testEventReplay_UsesClassIdIndex() {
+        String plan = explain("SELECT e.event_type, e.class_session_id, e.booking_id, e.member_id, e.session_date " +
+                "FROM booking_event_model e WHERE e.class_id = 1 ORDER BY e.log_position");
+
+        assertTrue(plan.contains("IDX_BOOKING_EVENT_CLASS_ID"), plan);
+        assertFalse(plan.contains("TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedPageQuery_UsesDateIndex() {
+        String plan = explainGenerated(() -> bookingRepository.findPageAfter(START, 7L, END, PageRequest.of(0, 10)),
+                START, END, START, 7L);
+
+        assertTrue(plan.contains("IDX_BOOKING_DATE_ID"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedMemberPageQuery_UsesMemberIdIndex() {
+        String plan = explainGenerated(() -> bookingRepository.findPageAfterByMemberId(42L, START, 7L, END,
+                PageRequest.of(0, 10)), 42L, START, END, START, 7L);
+
+        assertTrue(plan.contains("IDX_BOOKING_MEMBER_DATE"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedStreamQuery_UsesDateIndex() {
+        String plan = explainGenerated(() -> {
+            try (Stream<?> bookings = bookingRepository.streamBookings(START, END)) {
+                bookings.findFirst();
+            }
+        }, START, END);
+
+        assertTrue(plan.contains("IDX_BOOKING_DATE_ID"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedMemberStreamQuery_UsesMemberIdIndex() {
+        String plan = explainGenerated(() -> {
+            try (Stream<?> bookings = bookingRepository.streamBookingsByMemberId(42L, START, END)) {
+                bookings.findFirst();
+            }
+        }, 42L, START, END);
+
+        assertTrue(plan.contains("IDX_BOOKING_MEMBER_DATE"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedMemberPrefixQuery_UsesMemberIdIndex() {
+        String plan = explainGenerated(() -> bookingRepository.findBookingsByMemberIdIn(List.of(42L, 43L), START, END),
+                42L, 43L, START, END);
+
+        assertTrue(plan.contains("IDX_BOOKING_MEMBER_DATE"), plan);
+        assertFalse(plan.contains("BOOKING_MODEL.TABLESCAN"), plan);
+    }
+
+    @Test
+    void testGeneratedOccupancyQueries_UseIndexes() {
+        String all = explainGenerated(() -> classOccupancyRepository.findOccupancy(OccupancyPeriod.MONTH, START, END),
+                "MONTH", START, END);
+        String named = explainGenerated(() -> classOccupancyRepository.findOccupancyByNameKey(OccupancyPeriod.MONTH,
+                START, END, "pilates"), "MONTH", START, END, "pilates");
+
+        assertTrue(all.contains("IDX_CLASS_OCCUPANCY_PERIOD"), all);
+        assertFalse(all.contains("CLASS_OCCUPANCY_MODEL.TABLESCAN"), all);
+        // The class filter is a plain equality, neither table is scanned for it
+        assertFalse(named.contains("IS NULL"), named);
+        assertFalse(named.contains("TABLESCAN"), named);
+    }
+
+    /*Keeps counting statements like the production inspector, and records them on the current thread*/
+    public static class SqlCapture extends StatementCounter {
+
+        static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get().add(sql);
+            return super.inspect(sql);
+        }
+    }
+}
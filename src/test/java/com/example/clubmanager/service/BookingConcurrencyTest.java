@@ -0,0 +1,208 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.cache.ClassCatalog;
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.repository.BookingRepository;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import com.example.clubmanager.utilities.NameKeys;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BookingConcurrencyTest {
+
+    private static final String CLASS_NAME = "Concurrency Spin";
+    private static final LocalDate HOT_DATE = LocalDate.of(2099, 3, 1);
+    private static final LocalDate COLD_DATE = LocalDate.of(2099, 3, 2);
+    private static final int CAPACITY = 50;
+    private static final int HOT_ATTEMPTS = 2000;
+    private static final int COLD_ATTEMPTS = 40;
+    private static final String WAITLIST_CLASS_NAME = "Concurrency Rowing";
+    private static final LocalDate WAITLIST_DATE = LocalDate.of(2099, 4, 1);
+    private static final int WAITLIST_CAPACITY = 20;
+    private static final int WAITLIST_ATTEMPTS = 60;
+    private static final int TWIN_JOINS = 8;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ClassSessionRepository classSessionRepository;
+
+    @Autowired
+    private ClassCatalog classCatalog;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testBookClass_ParallelBookingsNeverExceedCapacity() throws Exception {
+        clubClassService.createClass(new ClubClassDTO(CLASS_NAME, HOT_DATE, COLD_DATE, LocalTime.of(7, 0), 45, CAPACITY));
+
+        AtomicInteger hotBooked = new AtomicInteger();
+        AtomicInteger hotFull = new AtomicInteger();
+        AtomicInteger coldBooked = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Flood one session while a neighbouring session takes a handful of bookings in parallel
+        for (int i = 0; i < HOT_ATTEMPTS; i++) {
+            BookingDTO booking = new BookingDTO(CLASS_NAME, "Hot Member " + i, HOT_DATE);
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    bookingService.bookClass(booking);
+                    hotBooked.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    assertEquals("Class is full for this date", e.getMessage());
+                    hotFull.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < COLD_ATTEMPTS; i++) {
+            BookingDTO booking = new BookingDTO(CLASS_NAME, "Cold Member " + i, COLD_DATE);
+            futures.add(executor.submit(() -> {
+                start.await();
+                bookingService.bookClass(booking);
+                coldBooked.incrementAndGet();
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Exactly the capacity is sold on the hot session, every other attempt is rejected
+        assertEquals(CAPACITY, hotBooked.get());
+        assertEquals(HOT_ATTEMPTS - CAPACITY, hotFull.get());
+
+        // The neighbouring session was never blocked by the hot row
+        assertEquals(COLD_ATTEMPTS, coldBooked.get());
+
+        // Counter and booking rows agree with each other
+        assertEquals(CAPACITY, bookingRepository.findBookingsByParticipationDateBetween(HOT_DATE, HOT_DATE).size());
+        assertEquals(COLD_ATTEMPTS, bookingRepository.findBookingsByParticipationDateBetween(COLD_DATE, COLD_DATE).size());
+
+        long classId = classCatalog.find(NameKeys.normalize(CLASS_NAME), HOT_DATE).getId();
+        ClassSessionModel hotSession = classSessionRepository.findByClubClassIdAndDate(classId, HOT_DATE);
+        ClassSessionModel coldSession = classSessionRepository.findByClubClassIdAndDate(classId, COLD_DATE);
+        assertEquals(CAPACITY, hotSession.getBookedCount());
+        assertEquals(COLD_ATTEMPTS, coldSession.getBookedCount());
+    }
+
+    @Test
+    void testCancelBooking_RacingBookingsAndPromotionsKeepCountersConsistent() throws Exception {
+        clubClassService.createClass(new ClubClassDTO(WAITLIST_CLASS_NAME, WAITLIST_DATE, WAITLIST_DATE, LocalTime.of(18, 0), 60,
+                WAITLIST_CAPACITY));
+        for (int i = 0; i < WAITLIST_CAPACITY; i++) {
+            bookingService.bookClass(new BookingDTO(WAITLIST_CLASS_NAME, "Early Member " + i, WAITLIST_DATE));
+        }
+        Long classId = jdbc.queryForObject("select id from club_class_model where name = ?", Long.class, WAITLIST_CLASS_NAME);
+        Long sessionId = jdbc.queryForObject("select id from class_session_model where class_id = ? and date = ?",
+                Long.class, classId, WAITLIST_DATE);
+        List<Long> early = jdbc.queryForList("select id from booking_model where class_session_id = ?", Long.class, sessionId);
+
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Cancel every early booking while members who opted in for the waitlist book the same session
+        for (Long bookingId : early) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                assertEquals("success", bookingService.cancelBooking(bookingId).getStatus());
+                return null;
+            }));
+        }
+        for (int i = 0; i < WAITLIST_ATTEMPTS; i++) {
+            BookingDTO booking = new BookingDTO(WAITLIST_CLASS_NAME, "Late Member " + i, WAITLIST_DATE, true);
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (bookingService.bookClass(booking).getStatus().equals("success")) {
+                    booked.incrementAndGet();
+                } else {
+                    waitlisted.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        // Every late member either holds a booking or waits, and nobody does both
+        int bookings = count("select count(*) from booking_model where class_session_id = ?", sessionId);
+        int waiting = count("select count(*) from waitlist_entry_model where class_session_id = ?", sessionId);
+        assertEquals(WAITLIST_ATTEMPTS, booked.get() + waitlisted.get());
+        assertEquals(WAITLIST_ATTEMPTS, bookings + waiting);
+        assertEquals(0, count("select count(*) from booking_model b join waitlist_entry_model w " +
+                "on w.class_session_id = b.class_session_id and w.member_id = b.member_id where b.class_session_id = ?", sessionId));
+
+        // No seat was lost to the race: each cancelled seat went to a late member, so the session is full again
+        assertEquals(WAITLIST_CAPACITY, bookings);
+        assertEquals(WAITLIST_ATTEMPTS - WAITLIST_CAPACITY, waiting);
+
+        // The session counter and the week and month occupancy rows agree with the booking rows
+        assertEquals(bookings, count("select booked_count from class_session_model where id = ?", sessionId));
+        assertEquals(bookings, count("select booked_count from class_occupancy_model where class_id = ? " +
+                "and period_type = 'WEEK'", classId));
+        assertEquals(bookings, count("select booked_count from class_occupancy_model where class_id = ? " +
+                "and period_type = 'MONTH'", classId));
+
+        // Concurrent first joins of one member leave a single entry and agree on its position
+        BookingDTO twin = new BookingDTO(WAITLIST_CLASS_NAME, "Twin Member", WAITLIST_DATE, true);
+        CountDownLatch twinStart = new CountDownLatch(1);
+        List<Future<ApiResponse>> joins = new ArrayList<>();
+        for (int i = 0; i < TWIN_JOINS; i++) {
+            joins.add(executor.submit(() -> {
+                twinStart.await();
+                return bookingService.bookClass(twin);
+            }));
+        }
+        twinStart.countDown();
+        for (Future<ApiResponse> join : joins) {
+            ApiResponse response = join.get(60, TimeUnit.SECONDS);
+            assertEquals("waitlisted", response.getStatus());
+            assertTrue(response.getMessage().endsWith("is number " + (waiting + 1) + " on the waitlist."));
+        }
+        executor.shutdown();
+        assertEquals(waiting + 1, count("select count(*) from waitlist_entry_model where class_session_id = ?", sessionId));
+    }
+
+    private int count(String sql, Long id) {
+        return jdbc.queryForObject(sql, Integer.class, id);
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingIntakeTest {
+
+    @Mock
+    private BookingService bookingService;
+
+    // Runs the writer tasks only when the test says so
+    private final Queue<Runnable> writerTasks = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(bookingService.bookClasses(anyList())).thenAnswer(invocation -> {
+            List<BookingDTO> bookings = invocation.getArgument(0);
+            return bookings.stream().map(booking -> new ApiResponse("success", booking.getMemberName())).toList();
+        });
+    }
+
+    private BookingIntake intake(int capacity, int batchSize) {
+        return new BookingIntake(bookingService, writerTasks::add, true, capacity, batchSize, Duration.ofMinutes(10));
+    }
+
+    private BookingDTO booking(String className, String memberName) {
+        return new BookingDTO(className, memberName, LocalDate.of(2099, 3, 1));
+    }
+
+    private void runWriters() {
+        Runnable task;
+        while ((task = writerTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    void testSubmit_PendingUntilWriterRuns() {
+        BookingIntake intake = intake(100, 100);
+
+        String ticketId = intake.submit(booking("Pilates", "John Doe"));
+        assertEquals("pending", intake.getStatus(ticketId).getStatus());
+
+        runWriters();
+        assertEquals("success", intake.getStatus(ticketId).getStatus());
+        assertEquals("John Doe", intake.getStatus(ticketId).getMessage());
+    }
+
+    @Test
+    void testSubmit_OneWriterPerSessionBooksInBatches() {
+        BookingIntake intake = intake(100, 100);
+
+        intake.submit(booking("Pilates", "John Doe"));
+        intake.submit(booking("PILATES", "Jane Roe"));
+        intake.submit(booking("Pilates", "Max Mustermann"));
+        intake.submit(booking("Yoga", "John Doe"));
+
+        // One writer task per session, however many bookings are queued for it
+        assertEquals(2, writerTasks.size());
+        runWriters();
+        verify(bookingService, times(1)).bookClasses(argThat(bookings -> bookings.size() == 3));
+        verify(bookingService, times(1)).bookClasses(argThat(bookings -> bookings.size() == 1));
+    }
+
+    @Test
+    void testDrain_ReschedulesWhenQueueExceedsBatchSize() {
+        BookingIntake intake = intake(100, 2);
+
+        List<String> ticketIds = List.of(intake.submit(booking("Pilates", "A")),
+                intake.submit(booking("Pilates", "B")),
+                intake.submit(booking("Pilates", "C")));
+
+        runWriters();
+        verify(bookingService, times(2)).bookClasses(anyList());
+        ticketIds.forEach(ticketId -> assertEquals("success", intake.getStatus(ticketId).getStatus()));
+    }
+
+    @Test
+    void testSubmit_RejectedWhenIntakeIsFull() {
+        BookingIntake intake = intake(1, 100);
+
+        assertNotNull(intake.submit(booking("Pilates", "John Doe")));
+        assertNull(intake.submit(booking("Pilates", "Jane Roe")));
+
+        // Capacity is released once the pending booking is processed
+        runWriters();
+        assertNotNull(intake.submit(booking("Pilates", "Jane Roe")));
+    }
+
+    @Test
+    void testProcess_FailedBatchCompletesTicketsWithError() {
+        BookingIntake intake = intake(100, 100);
+        when(bookingService.bookClasses(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        String ticketId = intake.submit(booking("Pilates", "John Doe"));
+        runWriters();
+
+        assertEquals("error", intake.getStatus(ticketId).getStatus());
+    }
+
+    @Test
+    void testGetStatus_UnknownTicket() {
+        assertNull(intake(100, 100).getStatus("unknown"));
+    }
+}
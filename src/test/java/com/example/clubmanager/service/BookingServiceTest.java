@@ -2,7 +2,15 @@ package com.example.clubmanager.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
+import com.example.clubmanager.cache.AvailabilityIndex;
+import com.example.clubmanager.cache.BookingVersions;
+import com.example.clubmanager.cache.ClassCatalog;
+import com.example.clubmanager.cache.MemberDictionary;
+import com.example.clubmanager.datasource.HashShardRouter;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.metrics.BookingMetrics;
 import com.example.clubmanager.utilities.ApiResponse;
+import com.example.clubmanager.dto.AvailabilityDTO;
 import com.example.clubmanager.dto.BookingDTO;
 import com.example.clubmanager.model.BookingModel;
 import com.example.clubmanager.model.ClassSessionModel;
@@ -10,19 +18,25 @@ import com.example.clubmanager.model.ClubClassModel;
 import com.example.clubmanager.repository.BookingRepository;
 import com.example.clubmanager.repository.ClassSessionRepository;
 import com.example.clubmanager.repository.ClubClassRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.validation.BindException;
 import org.springframework.validation.Validator;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -33,17 +47,38 @@ class BookingServiceTest {
     private BookingService bookingService;
 
     @Mock
-    private ClubClassRepository clubClassRepository;
+    private ClassSessionRepository classSessionRepository;
 
     @Mock
-    private ClassSessionRepository classSessionRepository;
+    private ClubClassRepository clubClassRepository;
 
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private MemberDictionary memberDictionary;
+
+    @Mock
+    private OccupancyService occupancyService;
+
+    @Mock
+    private WaitlistService waitlistService;
+
+    @Mock
+    private BookingEventLog bookingEventLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private Validator validator;
 
+    private SimpleMeterRegistry meterRegistry;
+
+    private AvailabilityIndex availabilityIndex;
+
+    private BookingVersions bookingVersions;
+
     private ClubClassModel clubClassModel;
     private ClassSessionModel classSessionModel;
     private BookingDTO bookingDTO;
@@ -51,7 +86,14 @@ class BookingServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        bookingService = new BookingService(bookingRepository, classSessionRepository, clubClassRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        ClassCatalog classCatalog = new ClassCatalog(clubClassRepository);
+        availabilityIndex = new AvailabilityIndex(classCatalog, classSessionRepository);
+        bookingVersions = new BookingVersions();
+        bookingService = new BookingService(bookingRepository, classSessionRepository, clubClassRepository,
+                classCatalog, availabilityIndex, memberDictionary, occupancyService, waitlistService,
+                bookingVersions, bookingEventLog, new BookingMetrics(meterRegistry),
+                new Shards(new HashShardRouter(), List.of(), 8), transactionManager);
 
         bookingDTO = new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 10));
 
@@ -59,15 +101,18 @@ class BookingServiceTest {
                 LocalTime.of(14, 0), 60, 10);
         classSessionModel =
                 new ClassSessionModel(clubClassModel, LocalDate.of(2025, 2, 10), LocalTime.of(14, 0), 10);
+
+        when(memberDictionary.resolveId(anyString())).thenReturn(1L);
+
+        // The class catalog reads through to the repository on first use
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(clubClassModel));
     }
 
     @Test
     void testBookClass_Success() {
         // Arrange
-        when(clubClassRepository.findByNameEqualsIgnoreCase(anyString())).thenReturn(List.of(clubClassModel));
-        when(clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(anyString(), any(LocalDate.class), any(LocalDate.class))).thenReturn(clubClassModel);
-        when(classSessionRepository.findByClubClassAndDate(clubClassModel, bookingDTO.getParticipationDate()))
-                .thenReturn(classSessionModel);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
         when(bookingRepository.save(any(BookingModel.class))).thenReturn(new BookingModel());
 
         // Act
@@ -78,9 +123,29 @@ class BookingServiceTest {
         assertEquals("success", response.getStatus());
         assertEquals("Member John Doe booked for Pilates class successfully.", response.getMessage());
 
-        // Verify repository interactions
+        // Verify repository interactions: one session lookup, one claim, one insert
+        verify(classSessionRepository, times(1)).findByClubClassIdAndDate(clubClassModel.getId(), bookingDTO.getParticipationDate());
+        verify(classSessionRepository, times(1)).claimSeat(any());
         verify(bookingRepository, times(1)).save(any(BookingModel.class));
-        verify(classSessionRepository, times(1)).save(any(ClassSessionModel.class));
+        verify(classSessionRepository, never()).save(any(ClassSessionModel.class));
+        verify(occupancyService, times(1)).seatsClaimed(classSessionModel, 1);
+        verify(bookingEventLog, times(1)).seatBooked(argThat(booking -> booking.getClassSession() == classSessionModel));
+        assertEquals(1, bookingVersions.ofMember(1L));
+    }
+
+    @Test
+    void testBookClass_ClassLookedUpOnceAcrossBookings() {
+        // Arrange
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
+
+        // Act
+        bookingService.bookClass(bookingDTO);
+        bookingService.bookClass(new BookingDTO("PILATES", "Jane Roe", LocalDate.of(2025, 2, 10)));
+
+        // Assert: the second booking is served by the class catalog
+        verify(clubClassRepository, times(1)).findByNameKey("pilates");
+        verify(bookingRepository, times(2)).save(any(BookingModel.class));
     }
 
     // Test Case 2: Class name is null
@@ -135,22 +200,87 @@ class BookingServiceTest {
     @Test
     void testBookClass_Failure_ClassNotFound() {
         // Arrange
-        when(clubClassRepository.findByNameEqualsIgnoreCase(bookingDTO.getClassName())).thenReturn(new ArrayList<>());
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(new ArrayList<>());
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.bookClass(bookingDTO));
         assertEquals("Class not found with the given name", exception.getMessage());
+        // A rejected booking does not create its member
+        verify(memberDictionary, never()).resolveId(any());
+    }
+
+    // Test Case: Class exists but does not run on the participation date
+    @Test
+    void testBookClass_Failure_ClassNotFoundForDate() {
+        // Arrange
+        bookingDTO.setParticipationDate(LocalDate.of(2025, 3, 10));
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.bookClass(bookingDTO));
+        assertEquals("Class not found for the given participation date", exception.getMessage());
+        verify(classSessionRepository, never()).claimSeat(any());
+        verify(memberDictionary, never()).resolveId(any());
+    }
+
+    // Test Case: First booking of a recurring class creates the session for that date
+    @Test
+    void testBookClass_RecurringClass_MaterializesSession() {
+        // Arrange
+        clubClassModel.setRecurring(true);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(null);
+        when(clubClassRepository.lockById(any())).thenReturn(clubClassModel);
+        when(classSessionRepository.saveAndFlush(any(ClassSessionModel.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
+
+        // Act
+        ApiResponse response = bookingService.bookClass(bookingDTO);
+
+        // Assert: the session is created under the class lock, then the seat is claimed
+        assertEquals("success", response.getStatus());
+        verify(clubClassRepository, times(1)).lockById(any());
+        verify(classSessionRepository, times(1)).saveAndFlush(any(ClassSessionModel.class));
+        verify(bookingRepository, times(1)).save(any(BookingModel.class));
+    }
+
+    // Test Case: A recurring class is booked on a day it does not recur on
+    @Test
+    void testBookClass_RecurringClass_OffDayCreatesNoMember() {
+        // Arrange: the class recurs on Mondays only, 2025-02-11 is a Tuesday
+        clubClassModel.setRecurring(true);
+        clubClassModel.setRecurrenceDays(ClubClassModel.recurrenceDaysOf(List.of(DayOfWeek.MONDAY)));
+        BookingDTO offDay = new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 11));
+
+        // Act & Assert: rejected like a missing session, before the member is resolved
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.bookClass(offDay));
+        assertEquals("Class session not found for this date", exception.getMessage());
+        assertEquals("Class session not found for this date", bookingService.bookClasses(List.of(offDay)).get(0).getMessage());
+        verify(memberDictionary, never()).resolveId(any());
+        verify(memberDictionary).createMissing(List.of());
+        verify(clubClassRepository, never()).lockById(any());
+    }
+
+    // Test Case: A concurrent booking created the session while we waited for the class lock
+    @Test
+    void testBookClass_RecurringClass_ReusesConcurrentlyCreatedSession() {
+        // Arrange
+        clubClassModel.setRecurring(true);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(null, classSessionModel);
+        when(clubClassRepository.lockById(any())).thenReturn(clubClassModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
+
+        // Act
+        bookingService.bookClass(bookingDTO);
+
+        // Assert
+        verify(classSessionRepository, never()).saveAndFlush(any(ClassSessionModel.class));
+        verify(bookingRepository, times(1)).save(any(BookingModel.class));
     }
 
     // Test Case 7: Class session not found
     @Test
     void testBookClass_Failure_ClassSessionNotFound() {
         // Arrange
-        when(clubClassRepository.findByNameEqualsIgnoreCase(bookingDTO.getClassName())).thenReturn(List.of(clubClassModel));
-        when(clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(bookingDTO.getClassName(), bookingDTO.getParticipationDate(), bookingDTO.getParticipationDate()))
-                .thenReturn(clubClassModel);
-        when(classSessionRepository.findByClubClassAndDate(clubClassModel, bookingDTO.getParticipationDate()))
-                .thenReturn(null);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(null);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.bookClass(bookingDTO));
@@ -162,22 +292,343 @@ class BookingServiceTest {
     void testBookClass_Failure_ClassIsFull() {
 
         // Mocking to simulate the class is full
-        when(clubClassRepository.findByNameEqualsIgnoreCase(bookingDTO.getClassName())).thenReturn(List.of(clubClassModel));
-        when(clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(bookingDTO.getClassName(), bookingDTO.getParticipationDate(), bookingDTO.getParticipationDate()))
-                .thenReturn(clubClassModel);
-        when(classSessionRepository.findByClubClassAndDate(clubClassModel, bookingDTO.getParticipationDate()))
-                .thenReturn(classSessionModel);
-        when(classSessionRepository.save(any(ClassSessionModel.class))).thenAnswer(invocation -> {
-            classSessionModel.incrementBookingCount();
-            return classSessionModel;
-        });
-
-        classSessionModel.setBookedCount(60); // Set the session as full
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        // The conditional update matches no row when the session is full
+        when(classSessionRepository.claimSeat(any())).thenReturn(0);
 
         // Act & Assert
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.bookClass(bookingDTO));
         assertEquals("Class is full for this date", exception.getMessage());
+
+        // No booking is written for a rejected claim
+        verify(bookingRepository, never()).save(any(BookingModel.class));
+        verify(occupancyService, never()).seatsClaimed(any(), anyInt());
+        assertEquals(1, meterRegistry.counter("bookings.outcome", "outcome", "full").count());
+    }
+
+    // Test Case: A full session puts members who opted in on its waitlist
+    @Test
+    void testBookClass_FullSessionJoinsWaitlist() {
+        // Arrange
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(0);
+        when(waitlistService.join(any(), eq(1L))).thenReturn(3L);
+        bookingDTO.setJoinWaitlist(true);
+
+        // Act
+        ApiResponse response = bookingService.bookClass(bookingDTO);
+
+        // Assert: a position instead of an error, and no booking yet
+        assertEquals("waitlisted", response.getStatus());
+        assertEquals("Class is full for this date, member John Doe is number 3 on the waitlist.", response.getMessage());
+        verify(classSessionRepository, times(1)).lockById(any());
+        verify(bookingRepository, never()).save(any(BookingModel.class));
+        verify(occupancyService, never()).seatsClaimed(any(), anyInt());
+        assertEquals(1, meterRegistry.counter("bookings.outcome", "outcome", "waitlisted").count());
+        assertEquals(0, meterRegistry.counter("bookings.outcome", "outcome", "full").count());
+    }
+
+    // Test Case: A seat released between the failed claim and the waitlist join is booked instead
+    @Test
+    void testBookClass_SeatReleasedBeforeJoinIsBooked() {
+        // Arrange: the first claim finds the session full, the one under the session lock finds a seat
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(0);
+        when(classSessionRepository.claimSeats(any(), eq(1))).thenReturn(1);
+        bookingDTO.setJoinWaitlist(true);
+
+        // Act
+        ApiResponse response = bookingService.bookClass(bookingDTO);
+
+        // Assert
+        assertEquals("success", response.getStatus());
+        verify(classSessionRepository, times(1)).lockById(any());
+        verify(waitlistService, never()).join(any(), anyLong());
+        verify(bookingRepository, times(1)).save(any(BookingModel.class));
+        assertEquals(0, meterRegistry.counter("bookings.outcome", "outcome", "waitlisted").count());
+    }
+
+    // Test Case: Batch items past the seats left join the waitlist when they opted in
+    @Test
+    void testBookClasses_WaitlistsItemsPastClaimedSeats() {
+        // Arrange: one seat left for three items, the last one opted in
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeats(any(), eq(3))).thenReturn(0);
+        when(classSessionRepository.remainingSeats(any())).thenReturn(1, 0);
+        when(classSessionRepository.claimSeats(any(), eq(1))).thenReturn(1);
+        when(waitlistService.join(any(), anyLong())).thenReturn(1L);
+
+        // Act
+        List<ApiResponse> responses = bookingService.bookClasses(List.of(bookingDTO,
+                new BookingDTO("Pilates", "Jane Roe", LocalDate.of(2025, 2, 10)),
+                new BookingDTO("Pilates", "Max Mustermann", LocalDate.of(2025, 2, 10), true)));
+
+        // Assert
+        assertEquals("success", responses.get(0).getStatus());
+        assertEquals("error", responses.get(1).getStatus());
+        assertEquals("waitlisted", responses.get(2).getStatus());
+        verify(waitlistService, times(1)).join(any(), anyLong());
+        verify(classSessionRepository, times(1)).lockById(any());
+        assertEquals(1, meterRegistry.counter("bookings.outcome", "outcome", "full").count());
+    }
+
+    // Test Case: A batch for one session is claimed with a single update and inserted with one saveAll
+    @Test
+    void testBookClasses_GroupsItemsBySession() {
+        // Arrange
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeats(any(), eq(3))).thenReturn(1);
+        List<BookingDTO> batch = List.of(bookingDTO,
+                new BookingDTO("PILATES", "Jane Roe", LocalDate.of(2025, 2, 10)),
+                new BookingDTO("Pilates", "Max Mustermann", LocalDate.of(2025, 2, 10)));
+
+        // Act
+        List<ApiResponse> responses = bookingService.bookClasses(batch);
+
+        // Assert
+        assertEquals(3, responses.size());
+        responses.forEach(response -> assertEquals("success", response.getStatus()));
+        assertEquals("Member Jane Roe booked for PILATES class successfully.", responses.get(1).getMessage());
+        verify(classSessionRepository, times(1)).findByClubClassIdAndDate(any(), any(LocalDate.class));
+        verify(classSessionRepository, times(1)).claimSeats(any(), eq(3));
+        verify(classSessionRepository, never()).claimSeat(any());
+        verify(bookingRepository, times(1)).saveAll(argThat(bookings -> ((List<?>) bookings).size() == 3));
+        verify(bookingEventLog, times(1)).seatsBooked(argThat(bookings -> bookings.size() == 3));
+        verify(occupancyService, times(1)).seatsClaimed(classSessionModel, 3);
+    }
+
+    // Test Case: Only the first items of a group get the seats left on the session
+    @Test
+    void testBookClasses_PartiallyFullSession() {
+        // Arrange: three items, two seats left
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeats(any(), eq(3))).thenReturn(0);
+        when(classSessionRepository.remainingSeats(any())).thenReturn(2);
+        when(classSessionRepository.claimSeats(any(), eq(2))).thenReturn(1);
+        List<BookingDTO> batch = List.of(bookingDTO,
+                new BookingDTO("Pilates", "Jane Roe", LocalDate.of(2025, 2, 10)),
+                new BookingDTO("Pilates", "Max Mustermann", LocalDate.of(2025, 2, 10)));
+
+        // Act
+        List<ApiResponse> responses = bookingService.bookClasses(batch);
+
+        // Assert
+        assertEquals("success", responses.get(0).getStatus());
+        assertEquals("success", responses.get(1).getStatus());
+        assertEquals("error", responses.get(2).getStatus());
+        assertEquals("Class is full for this date", responses.get(2).getMessage());
+        verify(bookingRepository, times(1)).saveAll(argThat(bookings -> ((List<?>) bookings).size() == 2));
+    }
+
+    // Test Case: Sessions are resolved, then claimed, in date order whatever the request order; responses stay in request order
+    @Test
+    void testBookClasses_ClaimsSessionsInClassAndDateOrder() {
+        // Arrange
+        ClassSessionModel laterSession = new ClassSessionModel(clubClassModel, LocalDate.of(2025, 2, 12), LocalTime.of(14, 0), 10);
+        ReflectionTestUtils.setField(classSessionModel, "id", 10L);
+        ReflectionTestUtils.setField(laterSession, "id", 12L);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), eq(LocalDate.of(2025, 2, 10)))).thenReturn(classSessionModel);
+        when(classSessionRepository.findByClubClassIdAndDate(any(), eq(LocalDate.of(2025, 2, 12)))).thenReturn(laterSession);
+        when(classSessionRepository.claimSeats(any(), anyInt())).thenReturn(1);
+
+        // Act
+        List<ApiResponse> responses = bookingService.bookClasses(List.of(
+                new BookingDTO("Pilates", "Jane Roe", LocalDate.of(2025, 2, 12)), bookingDTO));
+
+        // Assert
+        InOrder inOrder = inOrder(classSessionRepository);
+        inOrder.verify(classSessionRepository).findByClubClassIdAndDate(any(), eq(LocalDate.of(2025, 2, 10)));
+        inOrder.verify(classSessionRepository).findByClubClassIdAndDate(any(), eq(LocalDate.of(2025, 2, 12)));
+        inOrder.verify(classSessionRepository).claimSeats(10L, 1);
+        inOrder.verify(classSessionRepository).claimSeats(12L, 1);
+        assertEquals("Member Jane Roe booked for Pilates class successfully.", responses.get(0).getMessage());
+        assertEquals("Member John Doe booked for Pilates class successfully.", responses.get(1).getMessage());
     }
 
+    // Test Case: A failing item does not affect the other items of the batch
+    @Test
+    void testBookClasses_ReportsFailuresPerItem() {
+        // Arrange
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeats(any(), anyInt())).thenReturn(1);
+        when(clubClassRepository.findByNameKey("yoga")).thenReturn(new ArrayList<>());
+        List<BookingDTO> batch = List.of(new BookingDTO("Yoga", "Jane Roe", LocalDate.of(2025, 2, 10)),
+                bookingDTO,
+                new BookingDTO("Pilates", "Max Mustermann", LocalDate.of(2025, 3, 10)));
+
+        // Act
+        List<ApiResponse> responses = bookingService.bookClasses(batch);
+
+        // Assert: results are in request order
+        assertEquals("Class not found with the given name", responses.get(0).getMessage());
+        assertEquals("success", responses.get(1).getStatus());
+        assertEquals("Class not found for the given participation date", responses.get(2).getMessage());
+        verify(classSessionRepository, times(1)).claimSeats(any(), eq(1));
+        // Only the member of the bookable item is resolved, after the batch's new members were created together
+        InOrder inOrder = inOrder(memberDictionary);
+        inOrder.verify(memberDictionary).createMissing(List.of("John Doe"));
+        inOrder.verify(memberDictionary).resolveId("John Doe");
+        verify(memberDictionary, times(1)).resolveId(any());
+    }
+
+    // Test Case: Booking outcomes are counted per item
+    @Test
+    void testBookClasses_CountsOutcomes() {
+        // Arrange: two seats left for three Pilates items, one item for an unknown class
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeats(any(), eq(3))).thenReturn(0);
+        when(classSessionRepository.remainingSeats(any())).thenReturn(2);
+        when(classSessionRepository.claimSeats(any(), eq(2))).thenReturn(1);
+        when(clubClassRepository.findByNameKey("yoga")).thenReturn(new ArrayList<>());
+
+        // Act
+        bookingService.bookClasses(List.of(bookingDTO, bookingDTO, bookingDTO,
+                new BookingDTO("Yoga", "Jane Roe", LocalDate.of(2025, 2, 10))));
+
+        // Assert
+        assertEquals(2, meterRegistry.counter("bookings.outcome", "outcome", "success").count());
+        assertEquals(1, meterRegistry.counter("bookings.outcome", "outcome", "full").count());
+        assertEquals(1, meterRegistry.counter("bookings.outcome", "outcome", "no_class").count());
+        assertEquals(0, meterRegistry.counter("bookings.outcome", "outcome", "no_session").count());
+    }
+
+    // Test Case: Claimed seats are taken off the availability index
+    @Test
+    void testBookClass_UpdatesAvailabilityIndex() {
+        // Arrange: the index is loaded with 10 seats left on the booked date
+        when(classSessionRepository.findAvailabilityByClassId(any())).thenReturn(List.of(
+                new AvailabilityDTO(LocalDate.of(2025, 2, 10), 10)));
+        assertEquals(10, availabilityIndex.getAvailability("pilates", LocalDate.of(2025, 2, 10), LocalDate.of(2025, 2, 10))
+                .get(0).getRemainingSeats());
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
+        when(classSessionRepository.claimSeats(any(), anyInt())).thenReturn(1);
+
+        // Act
+        bookingService.bookClass(bookingDTO);
+        bookingService.bookClasses(List.of(bookingDTO, bookingDTO));
+
+        // Assert: updated in place, without reloading the class
+        assertEquals(7, availabilityIndex.getAvailability("pilates", LocalDate.of(2025, 2, 10), LocalDate.of(2025, 2, 10))
+                .get(0).getRemainingSeats());
+        verify(classSessionRepository, times(1)).findAvailabilityByClassId(any());
+    }
+
+    // Test Case: The member is resolved before the booking transaction starts and referenced by id
+    @Test
+    void testBookClass_ResolvesMemberBeforeTransaction() {
+        // Arrange
+        when(classSessionRepository.findByClubClassIdAndDate(any(), any(LocalDate.class))).thenReturn(classSessionModel);
+        when(classSessionRepository.claimSeat(any())).thenReturn(1);
+        when(memberDictionary.resolveId("John Doe")).thenReturn(42L);
+
+        // Act
+        bookingService.bookClass(bookingDTO);
+
+        // Assert
+        InOrder inOrder = inOrder(memberDictionary, transactionManager);
+        inOrder.verify(memberDictionary).resolveId("John Doe");
+        inOrder.verify(transactionManager).getTransaction(any());
+        verify(bookingRepository).save(argThat(booking -> booking.getMemberId() == 42L));
+    }
+
+    private BookingModel booking() {
+        BookingModel booking = new BookingModel();
+        booking.setMemberId(1L);
+        booking.setClassSession(classSessionModel);
+        booking.setParticipationDate(classSessionModel.getDate());
+        return booking;
+    }
+
+    // Test Case: Cancelling gives the seat back to the session, its counters and the availability index
+    @Test
+    void testCancelBooking_ReleasesSeat() {
+        // Arrange
+        when(classSessionRepository.findAvailabilityByClassId(any())).thenReturn(List.of(
+                new AvailabilityDTO(LocalDate.of(2025, 2, 10), 0)));
+        availabilityIndex.getAvailability("pilates", LocalDate.of(2025, 2, 10), LocalDate.of(2025, 2, 10));
+        when(bookingRepository.findById(7L)).thenReturn(Optional.of(booking()));
+        when(classSessionRepository.lockById(any())).thenReturn(classSessionModel);
+        when(bookingRepository.deleteBookingById(7L)).thenReturn(1);
+        when(classSessionRepository.releaseSeat(any())).thenReturn(1);
+
+        // Act
+        ApiResponse response = bookingService.cancelBooking(7L);
+
+        // Assert
+        assertEquals("success", response.getStatus());
+        verify(classSessionRepository, times(1)).releaseSeat(any());
+        verify(bookingEventLog, times(1)).bookingCancelled(any(BookingModel.class));
+        verify(occupancyService, times(1)).seatsReleased(classSessionModel, 1);
+        assertEquals(1, availabilityIndex.getAvailability("pilates", LocalDate.of(2025, 2, 10), LocalDate.of(2025, 2, 10))
+                .get(0).getRemainingSeats());
+    }
+
+    // Test Case: A seat freed on a session with a waitlist goes to its head, the counters do not move
+    @Test
+    void testCancelBooking_PromotesWaitlist() {
+        // Arrange
+        when(bookingRepository.findById(7L)).thenReturn(Optional.of(booking()));
+        when(classSessionRepository.lockById(any())).thenReturn(classSessionModel);
+        when(bookingRepository.deleteBookingById(7L)).thenReturn(1);
+        when(waitlistService.promote(classSessionModel)).thenReturn(42L);
+
+        // Act
+        ApiResponse response = bookingService.cancelBooking(7L);
+
+        // Assert: the searches of both members are invalidated
+        assertEquals("Booking cancelled, the seat went to the next member on the waitlist.", response.getMessage());
+        assertEquals(1, bookingVersions.ofMember(42L));
+        verify(classSessionRepository, never()).releaseSeat(any());
+        verify(occupancyService, never()).seatsReleased(any(), anyInt());
+    }
+
+    // Test Case: Of two concurrent cancellations only the one deleting the row releases the seat
+    @Test
+    void testCancelBooking_AlreadyCancelled() {
+        // Arrange: the row was deleted between the read and the delete
+        when(bookingRepository.findById(7L)).thenReturn(Optional.of(booking()));
+        when(classSessionRepository.lockById(any())).thenReturn(classSessionModel);
+        when(bookingRepository.deleteBookingById(7L)).thenReturn(0);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> bookingService.cancelBooking(7L));
+        assertEquals("Booking not found", exception.getMessage());
+        verify(classSessionRepository, never()).releaseSeat(any());
+        verify(waitlistService, never()).promote(any());
+        verify(bookingEventLog, never()).bookingCancelled(any());
+    }
+
+    // Test Case: Cancelling a whole session uses set-based statements and releases every seat at once
+    @Test
+    void testCancelSession_ReleasesAllSeats() {
+        // Arrange
+        classSessionModel.setBookedCount(4);
+        when(classSessionRepository.lockByClubClassIdAndDate(any(), eq(LocalDate.of(2025, 2, 10)))).thenReturn(classSessionModel);
+        when(bookingRepository.deleteBySessionId(any())).thenReturn(4);
+
+        // Act
+        ApiResponse response = bookingService.cancelSession("pilates", LocalDate.of(2025, 2, 10));
+
+        // Assert
+        assertEquals("Cancelled 4 bookings of pilates on 2025-02-10.", response.getMessage());
+        InOrder inOrder = inOrder(classSessionRepository, bookingRepository);
+        inOrder.verify(classSessionRepository).lockByClubClassIdAndDate(any(), any());
+        inOrder.verify(bookingRepository).deleteBySessionId(any());
+        inOrder.verify(classSessionRepository).releaseAllSeats(any());
+        verify(waitlistService, times(1)).clear(any());
+        verify(bookingEventLog, times(1)).sessionCancelled(classSessionModel);
+        verify(occupancyService, times(1)).seatsReleased(classSessionModel, 4);
+        verify(bookingRepository, never()).delete(any(BookingModel.class));
+        assertEquals(1, bookingVersions.ofMember(99L));
+    }
+
+    @Test
+    void testCancelSession_UnknownSession() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> bookingService.cancelSession("Pilates", LocalDate.of(2025, 3, 10)));
+        assertEquals("Class session not found for this date", exception.getMessage());
+        verify(bookingRepository, never()).deleteBySessionId(any());
+    }
 
-}
\ No newline at end of file
+}
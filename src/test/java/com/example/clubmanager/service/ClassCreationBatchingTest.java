@@ -0,0 +1,44 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ClassCreationBatchingTest {
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void testCreateClass_ThreeMonthClassUsesAHandfulOfStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // 2099-01-01 to 2099-03-31 is 90 daily sessions
+        ApiResponse response = clubClassService.createClass(new ClubClassDTO("Batch Spin",
+                LocalDate.of(2099, 1, 1), LocalDate.of(2099, 3, 31), LocalTime.of(18, 0), 45, 12));
+
+        assertEquals("success", response.getStatus());
+        // The class, its 90 sessions, occupancy counters for 14 weeks and 3 months, and the creation event
+        assertEquals(109, statistics.getEntityInsertCount());
+
+        // Overlap check, class insert, a few sequence fetches, two session batches instead of 90 inserts, one
+        // occupancy batch and the event insert with its sequence fetch
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= 14, "expected batched session inserts but " + statements + " statements were prepared");
+    }
+}
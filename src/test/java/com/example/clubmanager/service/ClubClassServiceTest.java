@@ -1,19 +1,32 @@
 package com.example.clubmanager.service;
 
+import com.example.clubmanager.cache.AvailabilityIndex;
+import com.example.clubmanager.cache.ClassCatalog;
+import com.example.clubmanager.datasource.HashShardRouter;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.AvailabilityDTO;
+import com.example.clubmanager.model.ClassOccupancyModel;
+import com.example.clubmanager.model.ClassSessionModel;
 import com.example.clubmanager.utilities.ApiResponse;
 import com.example.clubmanager.dto.ClubClassDTO;
 import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.model.OccupancyPeriod;
+import com.example.clubmanager.repository.ClassSessionRepository;
 import com.example.clubmanager.repository.ClubClassRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.validation.BindException;
 import org.springframework.validation.Validator;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +37,15 @@ class ClubClassServiceTest {
     @Mock
     private ClubClassRepository clubClassRepository;
 
+    @Mock
+    private ClassSessionRepository classSessionRepository;
+
+    @Mock
+    private BookingEventLog bookingEventLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private Validator validator;
 
@@ -35,7 +57,10 @@ class ClubClassServiceTest {
     void setUp() {
         MockitoAnnotations.openMocks(this);
 
-        clubClassService = new ClubClassService(clubClassRepository);
+        ClassCatalog classCatalog = new ClassCatalog(clubClassRepository);
+        clubClassService = new ClubClassService(clubClassRepository, classCatalog,
+                new AvailabilityIndex(classCatalog, classSessionRepository), bookingEventLog,
+                new Shards(new HashShardRouter(), List.of(), 8), transactionManager);
 
         // Prepare a valid ClubClassDTO
         validClubClassDTO = new ClubClassDTO("Pilates",
@@ -46,9 +71,8 @@ class ClubClassServiceTest {
 
     @Test
     void testCreateClass_Success() {
-        // Arrange: Mock the repository to return null for the class existence check
-        when(clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(anyString(), any(LocalDate.class), any(LocalDate.class)))
-                .thenReturn(null);  // Simulate no existing class for the given dates
+        // Arrange: Mock the repository to return no class with this name
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of());  // Simulate no existing class for the given dates
 
         // Act: Call the createClass method
         ApiResponse response = clubClassService.createClass(validClubClassDTO);
@@ -59,6 +83,7 @@ class ClubClassServiceTest {
 
         // Verify the repository interaction
         verify(clubClassRepository, times(1)).save(any(ClubClassModel.class));
+        verify(bookingEventLog, times(1)).classCreated(any(ClubClassModel.class));
     }
 
 
@@ -138,9 +163,9 @@ class ClubClassServiceTest {
 
     @Test
     void testCreateClass_ClassAlreadyExists() {
-        // Arrange: Mock the repository to return an existing class
-        when(clubClassRepository.findByNameEqualsIgnoreCaseAndStartDateLessThanEqualAndEndDateGreaterThanEqual(anyString(), any(LocalDate.class), any(LocalDate.class)))
-                .thenReturn(new ClubClassModel());
+        // Arrange: Mock the repository to return an existing class overlapping 2025-02-01 to 2025-02-10
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(new ClubClassModel("Pilates",
+                LocalDate.of(2025, 1, 20), LocalDate.of(2025, 2, 1), LocalTime.of(10, 0), 60, 20)));
 
         // Act: Call the createClass method
         ApiResponse response = clubClassService.createClass(validClubClassDTO);
@@ -153,4 +178,158 @@ class ClubClassServiceTest {
         verify(clubClassRepository, times(0)).save(any(ClubClassModel.class));
     }
 
+    @Test
+    void testCreateClass_Recurring_StoresScheduleWithoutSessions() {
+        // Arrange: a recurring class on Mondays and Wednesdays
+        validClubClassDTO.setRecurring(true);
+        validClubClassDTO.setDaysOfWeek(Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+        ArgumentCaptor<ClubClassModel> captor = ArgumentCaptor.forClass(ClubClassModel.class);
+
+        // Act
+        ApiResponse response = clubClassService.createClass(validClubClassDTO);
+
+        // Assert: the class is saved with its rule and no session rows
+        assertEquals("success", response.getStatus());
+        verify(clubClassRepository, times(1)).save(captor.capture());
+        ClubClassModel saved = captor.getValue();
+        assertTrue(saved.isRecurring());
+        assertTrue(saved.getSessions().isEmpty());
+        assertTrue(saved.runsOn(LocalDate.of(2025, 2, 3)));   // Monday
+        assertFalse(saved.runsOn(LocalDate.of(2025, 2, 4)));  // Tuesday
+    }
+
+    @Test
+    void testCreateClass_DaysOfWeek_OnlyCreatesScheduledSessions() {
+        // Arrange: 2025-02-01 to 2025-02-10 contains two Mondays
+        validClubClassDTO.setDaysOfWeek(Set.of(DayOfWeek.MONDAY));
+        ArgumentCaptor<ClubClassModel> captor = ArgumentCaptor.forClass(ClubClassModel.class);
+
+        // Act
+        clubClassService.createClass(validClubClassDTO);
+
+        // Assert
+        verify(clubClassRepository, times(1)).save(captor.capture());
+        List<ClassSessionModel> sessions = captor.getValue().getSessions();
+        assertEquals(2, sessions.size());
+        assertEquals(LocalDate.of(2025, 2, 3), sessions.get(0).getDate());
+        assertEquals(LocalDate.of(2025, 2, 10), sessions.get(1).getDate());
+    }
+
+    @Test
+    void testCreateClass_CreatesOccupancyCountersForScheduledDates() {
+        // Arrange: Mondays and Wednesdays from Saturday 2025-02-01 to Monday 2025-02-10, recurring or not
+        validClubClassDTO.setRecurring(true);
+        validClubClassDTO.setDaysOfWeek(Set.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+        ArgumentCaptor<ClubClassModel> captor = ArgumentCaptor.forClass(ClubClassModel.class);
+
+        // Act
+        clubClassService.createClass(validClubClassDTO);
+
+        // Assert: one row per month and week with the scheduled sessions and seats, nothing booked yet
+        verify(clubClassRepository, times(1)).save(captor.capture());
+        List<ClassOccupancyModel> occupancy = captor.getValue().getOccupancy();
+        assertEquals(3, occupancy.size());
+        ClassOccupancyModel month = occupancy.get(0);
+        assertEquals(OccupancyPeriod.MONTH, month.getPeriodType());
+        assertEquals(LocalDate.of(2025, 2, 1), month.getPeriodStart());
+        assertEquals(3, month.getSessions());
+        assertEquals(60, month.getCapacity());
+        assertEquals(0, month.getBookedCount());
+        assertEquals(LocalDate.of(2025, 2, 3), occupancy.get(1).getPeriodStart());
+        assertEquals(40, occupancy.get(1).getCapacity());
+        assertEquals(LocalDate.of(2025, 2, 10), occupancy.get(2).getPeriodStart());
+        assertEquals(20, occupancy.get(2).getCapacity());
+    }
+
+    @Test
+    void testCreateClass_AdjacentPeriodIsNotAnOverlap() {
+        // Arrange: the existing class ends the day before the new one starts
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(new ClubClassModel("Pilates",
+                LocalDate.of(2025, 1, 20), LocalDate.of(2025, 1, 31), LocalTime.of(10, 0), 60, 20)));
+
+        // Act
+        ApiResponse response = clubClassService.createClass(validClubClassDTO);
+
+        // Assert
+        assertEquals("success", response.getStatus());
+        verify(clubClassRepository, times(1)).save(any(ClubClassModel.class));
+    }
+
+    @Test
+    void testGetAvailability_FromSessions() {
+        // Arrange: sessions on 2025-02-03 (5 booked) and 2025-02-04 (full)
+        ClubClassModel clubClass = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10),
+                LocalTime.of(10, 0), 60, 20);
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(clubClass));
+        when(classSessionRepository.findAvailabilityByClassId(clubClass.getId())).thenReturn(List.of(
+                new AvailabilityDTO(LocalDate.of(2025, 2, 3), 15),
+                new AvailabilityDTO(LocalDate.of(2025, 2, 4), 0)));
+
+        // Act
+        List<AvailabilityDTO> availability = clubClassService.getAvailability("Pilates",
+                LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 5));
+
+        // Assert: days without a session of a non-recurring class have no seats
+        assertEquals(3, availability.size());
+        assertEquals(15, availability.get(0).getRemainingSeats());
+        assertEquals(0, availability.get(1).getRemainingSeats());
+        assertEquals(0, availability.get(2).getRemainingSeats());
+    }
+
+    @Test
+    void testGetAvailability_RecurringClassComputedFromRule() {
+        // Arrange: no session row exists yet for the requested dates
+        ClubClassModel clubClass = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10),
+                LocalTime.of(10, 0), 60, 20);
+        clubClass.setRecurring(true);
+        clubClass.setRecurrenceDays(ClubClassModel.recurrenceDaysOf(Set.of(DayOfWeek.MONDAY)));
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(clubClass));
+
+        // Act
+        List<AvailabilityDTO> availability = clubClassService.getAvailability("Pilates",
+                LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 4));
+
+        // Assert: full capacity on a scheduled day, none on other days
+        assertEquals(20, availability.get(0).getRemainingSeats());
+        assertEquals(0, availability.get(1).getRemainingSeats());
+    }
+
+    @Test
+    void testGetAvailability_ServedFromIndexAfterFirstLoad() {
+        // Arrange
+        ClubClassModel clubClass = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10),
+                LocalTime.of(10, 0), 60, 20);
+        when(clubClassRepository.findByNameKey("pilates")).thenReturn(List.of(clubClass));
+        when(classSessionRepository.findAvailabilityByClassId(any())).thenReturn(List.of());
+
+        // Act
+        clubClassService.getAvailability("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10));
+        clubClassService.getAvailability("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10));
+
+        // Assert
+        verify(classSessionRepository, times(1)).findAvailabilityByClassId(any());
+    }
+
+    @Test
+    void testGetAvailability_InvalidRange() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> clubClassService.getAvailability("Pilates", LocalDate.of(2025, 2, 5), LocalDate.of(2025, 2, 3)));
+        assertEquals("From date must not be after to date", exception.getMessage());
+
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> clubClassService.getAvailability("Pilates", LocalDate.of(2025, 1, 1), LocalDate.of(2026, 1, 2)));
+        assertEquals("Availability can be requested for at most 366 days", exception.getMessage());
+    }
+
+    @Test
+    void testGetAvailability_ClassNotFound() {
+        // Arrange
+        when(clubClassRepository.findByNameKey(anyString())).thenReturn(List.of());
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> clubClassService.getAvailability("Yoga", LocalDate.of(2025, 2, 3), LocalDate.of(2025, 2, 3)));
+        assertEquals("Class not found with the given name", exception.getMessage());
+    }
+
 }
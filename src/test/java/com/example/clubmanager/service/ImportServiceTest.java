@@ -0,0 +1,165 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import com.example.clubmanager.dto.ImportReportDTO;
+import com.example.clubmanager.utilities.ApiResponse;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.StringReader;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ImportServiceTest {
+
+    @Mock
+    private BookingService bookingService;
+
+    @Mock
+    private ClubClassService clubClassService;
+
+    private ImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        // Chunks of two bookings, so small files already span several transactions
+        importService = new ImportService(bookingService, clubClassService,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2);
+        when(bookingService.bookClasses(anyList())).thenAnswer(invocation -> {
+            List<BookingDTO> bookings = invocation.getArgument(0);
+            return bookings.stream().map(booking -> "Full Member".equals(booking.getMemberName())
+                    ? new ApiResponse("error", "Class is full for this date")
+                    : new ApiResponse("success", "booked")).toList();
+        });
+    }
+
+    @Test
+    void testImportBookings_WritesInChunksAndReportsRejectedLines() throws Exception {
+        // Given: past dates are allowed, the other DTO rules are not relaxed
+        String csv = "className,memberName,participationDate\n" +
+                "Pilates,John Doe,2020-01-06\n" +
+                "Pilates,,2020-01-06\n" +
+                "\"Yoga, Advanced\",Jane Roe,2020-01-07\r\n" +
+                "Pilates,Max Mustermann,06/01/2020\n" +
+                "\n" +
+                "Pilates,Full Member,2020-01-06\n";
+
+        // When
+        ImportReportDTO report = importService.importBookings(new StringReader(csv));
+
+        // Then
+        assertEquals(5, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(3, report.getRejectedCount());
+        assertEquals(3, report.getRejected().get(0).getLine());
+        assertEquals("member name is required", report.getRejected().get(0).getMessage());
+        assertEquals(5, report.getRejected().get(1).getLine());
+        assertEquals("invalid participationDate: 06/01/2020", report.getRejected().get(1).getMessage());
+        assertEquals(7, report.getRejected().get(2).getLine());
+        assertEquals("Class is full for this date", report.getRejected().get(2).getMessage());
+
+        ArgumentCaptor<List<BookingDTO>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(bookingService, times(2)).bookClasses(chunks.capture());
+        assertEquals(2, chunks.getAllValues().get(0).size());
+        assertEquals("Yoga, Advanced", chunks.getAllValues().get(0).get(1).getClassName());
+        assertEquals(1, chunks.getAllValues().get(1).size());
+    }
+
+    @Test
+    void testImportBookings_ColumnsInAnyOrder() throws Exception {
+        // Given
+        String csv = "\uFEFFParticipationDate,MEMBERNAME,className,comment\n" +
+                "2020-01-06,John Doe,Pilates,first visit\n";
+
+        // When
+        ImportReportDTO report = importService.importBookings(new StringReader(csv));
+
+        // Then
+        assertEquals(1, report.getImported());
+        verify(bookingService).bookClasses(argThat(bookings -> bookings.size() == 1 &&
+                bookings.get(0).getClassName().equals("Pilates") &&
+                bookings.get(0).getMemberName().equals("John Doe") &&
+                bookings.get(0).getParticipationDate().equals(LocalDate.of(2020, 1, 6))));
+    }
+
+    @Test
+    void testImportBookings_FailedChunkRejectsItsLines() throws Exception {
+        // Given
+        when(bookingService.bookClasses(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        // When
+        ImportReportDTO report = importService.importBookings(new StringReader(
+                "className,memberName,participationDate\nPilates,John Doe,2020-01-06\n"));
+
+        // Then
+        assertEquals(0, report.getImported());
+        assertEquals("Booking could not be processed", report.getRejected().get(0).getMessage());
+    }
+
+    @Test
+    void testImportBookings_UnreadableRecordEndsTheImportWithAReport() throws Exception {
+        // Given: an unterminated quote on line 4 swallows the rest of the file
+        String csv = "className,memberName,participationDate\n" +
+                "Pilates,John Doe,2020-01-06\n" +
+                "Pilates,Jane Roe,2020-01-06\n" +
+                "\"Pilates,Max Mustermann,2020-01-06\n" +
+                "Pilates,Erika Mustermann,2020-01-06\n";
+
+        // When
+        ImportReportDTO report = importService.importBookings(new StringReader(csv));
+
+        // Then: the rows before it are booked and the record is reported
+        assertEquals(3, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getRejectedCount());
+        assertEquals(4, report.getRejected().get(0).getLine());
+        assertEquals("Unterminated quoted field starting on line 4", report.getRejected().get(0).getMessage());
+    }
+
+    @Test
+    void testImportBookings_MissingColumn() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> importService.importBookings(new StringReader("className,memberName\nPilates,John Doe\n")));
+        assertEquals("Missing column: participationDate", exception.getMessage());
+        verifyNoInteractions(bookingService);
+    }
+
+    @Test
+    void testImportClasses_CreatesEachValidClass() throws Exception {
+        // Given
+        when(clubClassService.createClass(any(ClubClassDTO.class))).thenReturn(new ApiResponse("success", "created"));
+        String csv = "name,startDate,endDate,startTime,duration,capacity,daysOfWeek,recurring\n" +
+                "Pilates,2019-01-01,2019-12-31,10:00,60,20,MONDAY;thursday,true\n" +
+                "Yoga,2019-01-01,2019-12-31,10:00,5,20,,\n" +
+                "Spinning,2019-01-01,2019-12-31,10:00,,20,,\n";
+
+        // When
+        ImportReportDTO report = importService.importClasses(new StringReader(csv));
+
+        // Then
+        assertEquals(3, report.getRows());
+        assertEquals(1, report.getImported());
+        assertEquals("minimum duration required is 10 minutes", report.getRejected().get(0).getMessage());
+        assertEquals("duration is required", report.getRejected().get(1).getMessage());
+
+        ArgumentCaptor<ClubClassDTO> created = ArgumentCaptor.forClass(ClubClassDTO.class);
+        verify(clubClassService, times(1)).createClass(created.capture());
+        assertEquals(LocalTime.of(10, 0), created.getValue().getStartTime());
+        assertEquals(Set.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY), created.getValue().getDaysOfWeek());
+        assertTrue(created.getValue().isRecurring());
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.datasource.HashShardRouter;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.OccupancyDTO;
+import com.example.clubmanager.model.ClassOccupancyModel;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.model.ClubClassModel;
+import com.example.clubmanager.model.OccupancyPeriod;
+import com.example.clubmanager.repository.ClassOccupancyRepository;
+import com.example.clubmanager.repository.ClassSessionRepository;
+import com.example.clubmanager.repository.ClubClassRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OccupancyServiceTest {
+
+    @Mock
+    private ClassOccupancyRepository classOccupancyRepository;
+
+    @Mock
+    private ClubClassRepository clubClassRepository;
+
+    @Mock
+    private ClassSessionRepository classSessionRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private OccupancyService occupancyService;
+
+    private ClubClassModel clubClass;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        occupancyService = new OccupancyService(classOccupancyRepository, clubClassRepository, classSessionRepository,
+                new Shards(new HashShardRouter(), List.of(), 8), transactionManager);
+
+        // Mondays from 2025-02-01 to 2025-02-10: the 3rd and the 10th
+        clubClass = new ClubClassModel("Pilates", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 10),
+                LocalTime.of(10, 0), 60, 20);
+        clubClass.setId(7L);
+        clubClass.setRecurrenceDays(ClubClassModel.recurrenceDaysOf(Set.of(DayOfWeek.MONDAY)));
+    }
+
+    private ClassSessionModel session(LocalDate date, int bookedCount) {
+        ClassSessionModel session = new ClassSessionModel(clubClass, date, LocalTime.of(10, 0), 20);
+        session.setBookedCount(bookedCount);
+        return session;
+    }
+
+    @Test
+    void testSeatsClaimed_AddsToWeekAndMonthOfSession() {
+        occupancyService.seatsClaimed(session(LocalDate.of(2025, 2, 5), 3), 2);
+
+        verify(classOccupancyRepository, times(1)).addBookedSeats(eq(7L), any(),
+                eq(LocalDate.of(2025, 2, 3)), eq(LocalDate.of(2025, 2, 1)), eq(2));
+    }
+
+    @Test
+    void testGetOccupancy_CoversPeriodContainingFrom() {
+        // Given
+        List<OccupancyDTO> rows = List.of(new OccupancyDTO("Pilates", LocalDate.of(2025, 2, 3), 1L, 20L, 15L, 0L));
+        when(classOccupancyRepository.findOccupancyByNameKey(OccupancyPeriod.WEEK, LocalDate.of(2025, 2, 3),
+                LocalDate.of(2025, 2, 20), "pilates")).thenReturn(rows);
+
+        // When
+        List<OccupancyDTO> result = occupancyService.getOccupancy("Week", LocalDate.of(2025, 2, 5),
+                LocalDate.of(2025, 2, 20), " PILATES");
+
+        // Then
+        assertEquals(rows, result);
+        assertEquals(0.75, result.get(0).getFillRate());
+    }
+
+    @Test
+    void testGetOccupancy_InvalidArguments() {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> occupancyService.getOccupancy("year", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 1), null));
+        assertEquals("Period must be week or month", exception.getMessage());
+
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> occupancyService.getOccupancy("month", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 2, 1), null));
+        assertEquals("From date must not be after to date", exception.getMessage());
+    }
+
+    @Test
+    void testRebuild_RecountsFromSessions() {
+        // Given: a stale counter, one for a period the class no longer runs in, and the rest missing
+        ClassOccupancyModel stale = new ClassOccupancyModel(clubClass, OccupancyPeriod.WEEK, LocalDate.of(2025, 2, 3));
+        stale.setBookedCount(3);
+        ClassOccupancyModel obsolete = new ClassOccupancyModel(clubClass, OccupancyPeriod.WEEK, LocalDate.of(2025, 1, 27));
+        when(clubClassRepository.findAllIds()).thenReturn(List.of(7L));
+        when(classOccupancyRepository.lockByClassId(7L)).thenReturn(new ArrayList<>(List.of(stale, obsolete)));
+        when(clubClassRepository.lockById(7L)).thenReturn(clubClass);
+        when(classSessionRepository.lockByClubClassId(7L)).thenReturn(List.of(
+                session(LocalDate.of(2025, 2, 3), 20),
+                session(LocalDate.of(2025, 2, 10), 5)));
+
+        // When
+        assertEquals(1, occupancyService.rebuild());
+
+        // Then: the class, its sessions and its counters were locked in the order the booking path takes them
+        InOrder inOrder = inOrder(clubClassRepository, classSessionRepository, classOccupancyRepository);
+        inOrder.verify(clubClassRepository).lockById(7L);
+        inOrder.verify(classSessionRepository).lockByClubClassId(7L);
+        inOrder.verify(classOccupancyRepository).lockByClassId(7L);
+
+        assertEquals(20, stale.getBookedCount());
+        assertEquals(1, stale.getFullSessions());
+        assertEquals(20, stale.getCapacity());
+        verify(classOccupancyRepository, times(1)).delete(obsolete);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<ClassOccupancyModel>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(classOccupancyRepository, times(1)).saveAll(captor.capture());
+        List<ClassOccupancyModel> added = new ArrayList<>();
+        captor.getValue().forEach(added::add);
+        assertEquals(2, added.size());
+        ClassOccupancyModel month = added.stream()
+                .filter(row -> row.getPeriodType() == OccupancyPeriod.MONTH).findFirst().orElseThrow();
+        assertEquals(2, month.getSessions());
+        assertEquals(40, month.getCapacity());
+        assertEquals(25, month.getBookedCount());
+        assertEquals(1, month.getFullSessions());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testRebuild_ClassWithoutCounters_CreatesThemFromLockedSessions() {
+        // Given: a class created before occupancy was recorded; a claim on it committed while the rebuild waited
+        when(clubClassRepository.lockById(7L)).thenReturn(clubClass);
+        when(classSessionRepository.lockByClubClassId(7L)).thenReturn(List.of(session(LocalDate.of(2025, 2, 3), 1)));
+        when(classOccupancyRepository.lockByClassId(7L)).thenReturn(new ArrayList<>());
+        when(classOccupancyRepository.findClassIdsWithoutOccupancy()).thenReturn(List.of(7L));
+
+        // When
+        occupancyService.backfill();
+
+        // Then: the claim is in the counters created for the class
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterable<ClassOccupancyModel>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(classOccupancyRepository, times(1)).saveAll(captor.capture());
+        List<ClassOccupancyModel> added = new ArrayList<>();
+        captor.getValue().forEach(added::add);
+        assertEquals(3, added.size());
+        for (ClassOccupancyModel row : added) {
+            boolean counted = row.getPeriodType() == OccupancyPeriod.MONTH || row.getPeriodStart().equals(LocalDate.of(2025, 2, 3));
+            assertEquals(counted ? 1 : 0, row.getBookedCount());
+        }
+    }
+
+    @Test
+    void testBackfill_OnlyClassesWithoutCounters() {
+        when(classOccupancyRepository.findClassIdsWithoutOccupancy()).thenReturn(List.of());
+
+        occupancyService.backfill();
+
+        verify(classOccupancyRepository, never()).lockByClassId(any());
+        verify(clubClassRepository, never()).findAllIds();
+    }
+}
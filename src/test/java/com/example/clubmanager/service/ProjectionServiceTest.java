@@ -0,0 +1,130 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.ClubClassDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ProjectionServiceTest {
+
+    private static final String CLASS_NAME = "Projection Yoga";
+    private static final String UNLOGGED_CLASS_NAME = "Projection Barre";
+    private static final String INTERLEAVED_CLASS_NAME = "Projection Spinning";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2099, 6, 1);
+    private static final LocalDate SECOND_DAY = LocalDate.of(2099, 6, 2);
+
+    @Autowired
+    private ProjectionService projectionService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private ClubClassService clubClassService;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void testRebuild_RestoresCountersAndBookingsFromTheLog() {
+        // Given: a history of bookings and a cancellation, recorded in the log
+        clubClassService.createClass(new ClubClassDTO(CLASS_NAME, FIRST_DAY, LocalDate.of(2099, 6, 3), LocalTime.of(8, 0), 60, 10));
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, "Projection Member 1", FIRST_DAY));
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, "Projection Member 2", FIRST_DAY));
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, "Projection Member 3", FIRST_DAY));
+        bookingService.bookClass(new BookingDTO(CLASS_NAME, "Projection Member 4", SECOND_DAY));
+        Long classId = jdbc.queryForObject("select id from club_class_model where name = ?", Long.class, CLASS_NAME);
+        bookingService.cancelBooking(bookingId(classId, FIRST_DAY));
+
+        // And read models that drifted: a wrong counter and a lost booking row
+        jdbc.update("update class_session_model set booked_count = 9 where class_id = ? and date = ?", classId, FIRST_DAY);
+        Long lost = bookingId(classId, SECOND_DAY);
+        jdbc.update("delete from booking_model where id = ?", lost);
+
+        // When
+        ProjectionService.Corrections corrections = projectionService.rebuild(classId, false);
+
+        // Then
+        assertEquals(1, corrections.sessions);
+        assertEquals(1, corrections.bookings);
+        assertEquals(2, bookedCount(classId, FIRST_DAY));
+        assertEquals(1, bookedCount(classId, SECOND_DAY));
+        assertEquals(1, jdbc.queryForObject("select count(*) from booking_model where id = ?", Integer.class, lost));
+        assertEquals(3, jdbc.queryForObject("select booked_count from class_occupancy_model " +
+                "where class_id = ? and period_type = 'MONTH'", Integer.class, classId));
+        assertEquals(8, clubClassService.getAvailability(CLASS_NAME, FIRST_DAY, FIRST_DAY).get(0).getRemainingSeats());
+
+        // A second replay finds nothing to correct
+        corrections = projectionService.rebuild(classId, false);
+        assertEquals(0, corrections.sessions);
+        assertEquals(0, corrections.bookings);
+    }
+
+    @Test
+    void testRebuild_KeepsBookingRowsWithoutEventsUnlessAsked() {
+        // Given: a booking row written without its event, as by a write path that bypassed the log
+        clubClassService.createClass(new ClubClassDTO(UNLOGGED_CLASS_NAME, FIRST_DAY, FIRST_DAY, LocalTime.of(8, 0), 60, 10));
+        bookingService.bookClass(new BookingDTO(UNLOGGED_CLASS_NAME, "Projection Member 5", FIRST_DAY));
+        Long classId = jdbc.queryForObject("select id from club_class_model where name = ?", Long.class, UNLOGGED_CLASS_NAME);
+        Long unlogged = bookingId(classId, FIRST_DAY);
+        jdbc.update("delete from booking_event_model where booking_id = ?", unlogged);
+
+        // When: a plain rebuild reports the row and keeps its seat
+        ProjectionService.Corrections corrections = projectionService.rebuild(classId, false);
+
+        // Then
+        assertEquals(1, corrections.unlogged);
+        assertEquals(0, corrections.bookings);
+        assertEquals(0, corrections.sessions);
+        assertEquals(1, jdbc.queryForObject("select count(*) from booking_model where id = ?", Integer.class, unlogged));
+        assertEquals(1, bookedCount(classId, FIRST_DAY));
+
+        // When: asked to, the rebuild deletes it and releases its seat
+        corrections = projectionService.rebuild(classId, true);
+
+        // Then
+        assertEquals(1, corrections.unlogged);
+        assertEquals(1, corrections.bookings);
+        assertEquals(0, jdbc.queryForObject("select count(*) from booking_model where id = ?", Integer.class, unlogged));
+        assertEquals(0, bookedCount(classId, FIRST_DAY));
+    }
+
+    @Test
+    void testRebuild_ReplaysInAppendOrderWhateverTheIds() {
+        // Given: a booking and its cancellation, the cancellation with the lower id, as from the pooled id block
+        // another node allocated earlier
+        clubClassService.createClass(new ClubClassDTO(INTERLEAVED_CLASS_NAME, FIRST_DAY, FIRST_DAY, LocalTime.of(8, 0), 60, 10));
+        bookingService.bookClass(new BookingDTO(INTERLEAVED_CLASS_NAME, "Projection Member 6", FIRST_DAY));
+        Long classId = jdbc.queryForObject("select id from club_class_model where name = ?", Long.class, INTERLEAVED_CLASS_NAME);
+        Long cancelled = bookingId(classId, FIRST_DAY);
+        bookingService.cancelBooking(cancelled);
+        jdbc.update("update booking_event_model set id = -id where booking_id = ? and event_type = 'BOOKING_CANCELLED'", cancelled);
+
+        // When
+        ProjectionService.Corrections corrections = projectionService.rebuild(classId, false);
+
+        // Then: the booking stays cancelled
+        assertEquals(0, corrections.bookings);
+        assertEquals(0, corrections.sessions);
+        assertEquals(0, jdbc.queryForObject("select count(*) from booking_model where id = ?", Integer.class, cancelled));
+        assertEquals(0, bookedCount(classId, FIRST_DAY));
+    }
+
+    private Long bookingId(Long classId, LocalDate date) {
+        return jdbc.queryForObject("select min(b.id) from booking_model b join class_session_model s on s.id = b.class_session_id " +
+                "where s.class_id = ? and s.date = ?", Long.class, classId, date);
+    }
+
+    private int bookedCount(Long classId, LocalDate date) {
+        return jdbc.queryForObject("select booked_count from class_session_model where class_id = ? and date = ?",
+                Integer.class, classId, date);
+    }
+}
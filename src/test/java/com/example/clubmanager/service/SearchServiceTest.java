@@ -1,16 +1,34 @@
 package com.example.clubmanager.service;
 
-import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.cache.BookingVersions;
+import com.example.clubmanager.cache.MemberDictionary;
+import com.example.clubmanager.cache.MemberNameIndex;
+import com.example.clubmanager.cache.SearchResultCache;
+import com.example.clubmanager.datasource.HashShardRouter;
+import com.example.clubmanager.datasource.ReadRouting;
+import com.example.clubmanager.datasource.ReplicationLag;
+import com.example.clubmanager.datasource.Shards;
+import com.example.clubmanager.dto.BookingDTO;
+import com.example.clubmanager.dto.BookingPageDTO;
+import com.example.clubmanager.dto.BookingRowDTO;
 import com.example.clubmanager.repository.BookingRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -19,32 +37,51 @@ public class SearchServiceTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private MemberDictionary memberDictionary;
+
+    @Mock
+    private MemberNameIndex memberNameIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ObjectProvider<ReplicationLag> replicationLag;
+
+    @Mock
+    private ReplicationLag lag;
+
+    private BookingVersions bookingVersions;
+
     private SearchService searchService;
 
-    private BookingModel booking;
+    private BookingDTO booking;
 
     @BeforeEach
     void setUp() {
         // Setup mock data
-        searchService = new SearchService(bookingRepository);
-        booking = new BookingModel();
-        booking.setMemberName("John Doe");
-        booking.setParticipationDate(LocalDate.of(2025, 2, 10));
+        MockitoAnnotations.openMocks(this);
+        bookingVersions = new BookingVersions();
+        searchService = new SearchService(bookingRepository, memberDictionary, memberNameIndex, bookingVersions,
+                new SearchResultCache(100), new Shards(new HashShardRouter(), List.of(), 8), replicationLag, transactionManager);
+        when(memberDictionary.findId("John Doe")).thenReturn(1L);
+        booking = new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 10));
     }
 
     @Test
     void testSearchBookings_ByMemberName() {
         // Given
-        when(bookingRepository.findByMemberNameEqualsIgnoreCase("John Doe")).thenReturn(List.of(booking));
+        when(bookingRepository.findBookingsByMemberId(1L)).thenReturn(List.of(booking));
 
         // When
-        List<BookingModel> result = searchService.searchBookings("John Doe", null, null);
+        List<BookingDTO> result = searchService.searchBookings("John Doe", null, null, null);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("John Doe", result.get(0).getMemberName());
-        verify(bookingRepository, times(1)).findByMemberNameEqualsIgnoreCase("John Doe");
+        verify(bookingRepository, times(1)).findBookingsByMemberId(1L);
     }
 
     @Test
@@ -52,16 +89,16 @@ public class SearchServiceTest {
         // Given
         LocalDate startDate = LocalDate.of(2025, 2, 1);
         LocalDate endDate = LocalDate.of(2025, 2, 20);
-        when(bookingRepository.findByParticipationDateBetween(startDate, endDate)).thenReturn(List.of(booking));
+        when(bookingRepository.findBookingsByParticipationDateBetween(startDate, endDate)).thenReturn(List.of(booking));
 
         // When
-        List<BookingModel> result = searchService.searchBookings(null, startDate, endDate);
+        List<BookingDTO> result = searchService.searchBookings(null, null, startDate, endDate);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("John Doe", result.get(0).getMemberName());
-        verify(bookingRepository, times(1)).findByParticipationDateBetween(startDate, endDate);
+        verify(bookingRepository, times(1)).findBookingsByParticipationDateBetween(startDate, endDate);
     }
 
     @Test
@@ -69,58 +106,276 @@ public class SearchServiceTest {
         // Given
         LocalDate startDate = LocalDate.of(2025, 2, 1);
         LocalDate endDate = LocalDate.of(2025, 2, 20);
-        when(bookingRepository.findByMemberNameEqualsIgnoreCaseAndParticipationDateBetween("John Doe", startDate, endDate))
+        when(bookingRepository.findBookingsByMemberIdAndParticipationDateBetween(1L, startDate, endDate))
                 .thenReturn(List.of(booking));
 
         // When
-        List<BookingModel> result = searchService.searchBookings("John Doe", startDate, endDate);
+        List<BookingDTO> result = searchService.searchBookings("John Doe", null, startDate, endDate);
 
         // Then
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals("John Doe", result.get(0).getMemberName());
-        verify(bookingRepository, times(1)).findByMemberNameEqualsIgnoreCaseAndParticipationDateBetween("John Doe", startDate, endDate);
+        verify(bookingRepository, times(1)).findBookingsByMemberIdAndParticipationDateBetween(1L, startDate, endDate);
     }
 
     @Test
     void testSearchBookings_WithoutCriteria() {
+        // When & Then: a list of every booking is refused, without a query
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchBookings(null, null, LocalDate.of(2025, 2, 1), null));
+        assertEquals("Search by member or by start and end date, or page with limit and cursor", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> searchService.searchBookings(null, null, null, null));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testSearchBookings_WhenNoResultsFound() {
         // Given
-        when(bookingRepository.findAll()).thenReturn(List.of(booking));
+        when(bookingRepository.findBookingsByMemberId(SearchService.UNKNOWN_MEMBER)).thenReturn(List.of());
 
         // When
-        List<BookingModel> result = searchService.searchBookings(null, null, null);
+        List<BookingDTO> result = searchService.searchBookings("Non Existent", null, null, null);
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("John Doe", result.get(0).getMemberName());
-        verify(bookingRepository, times(1)).findAll();
+        assertTrue(result.isEmpty());
+        verify(bookingRepository, times(1)).findBookingsByMemberId(SearchService.UNKNOWN_MEMBER);
     }
 
     @Test
-    void testSearchBookings_WhenNoResultsFound() {
+    void testSearchBookings_WithNullResults() {
         // Given
-        when(bookingRepository.findByMemberNameEqualsIgnoreCase("Non Existent")).thenReturn(List.of());
+        when(bookingRepository.findBookingsByMemberId(1L)).thenReturn(null);
 
         // When
-        List<BookingModel> result = searchService.searchBookings("Non Existent", null, null);
+        List<BookingDTO> result = searchService.searchBookings("John Doe", null, null, null);
 
         // Then
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(bookingRepository, times(1)).findByMemberNameEqualsIgnoreCase("Non Existent");
+        assertNull(result);
+        verify(bookingRepository, times(1)).findBookingsByMemberId(1L);
     }
 
     @Test
-    void testSearchBookings_WithNullResults() {
+    void testSearchBookingPage_ReturnsCursorWhenMoreRowsFollow() {
+        // Given: the repository returns one row more than the page size
+        when(bookingRepository.findPageAfter(SearchService.FIRST_DATE, Long.MIN_VALUE, SearchService.LAST_DATE,
+                PageRequest.of(0, 3)))
+                .thenReturn(List.of(
+                        new BookingRowDTO(1L, "Pilates", "John Doe", LocalDate.of(2025, 2, 10)),
+                        new BookingRowDTO(7L, "Pilates", "Jane Roe", LocalDate.of(2025, 2, 10)),
+                        new BookingRowDTO(3L, "Yoga", "John Doe", LocalDate.of(2025, 2, 11))));
+
+        // When
+        BookingPageDTO page = searchService.searchBookingPage(null, null, null, null, null, 2);
+
+        // Then
+        assertEquals(2, page.getBookings().size());
+        assertEquals("Jane Roe", page.getBookings().get(1).getMemberName());
+        assertEquals("2025-02-10_7", page.getNextCursor());
+    }
+
+    @Test
+    void testSearchBookingPage_ContinuesAfterCursor() {
+        // Given
+        LocalDate startDate = LocalDate.of(2025, 2, 1);
+        when(bookingRepository.findPageAfterByMemberId(1L, LocalDate.of(2025, 2, 10), 7L, SearchService.LAST_DATE,
+                PageRequest.of(0, SearchService.DEFAULT_PAGE_SIZE + 1)))
+                .thenReturn(List.of(new BookingRowDTO(3L, "Yoga", "John Doe", LocalDate.of(2025, 2, 11))));
+
+        // When
+        BookingPageDTO page = searchService.searchBookingPage("John Doe", null, startDate, null, "2025-02-10_7", null);
+
+        // Then: a short page is the last one
+        assertEquals(1, page.getBookings().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testSearchBookingPage_CursorBeforeStartDateStartsAtStartDate() {
         // Given
-        when(bookingRepository.findByMemberNameEqualsIgnoreCase("John Doe")).thenReturn(null);
+        LocalDate startDate = LocalDate.of(2025, 3, 1);
+        LocalDate endDate = LocalDate.of(2025, 3, 31);
+        when(bookingRepository.findPageAfter(any(), any(), any(), any())).thenReturn(List.of());
 
         // When
-        List<BookingModel> result = searchService.searchBookings("John Doe", null, null);
+        searchService.searchBookingPage(null, null, startDate, endDate, "2025-02-10_7", 10);
 
         // Then
-        assertNull(result);
-        verify(bookingRepository, times(1)).findByMemberNameEqualsIgnoreCase("John Doe");
+        verify(bookingRepository, times(1)).findPageAfter(startDate, Long.MIN_VALUE, endDate, PageRequest.of(0, 11));
+    }
+
+    @Test
+    void testSearchBookingPage_CapsPageSize() {
+        // Given
+        when(bookingRepository.findPageAfter(any(), any(), any(), any())).thenReturn(List.of());
+
+        // When
+        searchService.searchBookingPage(null, null, null, null, null, 100_000);
+
+        // Then
+        verify(bookingRepository, times(1)).findPageAfter(SearchService.FIRST_DATE, Long.MIN_VALUE,
+                SearchService.LAST_DATE, PageRequest.of(0, SearchService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testSearchBookingPage_InvalidCursor() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchBookingPage(null, null, null, null, "not-a-cursor", null));
+        assertEquals("Invalid cursor", exception.getMessage());
+    }
+
+    @Test
+    void testSearchBookings_ByMemberId() {
+        // Given
+        when(bookingRepository.findBookingsByMemberId(42L)).thenReturn(List.of(booking));
+
+        // When
+        List<BookingDTO> result = searchService.searchBookings(null, 42L, null, null);
+
+        // Then: the id is used as given, without a dictionary lookup
+        assertEquals(1, result.size());
+        verify(memberDictionary, never()).findId(any());
+    }
+
+    @Test
+    void testSearchBookings_ByMemberNameAndId() {
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> searchService.searchBookings("John Doe", 42L, null, null));
+        assertEquals("Search by member name or member id, not both", exception.getMessage());
+    }
+
+    @Test
+    void testSearchBookingsByMemberPrefix_BestMatchingMemberFirst() {
+        // Given: the index ranks Johanna Smith (7) before John Doe (1), the query returns date order
+        BookingDTO johanna = new BookingDTO("Yoga", "Johanna Smith", LocalDate.of(2025, 2, 11));
+        when(memberNameIndex.search("joh", SearchService.MEMBER_MATCHES)).thenReturn(List.of(7L, 1L));
+        when(memberNameIndex.keyOf(7L)).thenReturn("johanna smith");
+        when(memberNameIndex.keyOf(1L)).thenReturn("john doe");
+        when(bookingRepository.findBookingsByMemberIdIn(List.of(7L, 1L), SearchService.FIRST_DATE, SearchService.LAST_DATE))
+                .thenReturn(List.of(booking, johanna));
+
+        // When
+        List<BookingDTO> result = searchService.searchBookingsByMemberPrefix("joh", null, null);
+
+        // Then
+        assertEquals(List.of(johanna, booking), result);
+    }
+
+    @Test
+    void testSearchBookingsByMemberPrefix_NoMatchingMember() {
+        when(memberNameIndex.search("zz", SearchService.MEMBER_MATCHES)).thenReturn(List.of());
+
+        assertTrue(searchService.searchBookingsByMemberPrefix("zz", null, null).isEmpty());
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testSearchBookings_CachedUntilMemberVersionChanges() {
+        // Given
+        when(bookingRepository.findBookingsByMemberId(1L)).thenReturn(List.of(booking));
+
+        // When: the same search twice, then again after a booking of the member
+        searchService.searchBookings("John Doe", null, null, null);
+        List<BookingDTO> cached = searchService.searchBookings("John Doe", null, null, null);
+        bookingVersions.bookingChanged(2L, LocalDate.of(2025, 2, 10));
+        searchService.searchBookings("John Doe", null, null, null);
+        verify(bookingRepository, times(1)).findBookingsByMemberId(1L);
+
+        bookingVersions.bookingChanged(1L, LocalDate.of(2025, 2, 10));
+        searchService.searchBookings("John Doe", null, null, null);
+
+        // Then: only the member's own booking invalidated the cached result
+        assertEquals(List.of(booking), cached);
+        verify(bookingRepository, times(2)).findBookingsByMemberId(1L);
+    }
+
+    @Test
+    void testSearchBookings_ReplicaResultsKeyedByTheHeartbeatItApplied() {
+        // Given: a booking of the member, and a replica whose heartbeat was stamped before it
+        when(replicationLag.getIfAvailable()).thenReturn(lag);
+        bookingVersions.bookingChanged(1L, LocalDate.of(2025, 2, 10));
+        Instant changed = Instant.now();
+        when(lag.getReplicaBeat()).thenReturn(changed.minusSeconds(2));
+        when(bookingRepository.findBookingsByMemberId(1L)).thenReturn(List.of(booking));
+        searchService.searchBookings("John Doe", null, null, null);
+        searchService.searchBookings("John Doe", null, null, null);
+        String tag = searchService.searchVersion("John Doe", null, null, null);
+        verify(bookingRepository, times(1)).findBookingsByMemberId(1L);
+
+        // When: the replica applies more, but not the booking yet
+        when(lag.getReplicaBeat()).thenReturn(changed.minusSeconds(1));
+        searchService.searchBookings("John Doe", null, null, null);
+
+        // Then: the result is read again, under a new tag
+        verify(bookingRepository, times(2)).findBookingsByMemberId(1L);
+        assertNotEquals(tag, searchService.searchVersion("John Doe", null, null, null));
+
+        // When: the replica has the booking
+        when(lag.getReplicaBeat()).thenReturn(changed.plusSeconds(1));
+        String appliedTag = searchService.searchVersion("John Doe", null, null, null);
+        searchService.searchBookings("John Doe", null, null, null);
+
+        // Then: its results share the plain version of the primary, and later heartbeats keep them current
+        assertEquals(appliedTag, ReadRouting.onPrimary(() -> searchService.searchVersion("John Doe", null, null, null)));
+        when(lag.getReplicaBeat()).thenReturn(changed.plusSeconds(2));
+        searchService.searchBookings("John Doe", null, null, null);
+        assertEquals(appliedTag, searchService.searchVersion("John Doe", null, null, null));
+        verify(bookingRepository, times(3)).findBookingsByMemberId(1L);
+    }
+
+    @Test
+    void testSearchVersion_ChangesWithBookingsInRange() {
+        LocalDate start = LocalDate.of(2025, 2, 1);
+        LocalDate end = LocalDate.of(2025, 2, 28);
+        String before = searchService.searchVersion(null, null, start, end);
+
+        bookingVersions.bookingChanged(5L, LocalDate.of(2025, 3, 1));
+        assertEquals(before, searchService.searchVersion(null, null, start, end));
+
+        bookingVersions.bookingChanged(5L, LocalDate.of(2025, 2, 10));
+        assertNotEquals(before, searchService.searchVersion(null, null, start, end));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testShardedSearches_MergeEveryShardInDateOrder() {
+        // Given: three shards, each holding one booking of the member
+        Shards shards = new Shards(new HashShardRouter(), List.of("shard-1", "shard-2"), 8);
+        searchService = new SearchService(bookingRepository, memberDictionary, memberNameIndex, bookingVersions,
+                new SearchResultCache(100), shards, replicationLag, transactionManager);
+        List<BookingDTO> byShard = List.of(
+                new BookingDTO("Pilates", "John Doe", LocalDate.of(2025, 2, 12)),
+                new BookingDTO("Yoga", "John Doe", LocalDate.of(2025, 2, 10)),
+                new BookingDTO("Spin", "John Doe", LocalDate.of(2025, 2, 11)));
+        when(bookingRepository.findBookingsByMemberId(1L))
+                .thenAnswer(invocation -> List.of(byShard.get(Shards.current())));
+        when(bookingRepository.streamBookingsByMemberId(1L, SearchService.FIRST_DATE, SearchService.LAST_DATE))
+                .thenAnswer(invocation -> Stream.of(byShard.get(Shards.current())));
+        when(bookingRepository.findPageAfterByMemberId(eq(1L), any(), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    BookingDTO row = byShard.get(Shards.current());
+                    return List.of(new BookingRowDTO(Shards.current() * Shards.ID_SPAN + 1, row.getClassName(),
+                            row.getMemberName(), row.getParticipationDate()));
+                });
+
+        try {
+            // When & Then: the results of all shards come back in date order
+            List<String> expected = List.of("Yoga", "Spin", "Pilates");
+            assertEquals(expected, searchService.searchBookings("John Doe", null, null, null).stream()
+                    .map(BookingDTO::getClassName).toList());
+
+            List<String> streamed = new ArrayList<>();
+            searchService.streamBookings("John Doe", null, null, null, row -> streamed.add(row.getClassName()));
+            assertEquals(expected, streamed);
+
+            BookingPageDTO page = searchService.searchBookingPage("John Doe", null, null, null, null, 2);
+            assertEquals(List.of("Yoga", "Spin"), page.getBookings().stream().map(BookingDTO::getClassName).toList());
+            assertEquals("2025-02-11_" + (2 * Shards.ID_SPAN + 1), page.getNextCursor());
+        } finally {
+            shards.shutdown();
+        }
     }
 }
@@ -0,0 +1,95 @@
+package com.example.clubmanager.service;
+
+import com.example.clubmanager.model.BookingModel;
+import com.example.clubmanager.model.ClassSessionModel;
+import com.example.clubmanager.model.WaitlistEntryModel;
+import com.example.clubmanager.repository.BookingRepository;
+import com.example.clubmanager.repository.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WaitlistServiceTest {
+
+    @Mock
+    private WaitlistRepository waitlistRepository;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private BookingEventLog bookingEventLog;
+
+    private WaitlistService waitlistService;
+
+    private ClassSessionModel classSession;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        waitlistService = new WaitlistService(waitlistRepository, bookingRepository, bookingEventLog);
+        classSession = new ClassSessionModel(null, LocalDate.of(2099, 3, 1), LocalTime.of(10, 0), 10);
+        ReflectionTestUtils.setField(classSession, "id", 5L);
+    }
+
+    private WaitlistEntryModel entry(long id, long memberId) {
+        WaitlistEntryModel entry = new WaitlistEntryModel(5L, memberId);
+        ReflectionTestUtils.setField(entry, "id", id);
+        return entry;
+    }
+
+    @Test
+    void testJoin_AppendsEntry() {
+        when(waitlistRepository.save(any(WaitlistEntryModel.class))).thenReturn(entry(100L, 42L));
+        when(waitlistRepository.positionOf(5L, 100L)).thenReturn(4L);
+
+        assertEquals(4, waitlistService.join(5L, 42L));
+        verify(waitlistRepository, times(1)).save(argThat(entry -> entry.getMemberId() == 42L));
+    }
+
+    @Test
+    void testJoin_AgainKeepsPosition() {
+        when(waitlistRepository.findByClassSessionIdAndMemberId(5L, 42L)).thenReturn(entry(100L, 42L));
+        when(waitlistRepository.positionOf(5L, 100L)).thenReturn(2L);
+
+        assertEquals(2, waitlistService.join(5L, 42L));
+        verify(waitlistRepository, never()).save(any());
+    }
+
+    @Test
+    void testPromote_BooksHeadOfQueue() {
+        when(waitlistRepository.findFirstByClassSessionIdOrderByIdAsc(5L)).thenReturn(entry(100L, 42L));
+        when(waitlistRepository.deleteEntry(100L)).thenReturn(1);
+
+        assertEquals(42L, waitlistService.promote(classSession));
+        verify(bookingRepository, times(1)).save(argThat((BookingModel booking) -> booking.getMemberId() == 42L
+                && booking.getClassSession() == classSession
+                && booking.getParticipationDate().equals(LocalDate.of(2099, 3, 1))));
+        verify(bookingEventLog, times(1)).seatBooked(argThat(booking -> booking.getMemberId() == 42L));
+    }
+
+    @Test
+    void testPromote_SkipsEntryTakenByConcurrentPromotion() {
+        // The first head was promoted by another transaction between the read and the delete
+        when(waitlistRepository.findFirstByClassSessionIdOrderByIdAsc(5L)).thenReturn(entry(100L, 42L), entry(101L, 43L));
+        when(waitlistRepository.deleteEntry(100L)).thenReturn(0);
+        when(waitlistRepository.deleteEntry(101L)).thenReturn(1);
+
+        assertEquals(43L, waitlistService.promote(classSession));
+        verify(bookingRepository, times(1)).save(any(BookingModel.class));
+    }
+
+    @Test
+    void testPromote_NobodyWaiting() {
+        assertNull(waitlistService.promote(classSession));
+        verify(bookingRepository, never()).save(any());
+    }
+}